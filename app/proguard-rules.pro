@@ -28,6 +28,7 @@
 # 保留水墨屏优化相关的实用程序类
 -keep class com.stu.calender2.utils.EInkDisplayHelper { *; }
 -keep class com.stu.calender2.utils.EInkAnimationUtils { *; }
+-keep class com.stu.calender2.utils.EInkDriver** { *; }
 
 # 保留应用程序类
 -keep class com.stu.calender2.MyApplication { *; }
@@ -4,6 +4,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
@@ -12,6 +14,9 @@ import androidx.navigation.fragment.NavHostFragment;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.*;
 import com.stu.calender2.data.Task;
+import com.stu.calender2.data.TaskWindow;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.PerfMonitor;
 import com.stu.calender2.viewmodel.TaskViewModel;
 
 import java.text.SimpleDateFormat;
@@ -23,11 +28,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.ArrayList;
 
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.Trace;
 import android.text.Layout;
 import android.text.Spannable;
 import android.text.SpannableString;
@@ -42,8 +50,8 @@ import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
-import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.CalendarView;
 import android.widget.FrameLayout;
@@ -54,15 +62,28 @@ import android.widget.Toast;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.stu.calender2.utils.EInkDisplayHelper;
-import com.stu.calender2.utils.EInkAnimationUtils;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import android.widget.AbsListView;
 
 public class CalendarFragment extends Fragment implements View.OnClickListener {
 
+    // 单元格键中列的步长，大于每列的小时行数（0-24）
+    private static final int CELL_KEY_STRIDE = 25;
+
+    /**
+     * 按列和小时查找网格单元格
+     */
+    private interface CellFinder {
+        FrameLayout find(int column, int hour);
+    }
+
+    /**
+     * 按完整任务列表重绘网格
+     */
+    private interface GridRenderer {
+        void render(List<Task> tasks);
+    }
+
     private CalendarView calendarView;
     private Button btnThreeDay, btnWeek, btnMonth;
     private LinearLayout threeDayView, weekView, monthView;
@@ -79,6 +100,10 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
 
     // 任务ViewModel
     private TaskViewModel taskViewModel;
+    // 当前正在监听的任务查询
+    private final List<LiveData<?>> activeQueries = new ArrayList<>();
+    // 三日/周视图网格已应用的任务窗口版本，-1表示需要整体重绘
+    private long gridVersion = -1;
 
     // 添加月视图任务指示器
     private TextView monthTaskIndicator;
@@ -106,14 +131,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         
-        // 禁用所有视图的动画
-        EInkDisplayHelper.disableAnimationsRecursively(view);
-        
-        // 禁用 ScrollView 的滚动动画
-        ScrollView scrollView = view.findViewById(R.id.three_day_scrollview);
-        if (scrollView != null) {
-            EInkDisplayHelper.disableScrollViewAnimations(scrollView);
-        }
+        // 动画和过度滚动已由EInkViewFactory在视图创建时禁用
         
         // 初始化日历
         currentCalendar = Calendar.getInstance();
@@ -134,9 +152,6 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         // 监听当天任务
         observeTasks();
 
-        // 优化CalendarView性能
-        optimizeCalendarViewForEInk();
-
         if (calendarView != null) {
             // 设置日期选中颜色
             calendarView.setSelectedWeekBackgroundColor(getResources().getColor(R.color.colorPrimary));
@@ -163,6 +178,30 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
 
         // 初始化ScrollView ID，确保能正确找到
         initViewIds();
+
+        // 首帧绘制时上报完全显示，供启动基准测试统计日历首帧耗时
+        reportFirstFrame(view);
+    }
+
+    /**
+     * 在日历首帧绘制前调用reportFullyDrawn，只上报一次
+     */
+    private void reportFirstFrame(View view) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                Trace.beginSection("CalendarFragment#firstFrame");
+                try {
+                    if (getActivity() != null) {
+                        getActivity().reportFullyDrawn();
+                    }
+                } finally {
+                    Trace.endSection();
+                }
+                return true;
+            }
+        });
     }
 
     private void initViews(View view) {
@@ -340,10 +379,30 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         }
     }
 
+    /**
+     * 监听查询结果，并记录下来以便切换日期或视图时取消
+     */
+    private <T> void observeQuery(LiveData<T> query, Observer<T> observer) {
+        query.observe(getViewLifecycleOwner(), observer);
+        activeQueries.add(query);
+    }
+
+    /**
+     * 取消之前的查询监听，旧查询随之停止监听数据库
+     */
+    private void clearActiveQueries() {
+        for (LiveData<?> query : activeQueries) {
+            query.removeObservers(getViewLifecycleOwner());
+        }
+        activeQueries.clear();
+    }
+
     /**
      * 监听任务并更新显示
      */
     private void observeTasks() {
+        // 日期或视图变化时重新监听，先取消旧范围的查询
+        clearActiveQueries();
         try {
             // 创建日期范围
             Calendar startOfDay = (Calendar) currentCalendar.clone();
@@ -352,50 +411,18 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
             startOfDay.set(Calendar.SECOND, 0);
             startOfDay.set(Calendar.MILLISECOND, 0);
 
-            Calendar endOfDay = (Calendar) startOfDay.clone();
-            endOfDay.add(Calendar.DAY_OF_MONTH, 1);
-
-            // 获取当天的任务
-            taskViewModel.getTasksByDateRange(startOfDay.getTime(), endOfDay.getTime())
-                    .observe(getViewLifecycleOwner(), this::displayTasks);
-
+            // 各视图的查询范围都包含当天，不再单独监听当天的任务
             // 根据当前视图模式加载不同范围的任务
             if (currentViewMode == 0) { // 三日视图
-                // 创建三天的日期范围
-                Calendar startOfThreeDays = (Calendar) startOfDay.clone();
                 Calendar endOfThreeDays = (Calendar) startOfDay.clone();
                 endOfThreeDays.add(Calendar.DAY_OF_MONTH, 3); // 加三天
-                
-                // 获取三天的所有任务
-                taskViewModel.getTasksByDateRange(startOfThreeDays.getTime(), endOfThreeDays.getTime())
-                        .observe(getViewLifecycleOwner(), tasks -> {
-                            if (tasks == null) return;
-                            
-                            // 按天分组任务
-                            List<Task>[] tasksByDay = new List[3];
-                            for (int i = 0; i < 3; i++) {
-                                tasksByDay[i] = new ArrayList<>();
-                            }
-                            
-                            // 对任务进行分组
-                            Calendar taskDate = Calendar.getInstance();
-                            for (Task task : tasks) {
-                                taskDate.setTime(task.getStartTime());
-                                
-                                // 计算任务与开始日期的差值（天数）
-                                int dayDiff = calculateDayDifference(startOfThreeDays, taskDate);
-                                
-                                // 如果在三天范围内，添加到对应的列表
-                                if (dayDiff >= 0 && dayDiff < 3) {
-                                    tasksByDay[dayDiff].add(task);
-                                }
-                            }
-                            
-                            // 显示每天的任务
-                            for (int day = 0; day < 3; day++) {
-                                displayTasksForDay(tasksByDay[day], day);
-                            }
-                        });
+
+                // 三天的任务窗口，单个任务变化时只重绘涉及的单元格
+                long[] dayStarts = computeDayStarts(startOfDay, 3);
+                gridVersion = -1;
+                observeQuery(taskViewModel.getTaskWindow(startOfDay.getTime(), endOfThreeDays.getTime()),
+                        update -> applyGridUpdate(update, dayStarts, this::findDayCell,
+                                tasks -> displayThreeDayTasks(tasks, dayStarts)));
                 
             } else if (currentViewMode == 1) { // 周视图
                 // 获取本周的起始日期（周日）
@@ -409,9 +436,12 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 Calendar endOfWeek = (Calendar) startOfWeek.clone();
                 endOfWeek.add(Calendar.DAY_OF_MONTH, 7); // 加7天
 
-                // 获取一周的任务
-                taskViewModel.getTasksByDateRange(startOfWeek.getTime(), endOfWeek.getTime())
-                        .observe(getViewLifecycleOwner(), this::displayWeekTasks);
+                // 一周的任务窗口，单个任务变化时只重绘涉及的单元格
+                long[] dayStarts = computeDayStarts(startOfWeek, 7);
+                gridVersion = -1;
+                observeQuery(taskViewModel.getTaskWindow(startOfWeek.getTime(), endOfWeek.getTime()),
+                        update -> applyGridUpdate(update, dayStarts, this::findWeekCell,
+                                this::displayWeekTasks));
                 
             } else { // 月视图
                 // 获取当月的开始和结束日期
@@ -426,8 +456,8 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 endOfMonth.add(Calendar.MONTH, 1);
 
                 // 获取整个月的任务
-                taskViewModel.getTasksByDateRange(startOfMonth.getTime(), endOfMonth.getTime())
-                        .observe(getViewLifecycleOwner(), tasks -> {
+                observeQuery(taskViewModel.getTasksByDateRange(startOfMonth.getTime(), endOfMonth.getTime()),
+                        tasks -> {
                             updateMonthTasksCount(tasks);
                             displayMonthTasks(tasks);
                         });
@@ -439,49 +469,120 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
     }
 
     /**
-     * 计算两个日期之间的天数差异
-     * @param date1 第一个日期
-     * @param date2 第二个日期
-     * @return 天数差（date2 - date1）
+     * 在日历网格（三日视图或周视图）上应用任务窗口的更新
+     * 版本连续时只重绘变更涉及的单元格，否则整体重绘
      */
-    private int calculateDayDifference(Calendar date1, Calendar date2) {
-        // 复制Calendar对象，确保不会修改原始对象
-        Calendar d1 = (Calendar) date1.clone();
-        Calendar d2 = (Calendar) date2.clone();
-        
-        // 重置时分秒，只比较日期部分
-        d1.set(Calendar.HOUR_OF_DAY, 0);
-        d1.set(Calendar.MINUTE, 0);
-        d1.set(Calendar.SECOND, 0);
-        d1.set(Calendar.MILLISECOND, 0);
-        
-        d2.set(Calendar.HOUR_OF_DAY, 0);
-        d2.set(Calendar.MINUTE, 0);
-        d2.set(Calendar.SECOND, 0);
-        d2.set(Calendar.MILLISECOND, 0);
-        
-        // 计算天数差
-        long diff = d2.getTimeInMillis() - d1.getTimeInMillis();
-        return (int) (diff / (24 * 60 * 60 * 1000));
+    private void applyGridUpdate(TaskWindow.Update update, long[] dayStarts,
+                                 CellFinder finder, GridRenderer fullRenderer) {
+        if (update.canApplyOn(gridVersion)) {
+            patchGridCells(update, dayStarts, finder);
+        } else {
+            fullRenderer.render(update.getTasks());
+        }
+        gridVersion = update.getVersion();
     }
 
     /**
-     * 显示任务
-     * @param tasks 任务列表
+     * 只重绘变更前后任务所在的单元格
      */
-    private void displayTasks(List<Task> tasks) {
-        if (currentViewMode == 0) {
-            // 三日视图第一天
-            displayTasksForDay(tasks, 0);
-        } else if (currentViewMode == 1) {
-            // 周视图
-            displayWeekTasks(tasks);
-        } else {
-            // 月视图
-            displayMonthTasks(tasks);
+    private void patchGridCells(TaskWindow.Update update, long[] dayStarts, CellFinder finder) {
+        Calendar calendar = Calendar.getInstance();
+        Set<Integer> cellKeys = new HashSet<>();
+        for (Task task : update.getTouchedTasks()) {
+            int key = cellKeyOf(task, dayStarts, calendar);
+            if (key >= 0) {
+                cellKeys.add(key);
+            }
+        }
+
+        for (int key : cellKeys) {
+            FrameLayout cell = finder.find(key / CELL_KEY_STRIDE, key % CELL_KEY_STRIDE);
+            if (cell == null) {
+                continue;
+            }
+            List<Task> cellTasks = new ArrayList<>();
+            for (Task task : update.getTasks()) {
+                if (cellKeyOf(task, dayStarts, calendar) == key) {
+                    cellTasks.add(task);
+                }
+            }
+            cell.removeAllViews();
+            if (!cellTasks.isEmpty()) {
+                cell.addView(createCellContainer(cellTasks));
+            }
+        }
+    }
+
+    /**
+     * 任务所在单元格的键（列 * CELL_KEY_STRIDE + 小时），不在网格范围内时返回-1
+     */
+    private static int cellKeyOf(Task task, long[] dayStarts, Calendar calendar) {
+        if (task.getStartTime() == null) {
+            return -1;
+        }
+        long time = task.getStartTime().getTime();
+        for (int column = 0; column < dayStarts.length - 1; column++) {
+            if (time >= dayStarts[column] && time < dayStarts[column + 1]) {
+                calendar.setTimeInMillis(time);
+                return column * CELL_KEY_STRIDE + calendar.get(Calendar.HOUR_OF_DAY);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从start开始连续days天每天零点的时间，最后一项为结束时间
+     */
+    private static long[] computeDayStarts(Calendar start, int days) {
+        long[] dayStarts = new long[days + 1];
+        Calendar day = (Calendar) start.clone();
+        for (int i = 0; i <= days; i++) {
+            dayStarts[i] = day.getTimeInMillis();
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return dayStarts;
+    }
+
+    /**
+     * 三日视图整体重绘：按天分组后逐天显示
+     */
+    private void displayThreeDayTasks(List<Task> tasks, long[] dayStarts) {
+        int days = dayStarts.length - 1;
+        List<List<Task>> tasksByDay = new ArrayList<>(days);
+        for (int day = 0; day < days; day++) {
+            tasksByDay.add(new ArrayList<>());
         }
+        for (Task task : tasks) {
+            if (task.getStartTime() == null) continue;
+            long time = task.getStartTime().getTime();
+            for (int day = 0; day < days; day++) {
+                if (time >= dayStarts[day] && time < dayStarts[day + 1]) {
+                    tasksByDay.get(day).add(task);
+                    break;
+                }
+            }
+        }
+        for (int day = 0; day < days; day++) {
+            displayTasksForDay(tasksByDay.get(day), day);
+        }
+    }
+
+    /**
+     * 单元格内的任务列表容器
+     */
+    private LinearLayout createCellContainer(List<Task> cellTasks) {
+        LinearLayout taskContainer = new LinearLayout(requireContext());
+        taskContainer.setOrientation(LinearLayout.VERTICAL);
+        taskContainer.setLayoutParams(new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+        for (Task task : cellTasks) {
+            addTaskViewToContainer(taskContainer, task);
+        }
+        return taskContainer;
     }
 
+
     /**
      * 在三日视图中为指定天显示任务
      * @param tasks 任务列表
@@ -531,51 +632,42 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
             // 找到对应的时间单元格
             FrameLayout cell = findDayCell(dayIndex, hour);
             if (cell != null) {
-                // 创建垂直布局容器
-                LinearLayout taskContainer = new LinearLayout(requireContext());
-                taskContainer.setOrientation(LinearLayout.VERTICAL);
-                taskContainer.setLayoutParams(new LinearLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.WRAP_CONTENT));
-
-                // 添加每个任务
-                for (Task task : hourTasks) {
-                    addTaskViewToContainer(taskContainer, task);
-                }
-
-                // 将容器添加到单元格
+                // 将任务容器添加到单元格
                 cell.removeAllViews();
-                cell.addView(taskContainer);
+                cell.addView(createCellContainer(hourTasks));
             }
         }
     }
 
     // 修改findDayCell方法，支持使用标签和ID查找单元格
     private FrameLayout findDayCell(int dayIndex, int hour) {
+        // 逐行查找的跟踪日志，只在VERBOSE级别启用时拼接
+        boolean trace = AppLog.isLoggable(AppLog.VERBOSE);
         if (dayIndex < 0 || dayIndex > 2 || hour < 0 || hour > 24) {
             return null;
         }
         
         try {
-            Log.d("CalendarFragment", "开始查找单元格: day=" + dayIndex + ", hour=" + hour);
+            if (trace) AppLog.v("CalendarFragment", "开始查找单元格: day=" + dayIndex + ", hour=" + hour);
             
             // 获取三日视图的ScrollView
             ScrollView scrollView = threeDayView.findViewById(R.id.three_day_scrollview);
             if (scrollView == null || scrollView.getChildCount() == 0) {
-                Log.d("CalendarFragment", "三日视图的ScrollView不存在或为空");
+                if (trace) AppLog.v("CalendarFragment", "三日视图的ScrollView不存在或为空");
                 return null;
             }
             
             // 获取ScrollView的内容LinearLayout (包含所有时间行)
             View contentView = scrollView.getChildAt(0);
             if (!(contentView instanceof LinearLayout)) {
-                Log.d("CalendarFragment", "ScrollView的内容不是LinearLayout");
+                if (trace) AppLog.v("CalendarFragment", "ScrollView的内容不是LinearLayout");
                 return null;
             }
             
             LinearLayout timeRowsContainer = (LinearLayout) contentView;
             
-            // 遍历所有时间行，查找对应小时的行
+            // 遍历所有时间行，查找对应小时的行；目标文本只格式化一次
+            String hourText = String.format(Locale.US, "%02d:00", hour);
             for (int i = 0; i < timeRowsContainer.getChildCount(); i++) {
                 View child = timeRowsContainer.getChildAt(i);
                 if (!(child instanceof LinearLayout)) continue;
@@ -589,8 +681,8 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 String timeText = timeLabel.getText().toString().trim();
                 
                 // 检查是否是我们要找的小时
-                if (timeText.contains(String.format("%02d:00", hour))) {
-                    Log.d("CalendarFragment", "找到小时行: " + timeText);
+                if (timeText.contains(hourText)) {
+                    if (trace) AppLog.v("CalendarFragment", "找到小时行: " + timeText);
                     
                     // 现在查找对应的日期单元格
                     // 第二个子视图可能包含三个日期单元格
@@ -610,7 +702,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                             if (frameChild instanceof FrameLayout) {
                                 String tag = (String) frameChild.getTag();
                                 if (tag != null && tag.equals(targetTag)) {
-                                    Log.d("CalendarFragment", "通过tag找到单元格: " + tag);
+                                    if (trace) AppLog.v("CalendarFragment", "通过tag找到单元格: " + tag);
                                     return (FrameLayout) frameChild;
                                 }
                             }
@@ -623,7 +715,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                             View frameChild = container.getChildAt(j);
                             if (frameChild instanceof FrameLayout) {
                                 if (frameCount == dayIndex) {
-                                    Log.d("CalendarFragment", "通过索引找到单元格: day=" + dayIndex);
+                                    if (trace) AppLog.v("CalendarFragment", "通过索引找到单元格: day=" + dayIndex);
                                     return (FrameLayout) frameChild;
                                 }
                                 frameCount++;
@@ -633,7 +725,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 }
             }
             
-            Log.d("CalendarFragment", "找不到单元格: day=" + dayIndex + ", hour=" + hour);
+            if (trace) AppLog.v("CalendarFragment", "找不到单元格: day=" + dayIndex + ", hour=" + hour);
         } catch (Exception e) {
             Log.e("CalendarFragment", "查找单元格出错: " + e.getMessage(), e);
         }
@@ -719,6 +811,10 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 NavController navController = NavHostFragment.findNavController(this);
                 Bundle bundle = new Bundle();
                 bundle.putLong("taskId", task.getId());
+                if (task.isOccurrence()) {
+                    // 重复任务的实例与主记录同ID，另传实例的开始时间，详情页可以只删除这一次
+                    bundle.putLong("occurrenceStart", task.getStartTime().getTime());
+                }
                 navController.navigate(R.id.action_calendarFragment_to_taskDetailFragment, bundle);
             } catch (Exception e) {
                 Toast.makeText(requireContext(), "导航失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -731,15 +827,20 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
     }
 
     /**
-     * 在周视图中显示任务
+     * 在周视图中显示任务，开启性能监控时记录耗时
      * @param tasks 任务列表
      */
     private void displayWeekTasks(List<Task> tasks) {
-        if (tasks == null || tasks.isEmpty()) {
-            return;
+        long start = PerfMonitor.getInstance().beginSection("render:week");
+        try {
+            renderWeekTasks(tasks);
+        } finally {
+            PerfMonitor.getInstance().endSection("render:week", start);
         }
+    }
 
-        // 清除之前的所有任务视图
+    private void renderWeekTasks(List<Task> tasks) {
+        // 清除之前的所有任务视图，任务为空时也要清除，避免残留上一周的任务
         for (int day = 0; day < 7; day++) {
             for (int hour = 0; hour <= 24; hour++) {
                 try {
@@ -753,6 +854,10 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
             }
         }
 
+        if (tasks == null || tasks.isEmpty()) {
+            return;
+        }
+
         // 按星期几和小时对任务进行分组
         Map<Integer, Map<Integer, List<Task>>> tasksByDayAndHour = new HashMap<>();
         for (int day = 0; day < 7; day++) {
@@ -786,21 +891,9 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 // 找到对应的单元格
                 FrameLayout cell = findWeekCell(day, hour);
                 if (cell != null) {
-                    // 创建垂直布局容器
-                    LinearLayout taskContainer = new LinearLayout(requireContext());
-                    taskContainer.setOrientation(LinearLayout.VERTICAL);
-                    taskContainer.setLayoutParams(new LinearLayout.LayoutParams(
-                            ViewGroup.LayoutParams.MATCH_PARENT,
-                            ViewGroup.LayoutParams.WRAP_CONTENT));
-
-                    // 添加每个任务
-                    for (Task task : hourTasks) {
-                        addTaskViewToContainer(taskContainer, task);
-                    }
-
-                    // 将容器添加到单元格
+                    // 将任务容器添加到单元格
                     cell.removeAllViews();
-                    cell.addView(taskContainer);
+                    cell.addView(createCellContainer(hourTasks));
                 }
             }
         }
@@ -813,17 +906,19 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
      * @return 对应的单元格，如果找不到则返回null
      */
     private FrameLayout findWeekCell(int dayOfWeek, int hour) {
+        // 逐行查找的跟踪日志，只在VERBOSE级别启用时拼接
+        boolean trace = AppLog.isLoggable(AppLog.VERBOSE);
         if (dayOfWeek < 0 || dayOfWeek > 6 || hour < 0 || hour > 24) {
-            Log.d("CalendarFragment", "参数无效: day=" + dayOfWeek + ", hour=" + hour);
+            if (trace) AppLog.v("CalendarFragment", "参数无效: day=" + dayOfWeek + ", hour=" + hour);
             return null;
         }
 
         try {
-            Log.d("CalendarFragment", "开始查找周视图单元格: day=" + dayOfWeek + ", hour=" + hour);
+            if (trace) AppLog.v("CalendarFragment", "开始查找周视图单元格: day=" + dayOfWeek + ", hour=" + hour);
             
             // 确保周视图可见
             if (weekView == null || weekView.getVisibility() != View.VISIBLE) {
-                Log.d("CalendarFragment", "周视图不可见或为null");
+                if (trace) AppLog.v("CalendarFragment", "周视图不可见或为null");
                 return null;
             }
             
@@ -833,44 +928,45 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
             // 获取周视图的ScrollView
             ScrollView scrollView = weekView.findViewById(R.id.week_scrollview);
             if (scrollView == null) {
-                Log.d("CalendarFragment", "周视图的ScrollView找不到，尝试查找未命名的ScrollView");
+                if (trace) AppLog.v("CalendarFragment", "周视图的ScrollView找不到，尝试查找未命名的ScrollView");
                 // 尝试查找第一个ScrollView
                 for (int i = 0; i < weekView.getChildCount(); i++) {
                     View child = weekView.getChildAt(i);
                     if (child instanceof ScrollView) {
                         scrollView = (ScrollView) child;
                         scrollView.setId(R.id.week_scrollview);
-                        Log.d("CalendarFragment", "找到并设置了周视图ScrollView的ID");
+                        if (trace) AppLog.v("CalendarFragment", "找到并设置了周视图ScrollView的ID");
                         break;
                     }
                 }
                 
                 if (scrollView == null) {
-                    Log.d("CalendarFragment", "周视图中找不到ScrollView");
+                    if (trace) AppLog.v("CalendarFragment", "周视图中找不到ScrollView");
                     return null;
                 }
             }
             
             if (scrollView.getChildCount() == 0) {
-                Log.d("CalendarFragment", "周视图的ScrollView中没有子视图");
+                if (trace) AppLog.v("CalendarFragment", "周视图的ScrollView中没有子视图");
                 return null;
             }
             
             // 获取ScrollView的内容LinearLayout(包含所有时间行)
             View contentView = scrollView.getChildAt(0);
             if (!(contentView instanceof LinearLayout)) {
-                Log.d("CalendarFragment", "周视图ScrollView的内容不是LinearLayout，而是 " + contentView.getClass().getSimpleName());
+                if (trace) AppLog.v("CalendarFragment", "周视图ScrollView的内容不是LinearLayout，而是 " + contentView.getClass().getSimpleName());
                 return null;
             }
             
             LinearLayout timeRowsContainer = (LinearLayout) contentView;
-            Log.d("CalendarFragment", "周视图时间行容器中有 " + timeRowsContainer.getChildCount() + " 个子视图");
+            if (trace) AppLog.v("CalendarFragment", "周视图时间行容器中有 " + timeRowsContainer.getChildCount() + " 个子视图");
             
-            // 遍历所有时间行，查找对应小时的行
+            // 遍历所有时间行，查找对应小时的行；目标文本只格式化一次
+            String hourText = String.format(Locale.US, "%02d:00", hour);
             for (int i = 0; i < timeRowsContainer.getChildCount(); i++) {
                 View child = timeRowsContainer.getChildAt(i);
                 if (!(child instanceof LinearLayout)) {
-                    Log.d("CalendarFragment", "时间行容器中第 " + i + " 个子视图不是LinearLayout");
+                    if (trace) AppLog.v("CalendarFragment", "时间行容器中第 " + i + " 个子视图不是LinearLayout");
                     continue;
                 }
                 
@@ -878,7 +974,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 
                 // 检查第一个子视图是否是时间标签
                 if (timeRow.getChildCount() <= 1 || !(timeRow.getChildAt(0) instanceof TextView)) {
-                    Log.d("CalendarFragment", "时间行 " + i + " 中没有时间标签或子视图不足");
+                    if (trace) AppLog.v("CalendarFragment", "时间行 " + i + " 中没有时间标签或子视图不足");
                     continue;
                 }
                 
@@ -886,23 +982,23 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 String timeText = timeLabel.getText().toString().trim();
                 
                 // 检查是否是我们要找的小时
-                if (timeText.contains(String.format("%02d:00", hour))) {
-                    Log.d("CalendarFragment", "找到周视图小时行: " + timeText + "，包含 " + timeRow.getChildCount() + " 个子视图");
+                if (timeText.contains(hourText)) {
+                    if (trace) AppLog.v("CalendarFragment", "找到周视图小时行: " + timeText + "，包含 " + timeRow.getChildCount() + " 个子视图");
                     
                     // 第二个子视图可能包含七个日期单元格
                     if (timeRow.getChildCount() <= 1) {
-                        Log.d("CalendarFragment", "时间行没有足够的子视图");
+                        if (trace) AppLog.v("CalendarFragment", "时间行没有足够的子视图");
                         continue;
                     }
                     
                     // 获取单元格容器(可能是LinearLayout或include的布局)
                     View cellsContainer = timeRow.getChildAt(1);
-                    Log.d("CalendarFragment", "单元格容器类型: " + cellsContainer.getClass().getSimpleName());
+                    if (trace) AppLog.v("CalendarFragment", "单元格容器类型: " + cellsContainer.getClass().getSimpleName());
                     
                     // 如果是ViewGroup,则查找其中的单元格
                     if (cellsContainer instanceof ViewGroup) {
                         ViewGroup container = (ViewGroup) cellsContainer;
-                        Log.d("CalendarFragment", "单元格容器包含 " + container.getChildCount() + " 个子视图");
+                        if (trace) AppLog.v("CalendarFragment", "单元格容器包含 " + container.getChildCount() + " 个子视图");
                         
                         // 首先尝试通过tag查找
                         String targetTag = "day" + dayOfWeek;
@@ -911,7 +1007,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                             if (frameChild instanceof FrameLayout) {
                                 String tag = (String) frameChild.getTag();
                                 if (tag != null && tag.equals(targetTag)) {
-                                    Log.d("CalendarFragment", "通过tag找到周视图单元格: " + tag);
+                                    if (trace) AppLog.v("CalendarFragment", "通过tag找到周视图单元格: " + tag);
                                     return (FrameLayout) frameChild;
                                 }
                             }
@@ -924,7 +1020,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                             View frameChild = container.getChildAt(j);
                             if (frameChild instanceof FrameLayout) {
                                 if (frameCount == dayOfWeek) {
-                                    Log.d("CalendarFragment", "找到周视图单元格: day=" + dayOfWeek);
+                                    if (trace) AppLog.v("CalendarFragment", "找到周视图单元格: day=" + dayOfWeek);
                                     // 设置tag以便后续查找
                                     frameChild.setTag("day" + dayOfWeek);
                                     return (FrameLayout) frameChild;
@@ -938,11 +1034,11 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                     int frameCount = 0;
                     for (int j = 1; j < timeRow.getChildCount(); j++) {  // 跳过第一个时间标签
                         View child2 = timeRow.getChildAt(j);
-                        Log.d("CalendarFragment", "检查时间行直接子视图 " + j + ": " + child2.getClass().getSimpleName());
+                        if (trace) AppLog.v("CalendarFragment", "检查时间行直接子视图 " + j + ": " + child2.getClass().getSimpleName());
                         
                         if (child2 instanceof FrameLayout) {
                             if (frameCount == dayOfWeek) {
-                                Log.d("CalendarFragment", "在行中直接找到单元格: day=" + dayOfWeek);
+                                if (trace) AppLog.v("CalendarFragment", "在行中直接找到单元格: day=" + dayOfWeek);
                                 // 设置tag以便后续查找
                                 child2.setTag("day" + dayOfWeek);
                                 return (FrameLayout) child2;
@@ -954,7 +1050,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                             for (int k = 0; k < vg.getChildCount(); k++) {
                                 View innerChild = vg.getChildAt(k);
                                 if (innerChild instanceof FrameLayout && frameCount == dayOfWeek) {
-                                    Log.d("CalendarFragment", "在内部ViewGroup中找到单元格: day=" + dayOfWeek);
+                                    if (trace) AppLog.v("CalendarFragment", "在内部ViewGroup中找到单元格: day=" + dayOfWeek);
                                     innerChild.setTag("day" + dayOfWeek);
                                     return (FrameLayout) innerChild;
                                 }
@@ -967,7 +1063,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 }
             }
             
-            Log.d("CalendarFragment", "找不到周视图单元格: day=" + dayOfWeek + ", hour=" + hour);
+            if (trace) AppLog.v("CalendarFragment", "找不到周视图单元格: day=" + dayOfWeek + ", hour=" + hour);
         } catch (Exception e) {
             Log.e("CalendarFragment", "查找周视图单元格出错: " + e.getMessage(), e);
         }
@@ -1204,6 +1300,15 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
      * 优化的任务展示方法，使用更美观的卡片样式和格式化文本
      */
     private void displayMonthTasks(List<Task> tasks) {
+        long start = PerfMonitor.getInstance().beginSection("render:month");
+        try {
+            renderMonthTasks(tasks);
+        } finally {
+            PerfMonitor.getInstance().endSection("render:month", start);
+        }
+    }
+
+    private void renderMonthTasks(List<Task> tasks) {
         if (tasks == null) {
             monthTaskIndicator.setVisibility(View.GONE);
             monthTaskBadge.setText("");
@@ -1376,97 +1481,6 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         return String.format(Locale.getDefault(), "%04d-%02d-%02d", year, month + 1, day);
     }
 
-    private void optimizeCalendarViewForEInk() {
-        if (calendarView == null) {
-            return;
-        }
-    
-        try {
-            // 禁用滚动动画
-            calendarView.setOverScrollMode(View.OVER_SCROLL_NEVER);
-            
-            // 尝试通过反射获取内部ListView并优化
-            try {
-                // 尝试获取mListView字段
-                Field listViewField = CalendarView.class.getDeclaredField("mListView");
-                listViewField.setAccessible(true);
-                Object listView = listViewField.get(calendarView);
-                
-                if (listView instanceof AbsListView) {
-                    AbsListView absListView = (AbsListView) listView;
-                    absListView.setOverScrollMode(View.OVER_SCROLL_NEVER);
-                    absListView.setFriction(ViewConfiguration.getScrollFriction() * 4); // 增加摩擦力减缓滚动
-                }
-            } catch (NoSuchFieldException e) {
-                // mListView字段不存在，尝试其他可能的字段名
-                Log.d("CalendarFragment", "mListView字段不存在，尝试其他方法");
-                
-                // 尝试获取其他可能的字段
-                String[] possibleFields = {"mDaySelector", "mMonthView", "mDayPickerView", "mYearPickerView"};
-                for (String fieldName : possibleFields) {
-                    try {
-                        Field field = CalendarView.class.getDeclaredField(fieldName);
-                        field.setAccessible(true);
-                        Object view = field.get(calendarView);
-                        
-                        if (view instanceof View) {
-                            ((View) view).setOverScrollMode(View.OVER_SCROLL_NEVER);
-                            Log.d("CalendarFragment", "成功优化字段: " + fieldName);
-                        }
-                    } catch (Exception ex) {
-                        // 忽略此字段的错误
-                    }
-                }
-                
-                // 尝试使用通用方法查找并优化所有子视图
-                disableScrollingEffectsRecursively(calendarView);
-            } catch (Exception e) {
-                // 其他反射错误，使用通用方法
-                Log.d("CalendarFragment", "反射访问失败，使用通用方法优化");
-                disableScrollingEffectsRecursively(calendarView);
-            }
-            
-            // 设置日期选择时不显示动画
-            try {
-                Method setShowWeekTransitionMethod = CalendarView.class.getDeclaredMethod("setShowWeekTransition", boolean.class);
-                setShowWeekTransitionMethod.setAccessible(true);
-                setShowWeekTransitionMethod.invoke(calendarView, false);
-            } catch (Exception e) {
-                // 忽略此方法不存在的错误
-            }
-            
-        } catch (Exception e) {
-            Log.e("CalendarFragment", "优化CalendarView失败", e);
-        }
-    }
-
-/**
- * 递归禁用视图中的滚动效果
- */
-private void disableScrollingEffectsRecursively(View view) {
-    if (view == null) return;
-    
-    // 禁用过度滚动
-    view.setOverScrollMode(View.OVER_SCROLL_NEVER);
-    
-    // 对于特定类型的视图进行特殊处理
-    if (view instanceof AbsListView) {
-        AbsListView listView = (AbsListView) view;
-        listView.setFriction(ViewConfiguration.getScrollFriction() * 4);
-    } else if (view instanceof ScrollView) {
-        ScrollView scrollView = (ScrollView) view;
-        EInkDisplayHelper.disableScrollViewAnimations(scrollView);
-    }
-    
-    // 递归处理子视图
-    if (view instanceof ViewGroup) {
-        ViewGroup viewGroup = (ViewGroup) view;
-        for (int i = 0; i < viewGroup.getChildCount(); i++) {
-            disableScrollingEffectsRecursively(viewGroup.getChildAt(i));
-        }
-    }
-}
-
 /**
  * 初始化ScrollView ID，确保能正确找到
  */
@@ -1553,12 +1567,6 @@ private ScrollView findScrollViewRecursively(ViewGroup viewGroup) {
     public void onResume() {
         super.onResume();
         
-        // 视图显示时禁用动画
-        View rootView = getView();
-        if (rootView != null) {
-            EInkAnimationUtils.disableAnimationsRecursively(rootView);
-        }
-        
         // 设置页面刷新模式
         setEInkRefreshMode();
     }
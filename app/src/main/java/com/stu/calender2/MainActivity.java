@@ -1,18 +1,21 @@
 package com.stu.calender2;
 
+import android.Manifest;
+import android.content.ActivityNotFoundException;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Color;
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.PowerManager;
-import android.os.Handler;
+import android.provider.OpenableColumns;
 import android.provider.Settings;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.widget.ImageButton;
@@ -26,11 +29,26 @@ import androidx.navigation.NavOptions;
 import androidx.navigation.Navigation;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.fragment.app.Fragment;
-import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import com.stu.calender2.io.SnapshotManager;
+import com.stu.calender2.io.TaskExporter;
+import com.stu.calender2.io.TaskImporter;
+import com.stu.calender2.reminder.ReminderScheduler;
 import com.stu.calender2.service.KeepAliveService;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.AppSchedulers;
 import com.stu.calender2.utils.EInkDisplayHelper;
-import com.stu.calender2.utils.EInkAnimationUtils;
+import com.stu.calender2.utils.EInkRefreshScheduler;
+import com.stu.calender2.utils.EInkViewFactory;
+import com.stu.calender2.utils.PerfMonitor;
+import com.stu.calender2.utils.TouchRefreshPipeline;
 import com.stu.calender2.utils.UIPerformanceOptimizer;
 import com.stu.calender2.utils.DatabaseOptimizer;
 
@@ -40,23 +58,38 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     private ImageButton btnTasks;
     private NavController navController;
 
-    // 添加全局触摸事件监听器
-    private long lastRefreshTime = 0;
-    private static final long MIN_REFRESH_INTERVAL = 1200; // 增加刷新间隔，降低频率
-    private Runnable pendingRefreshRunnable = null;
-    
     // 权限请求码
     private static final int REQUEST_IGNORE_BATTERY_OPTIMIZATIONS = 1001;
+    private static final int REQUEST_POST_NOTIFICATIONS = 1002;
+    
+    // 选择导出位置的请求码
+    private static final int REQUEST_EXPORT = 1003;
+    
+    // 开关性能监控的启动参数
+    private static final String EXTRA_PERF_MONITOR = "perf_monitor";
+    
+    // 开关常驻后台服务的启动参数
+    private static final String EXTRA_KEEP_ALIVE = "keep_alive";
+    
+    // 进入后台时，最新快照早于该时间则重新生成
+    private static final long SNAPSHOT_MAX_AGE_MS = 24L * 60 * 60 * 1000;
     
     // UI性能优化器
     private UIPerformanceOptimizer uiOptimizer;
     
     // 数据库优化器
     private DatabaseOptimizer dbOptimizer;
+    
+    // 触摸刷新管线
+    private TouchRefreshPipeline touchRefreshPipeline;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         getWindow().setWindowAnimations(0);
+        applyPerfMonitorExtra();
+        applyKeepAliveExtra();
+        // 视图创建时即应用水墨屏设置，需在super.onCreate之前安装
+        EInkViewFactory.install(this);
         super.onCreate(savedInstanceState);
         
         // 初始化UI性能优化器（在setContentView之前）
@@ -66,8 +99,14 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         // 初始化数据库优化器
         dbOptimizer = DatabaseOptimizer.getInstance();
         
+        // 初始化触摸刷新管线
+        touchRefreshPipeline = new TouchRefreshPipeline(this, this::onTouchSettled);
+        
         setContentView(R.layout.activity_main);
         
+        // 性能监控开启时显示调试浮层
+        PerfMonitor.getInstance().attach(this);
+        
         // 注册Activity以应用UI优化
         uiOptimizer.registerActivity(this);
         
@@ -77,11 +116,16 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         // 保持屏幕常亮
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         
-        // 启动常驻后台服务
-        startKeepAliveService();
+        // Android 13起发出提醒需要通知权限
+        requestNotificationPermission();
         
-        // 请求忽略电池优化
-        requestIgnoreBatteryOptimizations();
+        // 提醒由精确闹钟负责，常驻服务和忽略电池优化只在手动开启时使用
+        if (MyApplication.getInstance().getPreferenceManager().isKeepAliveEnabled()) {
+            startKeepAliveService();
+            requestIgnoreBatteryOptimizations();
+        } else {
+            stopService(new Intent(this, KeepAliveService.class));
+        }
         
         // Fix NavController setup - replace the current implementation with this:
         NavHostFragment navHostFragment = (NavHostFragment) getSupportFragmentManager()
@@ -120,12 +164,6 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         // navController.setGraph(graph);
         // Then apply the options when navigating
         
-        // 禁用动画
-        final View contentView = findViewById(android.R.id.content);
-        if (contentView != null) {
-            EInkAnimationUtils.disableAnimationsRecursively(contentView);
-        }
-
         // 应用水墨屏优化
         EInkDisplayHelper.applyEInkOptimizations(this);
 
@@ -157,6 +195,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         // 设置点击监听器
         btnCalendar.setOnClickListener(this);
         btnTasks.setOnClickListener(this);
+        findViewById(R.id.btn_export).setOnClickListener(v -> requestExport());
         
         // 初始化按钮状态
         resetButtonState();
@@ -165,10 +204,12 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         // 预加载未来7天的任务到缓存中，提高性能
         preloadUpcomingTasks();
         
-        // 查找并优化所有RecyclerView
-        optimizeRecyclerViews(contentView);
+        // 通过“打开方式”传入的日历文件
+        if (savedInstanceState == null) {
+            handleImportIntent(getIntent());
+        }
         
-        Log.d("MainActivity", "UI性能优化完成。缓存状态: " + dbOptimizer.getCacheStats());
+        AppLog.d("MainActivity", () -> "UI性能优化完成。缓存状态: " + dbOptimizer.getCacheStats());
     }
     
     /**
@@ -185,24 +226,6 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         dbOptimizer.preloadTasksByDateRange(currentTime, endTime);
     }
     
-    /**
-     * 递归查找并优化所有RecyclerView
-     */
-    private void optimizeRecyclerViews(View view) {
-        if (view instanceof RecyclerView) {
-            RecyclerView recyclerView = (RecyclerView) view;
-            uiOptimizer.optimizeRecyclerView(recyclerView);
-            Log.d("MainActivity", "已优化RecyclerView: " + recyclerView.getId());
-        }
-        
-        if (view instanceof ViewGroup) {
-            ViewGroup viewGroup = (ViewGroup) view;
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                optimizeRecyclerViews(viewGroup.getChildAt(i));
-            }
-        }
-    }
-    
     /**
      * 启动常驻后台服务
      */
@@ -215,6 +238,17 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         }
     }
     
+    /**
+     * 请求通知权限，Android 13以下安装时即已授予
+     */
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && MyApplication.getInstance().getPreferenceManager().isNotificationEnabled()
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_POST_NOTIFICATIONS);
+        }
+    }
+    
     /**
      * 请求忽略电池优化
      */
@@ -247,9 +281,45 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                     Toast.makeText(this, "未忽略电池优化，应用在后台可能被系统关闭", Toast.LENGTH_SHORT).show();
                 }
             }
+        } else if (requestCode == REQUEST_EXPORT) {
+            if (resultCode == RESULT_OK && data != null && data.getData() != null) {
+                exportTo(data.getData());
+            }
+        }
+    }
+    
+    /**
+     * 让用户通过系统文件选择器选择导出位置
+     */
+    private void requestExport() {
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("text/calendar");
+        String date = new SimpleDateFormat("yyyyMMdd", Locale.US).format(new Date());
+        intent.putExtra(Intent.EXTRA_TITLE, "calender2-" + date + ".ics");
+        try {
+            startActivityForResult(intent, REQUEST_EXPORT);
+        } catch (ActivityNotFoundException e) {
+            Toast.makeText(this, "没有可用的文件选择器", Toast.LENGTH_SHORT).show();
         }
     }
     
+    /**
+     * 把所有任务导出为ICS写入用户选择的文档
+     */
+    private void exportTo(Uri uri) {
+        Toast.makeText(this, "正在导出日历…", Toast.LENGTH_SHORT).show();
+        TaskExporter.getInstance().exportAsync(uri, TaskExporter.Format.ICS, null, result -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            String message = result.isSuccess()
+                    ? "已导出" + result.getExported() + "个任务"
+                    : "导出失败: " + result.getError();
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        });
+    }
+    
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -260,59 +330,36 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             } else {
                 Toast.makeText(this, "权限被拒绝，应用在后台可能被系统关闭", Toast.LENGTH_SHORT).show();
             }
-        }
-    }
-
-    @Override
-    public void onWindowFocusChanged(boolean hasFocus) {
-        super.onWindowFocusChanged(hasFocus);
-        if (hasFocus) {
-            // 再次确保所有视图的动画被禁用
-            View rootView = findViewById(android.R.id.content);
-            EInkDisplayHelper.disableAnimationsRecursively(rootView);
+        } else if (requestCode == REQUEST_POST_NOTIFICATIONS) {
+            if (grantResults.length == 0 || grantResults[0] != PackageManager.PERMISSION_GRANTED) {
+                Toast.makeText(this, "未授予通知权限，任务提醒将无法显示", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
-        // 仅在用户完成操作后进行刷新，减少频繁重绘
-        if (ev.getAction() == MotionEvent.ACTION_UP || ev.getAction() == MotionEvent.ACTION_CANCEL) {
-            // 用户松开手指时触发刷新，但要控制频率
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastRefreshTime > MIN_REFRESH_INTERVAL) {
-                // 取消之前的刷新任务
-                if (pendingRefreshRunnable != null) {
-                    new android.os.Handler().removeCallbacks(pendingRefreshRunnable);
-                }
-                
-                // 创建新的刷新任务，使用UIPerformanceOptimizer延迟更新
-                pendingRefreshRunnable = () -> {
-                    // 改用优化器提供的延迟更新功能
-                    View focusedView = getCurrentFocus();
-                    if (focusedView != null) {
-                        // 使用优化器延迟更新视图
-                        uiOptimizer.scheduleDelayedUpdate(focusedView);
-                        
-                        // 同时更新父视图
-                        ViewGroup parent = (ViewGroup) focusedView.getParent();
-                        if (parent != null) {
-                            uiOptimizer.scheduleDelayedUpdate(parent);
-                        }
-                    } else {
-                        // 如果没有焦点视图则进行轻量级刷新
-                        triggerLightRefresh();
-                    }
-                    
-                    lastRefreshTime = System.currentTimeMillis();
-                    pendingRefreshRunnable = null;
-                };
-                
-                // 添加延迟，减少刷新频率
-                new Handler().postDelayed(pendingRefreshRunnable, 150);
+        // 手势结束并稳定后再刷新，刷新时机由触摸管线决定
+        touchRefreshPipeline.onTouchEvent(ev);
+        return super.dispatchTouchEvent(ev);
+    }
+    
+    /**
+     * 手势稳定后的刷新：滚动后刷新当前页面，点击后刷新焦点区域
+     */
+    private void onTouchSettled(boolean afterScroll) {
+        View focusedView = afterScroll ? null : getCurrentFocus();
+        if (focusedView != null) {
+            // 刷新焦点视图及其父视图
+            uiOptimizer.scheduleDelayedUpdate(focusedView);
+            ViewParent parent = focusedView.getParent();
+            if (parent instanceof View) {
+                uiOptimizer.scheduleDelayedUpdate((View) parent);
             }
+        } else {
+            // 滚动后或没有焦点视图时刷新当前页面
+            triggerLightRefresh();
         }
-        
-        return super.dispatchTouchEvent(ev);
     }
     
     @Override
@@ -328,18 +375,119 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         Toast.makeText(this, "按Home键最小化应用", Toast.LENGTH_SHORT).show();
     }
     
+    /**
+     * 通过启动参数开关性能监控并保存到偏好设置，例如：
+     * adb shell am start -n com.stu.calender2/.SplashActivity --ez perf_monitor true
+     */
+    private void applyPerfMonitorExtra() {
+        Intent intent = getIntent();
+        if (intent == null || !intent.hasExtra(EXTRA_PERF_MONITOR)) {
+            return;
+        }
+        boolean enabled = intent.getBooleanExtra(EXTRA_PERF_MONITOR, false);
+        PerfMonitor.getInstance().setEnabled(enabled);
+        MyApplication.getInstance().getPreferenceManager().setPerfMonitorEnabled(enabled);
+    }
+    
+    /**
+     * 通过启动参数开关常驻后台服务并保存到偏好设置，用于闹钟被系统限制的设备，例如：
+     * adb shell am start -n com.stu.calender2/.SplashActivity --ez keep_alive true
+     */
+    private void applyKeepAliveExtra() {
+        Intent intent = getIntent();
+        if (intent == null || !intent.hasExtra(EXTRA_KEEP_ALIVE)) {
+            return;
+        }
+        boolean enabled = intent.getBooleanExtra(EXTRA_KEEP_ALIVE, false);
+        MyApplication.getInstance().getPreferenceManager().setKeepAliveEnabled(enabled);
+    }
+    
+    /**
+     * 导入通过ACTION_VIEW打开的ICS/CSV文件
+     */
+    private void handleImportIntent(Intent intent) {
+        if (intent == null || !Intent.ACTION_VIEW.equals(intent.getAction()) || intent.getData() == null) {
+            return;
+        }
+        Uri uri = intent.getData();
+        String mimeType = intent.getType() != null ? intent.getType() : getContentResolver().getType(uri);
+        TaskImporter.Format format = TaskImporter.Format.detect(mimeType, uri.getLastPathSegment());
+        if (format == null) {
+            Toast.makeText(this, "不支持的文件格式", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        Toast.makeText(this, "正在导入日历…", Toast.LENGTH_SHORT).show();
+        TaskImporter.getInstance().importAsync(new TaskImporter.StreamSource() {
+            @Override
+            public InputStream open() throws IOException {
+                InputStream input = getContentResolver().openInputStream(uri);
+                if (input == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                return input;
+            }
+            
+            @Override
+            public long length() {
+                try (Cursor cursor = getContentResolver().query(uri,
+                        new String[]{OpenableColumns.SIZE}, null, null, null)) {
+                    if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                        return cursor.getLong(0);
+                    }
+                } catch (Exception e) {
+                    // 部分提供方不支持查询大小
+                }
+                return -1;
+            }
+        }, null, result -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            String message = result.isSuccess()
+                    ? "已导入" + result.getImported() + "个任务"
+                    : "导入失败（已导入" + result.getImported() + "个）: " + result.getError();
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        });
+    }
+    
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // 前台时近期提醒由进程内时间轮触发
+        ReminderScheduler.getInstance().setForeground(true);
+    }
+    
+    @Override
+    protected void onStop() {
+        super.onStop();
+        ReminderScheduler.getInstance().setForeground(false);
+        // 进入后台时补一份一致的数据库快照，供系统备份使用
+        SnapshotManager.getInstance().createSnapshotIfStale(SNAPSHOT_MAX_AGE_MS);
+    }
+    
     @Override
     protected void onDestroy() {
         super.onDestroy();
         
         // 清除所有待处理的UI更新
         uiOptimizer.clearPendingUpdates();
+        touchRefreshPipeline.release();
+        
+        // 退出应用时保存一份性能报告，便于从现场设备取回
+        PerfMonitor perfMonitor = PerfMonitor.getInstance();
+        if (perfMonitor.isEnabled() && isFinishing()) {
+            perfMonitor.dumpToFile(this, null);
+        }
+        perfMonitor.detach(this);
         
         // 提交所有待处理的数据库写入
         dbOptimizer.flushPendingWrites();
         
         // 关闭数据库优化器
         dbOptimizer.shutdown();
+        
+        Log.d("MainActivity", "调度通道统计:\n" + AppSchedulers.getInstance().getStats());
     }
     
     @Override
@@ -358,8 +506,8 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             navController.navigate(R.id.tasksFragment);
         }
         
-        // 延迟刷新以确保UI已更新
-        new Handler().postDelayed(this::triggerLightRefresh, 100);
+        // 刷新调度器会在合并窗口后刷新，此时UI已更新
+        triggerLightRefresh();
     }
     
     private void updateButtonState(ImageButton button) {
@@ -399,16 +547,13 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                 uiOptimizer.scheduleDelayedUpdate(navigationPanel);
             }
         }
-        
-        lastRefreshTime = System.currentTimeMillis();
     }
     
-    // 保留原有的全局刷新方法，但改为使用UIPerformanceOptimizer
+    // 全局刷新，存在残影时由刷新调度器执行GC16全刷新
     private void triggerGlobalRefresh() {
         Log.d("MainActivity", "触发全局刷新");
         View rootView = getWindow().getDecorView().getRootView();
-        uiOptimizer.scheduleDelayedUpdate(rootView);
-        lastRefreshTime = System.currentTimeMillis();
+        EInkRefreshScheduler.getInstance().requestCleanup(rootView);
     }
     
     // 保留原有的完全刷新方法以备不时之需
@@ -424,11 +569,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                 // 确保只执行一次
                 rootView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
                 
-                // 强制重绘整个视图层次结构
+                // 强制重绘整个视图层次结构并全刷新
                 rootView.invalidate();
-                
-                // 记录最后刷新时间
-                lastRefreshTime = System.currentTimeMillis();
+                EInkRefreshScheduler.getInstance().requestFull(rootView);
             }
         });
         
@@ -1,51 +1,41 @@
 package com.stu.calender2;
 
 import android.app.Application;
-import android.animation.ValueAnimator;
-import android.app.ActivityManager;
-import android.content.Context;
 import android.content.Intent;
-import android.content.res.Resources;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
-import android.os.Process;
 import android.util.Log;
 import android.util.LruCache;
-import android.util.SparseIntArray;
 
 import androidx.appcompat.app.AppCompatDelegate;
-import androidx.room.Room;
 
 import com.stu.calender2.data.AppDatabase;
+import com.stu.calender2.reminder.ReminderScheduler;
 import com.stu.calender2.service.KeepAliveService;
+import com.stu.calender2.service.MaintenanceWorker;
+import com.stu.calender2.startup.AnimationInitializer;
+import com.stu.calender2.startup.AppStartup;
+import com.stu.calender2.startup.ColorCacheInitializer;
+import com.stu.calender2.startup.DatabaseInitializer;
+import com.stu.calender2.startup.EInkDriverInitializer;
+import com.stu.calender2.startup.FirstWindowInitializer;
+import com.stu.calender2.startup.PreferenceInitializer;
+import com.stu.calender2.utils.AppSchedulers;
 import com.stu.calender2.utils.EInkDisplayHelper;
+import com.stu.calender2.utils.PerfMonitor;
+import com.stu.calender2.utils.PowerBudget;
 import com.stu.calender2.utils.PreferenceManager;
+import com.stu.calender2.utils.StartupReadiness;
 
-import java.lang.reflect.Field;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.RejectedExecutionException;
 
 public class MyApplication extends Application {
     
     private static final String TAG = "MyApplication";
     private static MyApplication instance;
-    private AppDatabase database;
-    private PreferenceManager preferenceManager;
-    private ExecutorService executorService;
+    private AppStartup startup;
     private Handler mainHandler;
-    
-    // 使用LruCache代替SparseIntArray，提供更好的性能和内存控制
-    private LruCache<Integer, Integer> colorCache;
-    private boolean resourcesInitialized = false;
-    
-    // 添加线程优先级管理
-    private static final int THREAD_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND + 2; // 略高于后台，但低于前台
 
     @Override
     public void onCreate() {
@@ -55,106 +45,52 @@ public class MyApplication extends Application {
         instance = this;
         mainHandler = new Handler(Looper.getMainLooper());
         
-        // 初始化颜色缓存
-        int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
-        int cacheSize = maxMemory / 16; // 使用最大内存的1/16作为缓存大小
-        colorCache = new LruCache<Integer, Integer>(cacheSize);
-        
-        // 创建优化的线程池，使用优先级线程工厂
-        int corePoolSize = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
-        int maxPoolSize = Runtime.getRuntime().availableProcessors();
-        executorService = new ThreadPoolExecutor(
-            corePoolSize,            // 核心线程数
-            maxPoolSize,             // 最大线程数
-            60L,                     // 空闲线程保持时间
-            TimeUnit.SECONDS,        // 时间单位
-            new LinkedBlockingQueue<>(128), // 有界队列
-            new PriorityThreadFactory(THREAD_PRIORITY), // 自定义线程工厂
-            new ThreadPoolExecutor.DiscardOldestPolicy() // 拒绝策略
-        );
+        startup = new AppStartup(this).register(
+                new PreferenceInitializer(),
+                new AnimationInitializer(),
+                new DatabaseInitializer(),
+                new FirstWindowInitializer(),
+                new ColorCacheInitializer(),
+                new EInkDriverInitializer());
         
-        // 首先初始化必要组件
-        preferenceManager = new PreferenceManager(this);
+        // 主题、动画和性能监控开关必须在首个Activity创建前生效，只有这两项在主线程同步初始化
+        PreferenceManager preferences = startup.get(PreferenceInitializer.class);
+        AppCompatDelegate.setDefaultNightMode(preferences.getThemeMode());
+        PerfMonitor.getInstance().setEnabled(preferences.isPerfMonitorEnabled());
+        startup.get(AnimationInitializer.class);
         
-        // 设置应用主题（可能根据用户偏好设置）
-        int themeMode = preferenceManager.getThemeMode();
-        AppCompatDelegate.setDefaultNightMode(themeMode);
+        // 数据库、首屏预取、颜色缓存和水墨屏驱动探测在后台并行初始化，首次使用时若未完成则等待
+        startup.startInBackground(AppSchedulers.getInstance().io(),
+                FirstWindowInitializer.class,
+                ColorCacheInitializer.class,
+                EInkDriverInitializer.class);
         
-        // 延迟初始化数据库和其他组件
-        executorService.execute(() -> {
-            initializeDatabase();
-            Log.d(TAG, "数据库初始化完成");
-            
-            // 预缓存常用资源
-            mainHandler.post(this::initResources);
-        });
+        // 就绪后输出各初始化器耗时
+        StartupReadiness.getInstance().whenReady(() -> Log.d(TAG, startup.getTimingReport()));
         
-        // 禁用所有动画
-        disableAnimations();
+        // 设置下一次任务提醒，查询在后台进行
+        ReminderScheduler.getInstance().start();
         
-        // 确保服务运行 - 稍微延迟以优先完成UI初始化
-        mainHandler.postDelayed(this::ensureServiceRunning, 2000);
-        
-        Log.d(TAG, "应用初始化耗时: " + (System.currentTimeMillis() - startTime) + "ms");
-    }
-    
-    /**
-     * 优先级线程工厂，用于创建优先级较低的线程
-     */
-    private static class PriorityThreadFactory implements ThreadFactory {
-        private final int threadPriority;
-        private final AtomicInteger threadNumber = new AtomicInteger(1);
-        private final String namePrefix;
+        // 登记定期数据库维护，WorkManager初始化不占用主线程
+        AppSchedulers.getInstance().io().execute(() -> MaintenanceWorker.schedule(this));
         
-        PriorityThreadFactory(int threadPriority) {
-            this.threadPriority = threadPriority;
-            this.namePrefix = "AppThread-";
+        // 手动开启常驻服务时确保服务运行 - 稍微延迟以优先完成UI初始化
+        if (preferences.isKeepAliveEnabled()) {
+            mainHandler.postDelayed(this::ensureServiceRunning, 2000);
         }
         
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement()) {
-                @Override
-                public void run() {
-                    Process.setThreadPriority(threadPriority);
-                    super.run();
-                }
-            };
-            
-            // 将线程设置为后台线程，这样它就不会阻止应用程序退出
-            if (!thread.isDaemon()) {
-                thread.setDaemon(true);
-            }
-            return thread;
-        }
-    }
-    
-    /**
-     * 禁用动画
-     */
-    private void disableAnimations() {
-        try {
-            // 使用反射方式设置动画时长缩放
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
-                try {
-                    // 使用反射访问方法
-                    Field field = ValueAnimator.class.getDeclaredField("sDurationScale");
-                    field.setAccessible(true);
-                    field.setFloat(null, 0.0f);
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to set animation duration scale", e);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        Log.d(TAG, "应用初始化耗时: " + (System.currentTimeMillis() - startTime) + "ms");
     }
     
     /**
      * 确保保活服务运行
      */
     private void ensureServiceRunning() {
-        if (!isServiceRunning(KeepAliveService.class)) {
+        if (!getPreferenceManager().isKeepAliveEnabled()) {
+            return;
+        }
+        // 服务在本进程中运行，用服务自己维护的状态判断，不遍历系统的运行服务列表
+        if (!PowerBudget.getInstance().isServiceRunning()) {
             Intent serviceIntent = new Intent(this, KeepAliveService.class);
             try {
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -171,71 +107,9 @@ public class MyApplication extends Application {
         }
     }
     
-    /**
-     * 检查服务是否正在运行
-     */
-    private boolean isServiceRunning(Class<?> serviceClass) {
-        try {
-            ActivityManager manager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
-            if (manager != null) {
-                for (ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-                    if (serviceClass.getName().equals(service.service.getClassName())) {
-                        return true;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "检查服务状态出错", e);
-        }
-        return false;
-    }
-    
-    private synchronized void initializeDatabase() {
-        if (database == null) {
-            try {
-                long startTime = System.currentTimeMillis();
-                database = AppDatabase.getInstance(getApplicationContext());
-                Log.d(TAG, "数据库初始化耗时: " + (System.currentTimeMillis() - startTime) + "ms");
-            } catch (Exception e) {
-                Log.e(TAG, "数据库初始化失败", e);
-            }
-        }
-    }
-    
-    private void initResources() {
-        if (resourcesInitialized) return;
-        
-        try {
-            long startTime = System.currentTimeMillis();
-            Resources res = getResources();
-            
-            // 缓存常用颜色
-            int[] commonColors = new int[] {
-                R.color.white,
-                R.color.black,
-                R.color.colorPrimary,
-                R.color.colorAccent,
-                // 添加其他常用颜色资源ID
-            };
-            
-            // 批量加载颜色以减少获取调用
-            for (int colorId : commonColors) {
-                colorCache.put(colorId, res.getColor(colorId, null));
-            }
-            
-            // 预热资源管理器
-            res.getDisplayMetrics();
-            res.getConfiguration();
-            
-            resourcesInitialized = true;
-            Log.d(TAG, "资源预缓存完成，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
-        } catch (Exception e) {
-            Log.e(TAG, "资源初始化失败", e);
-        }
-    }
-    
     // 获取缓存的颜色资源
     public int getCachedColor(int colorResId) {
+        LruCache<Integer, Integer> colorCache = startup.get(ColorCacheInitializer.class);
         Integer cachedColor = colorCache.get(colorResId);
         if (cachedColor != null) {
             return cachedColor;
@@ -257,24 +131,32 @@ public class MyApplication extends Application {
     }
 
     public AppDatabase getDatabase() {
-        // 确保数据库已初始化
-        if (database == null) {
-            initializeDatabase();
-        }
-        return database;
+        // 后台尚未打开时在当前线程打开，正在打开时等待其完成
+        AppDatabase database = startup.get(DatabaseInitializer.class);
+        // 恢复快照后数据库会重新打开，此时以AppDatabase的当前实例为准
+        return database != null && database.isCurrent() ? database : AppDatabase.getInstance(this);
     }
 
     public PreferenceManager getPreferenceManager() {
-        return preferenceManager;
+        return startup.get(PreferenceInitializer.class);
     }
     
+    /**
+     * 应用初始化依赖图，可用于查询各组件的初始化耗时
+     */
+    public AppStartup getStartup() {
+        return startup;
+    }
+    
+    /**
+     * 在IO通道异步执行任务
+     */
     public void executeAsync(Runnable task) {
-        if (executorService.isShutdown()) {
+        try {
+            AppSchedulers.getInstance().io().execute(task);
+        } catch (RejectedExecutionException e) {
             Log.w(TAG, "线程池已关闭，无法执行任务");
-            return;
         }
-        
-        executorService.execute(task);
     }
     
     public void postToMainThread(Runnable task) {
@@ -305,8 +187,10 @@ public class MyApplication extends Application {
     public void onLowMemory() {
         super.onLowMemory();
         // 清除非必要缓存
-        colorCache.evictAll();
-        resourcesInitialized = false;
+        LruCache<Integer, Integer> colorCache = startup.peek(ColorCacheInitializer.class);
+        if (colorCache != null) {
+            colorCache.evictAll();
+        }
         Log.d(TAG, "内存不足，清除资源缓存");
         
         // 清理EInkDisplayHelper缓存
@@ -320,9 +204,12 @@ public class MyApplication extends Application {
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
         // 在内存压力大时释放一些资源
+        LruCache<Integer, Integer> colorCache = startup.peek(ColorCacheInitializer.class);
+        if (colorCache == null) {
+            return;
+        }
         if (level >= TRIM_MEMORY_MODERATE) {
             colorCache.evictAll();
-            resourcesInitialized = false;
             // 清理EInkDisplayHelper缓存
             EInkDisplayHelper.clearCache();
             Log.d(TAG, "内存压力大，清除资源缓存，级别: " + level);
@@ -338,25 +225,13 @@ public class MyApplication extends Application {
         super.onTerminate();
         Log.d(TAG, "应用终止，关闭线程池");
         
-        // 关闭线程池
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-            try {
-                // 等待任务完成
-                if (!executorService.awaitTermination(500, TimeUnit.MILLISECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-            }
-        }
+        // 关闭调度通道
+        AppSchedulers.getInstance().shutdown(500);
         
         // 清空所有缓存
+        LruCache<Integer, Integer> colorCache = startup.peek(ColorCacheInitializer.class);
         if (colorCache != null) {
             colorCache.evictAll();
         }
-        
-        // 断开database引用
-        database = null;
     }
 }
\ No newline at end of file
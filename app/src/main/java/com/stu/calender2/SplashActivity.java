@@ -3,81 +3,123 @@ package com.stu.calender2;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageView;
 
-import java.io.IOException;
-import java.io.InputStream;
+import com.stu.calender2.utils.EInkViewFactory;
+import com.stu.calender2.utils.SplashImageLoader;
+import com.stu.calender2.utils.StartupReadiness;
+
 import java.util.Random;
 
 public class SplashActivity extends AppCompatActivity {
 
-    private static final long SPLASH_DELAY = 3000; // 3秒
+    // 启动页最短展示时间，避免图片一闪而过
+    private static final long MIN_SPLASH_DURATION = 600;
+    // 启动页最长展示时间，就绪信号缺失时兜底跳转
+    private static final long MAX_SPLASH_DURATION = 3000;
     private static final String[] SPLASH_IMAGES = {"1.png", "2.png"}; // assets中的图片文件名
     
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable readyListener = this::onAppReady;
+    private final Runnable proceedRunnable = this::proceedToMain;
+    private ImageView splashImage;
+    private long shownAt;
+    private boolean navigated = false;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // 视图创建时即应用水墨屏设置，需在super.onCreate之前安装
+        EInkViewFactory.install(this);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
+        shownAt = SystemClock.uptimeMillis();
         
         // 获取随机图片并应用淡入动画
-        ImageView splashImage = findViewById(R.id.splash_image);
+        splashImage = findViewById(R.id.splash_image);
         Animation fadeIn = AnimationUtils.loadAnimation(this, R.anim.fade_in);
         splashImage.startAnimation(fadeIn);
         
         loadRandomImage(splashImage);
         
-        // 延迟3秒后跳转到主界面
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            // 应用淡出动画
-            Animation fadeOut = AnimationUtils.loadAnimation(this, R.anim.fade_out);
-            splashImage.startAnimation(fadeOut);
-            
-            fadeOut.setAnimationListener(new Animation.AnimationListener() {
-                @Override
-                public void onAnimationStart(Animation animation) {}
+        // 数据库打开且首屏数据预取完成后再跳转，超时兜底
+        StartupReadiness.getInstance().whenReady(readyListener);
+        handler.postDelayed(proceedRunnable, MAX_SPLASH_DURATION);
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        StartupReadiness.getInstance().removeListener(readyListener);
+        handler.removeCallbacksAndMessages(null);
+    }
+    
+    /**
+     * 应用就绪后，补足最短展示时间再跳转
+     */
+    private void onAppReady() {
+        long elapsed = SystemClock.uptimeMillis() - shownAt;
+        handler.removeCallbacks(proceedRunnable);
+        handler.postDelayed(proceedRunnable, Math.max(0, MIN_SPLASH_DURATION - elapsed));
+    }
+    
+    /**
+     * 淡出并跳转到主界面，只执行一次
+     */
+    private void proceedToMain() {
+        if (navigated || isFinishing()) {
+            return;
+        }
+        navigated = true;
+        handler.removeCallbacks(proceedRunnable);
+        
+        // 应用淡出动画
+        Animation fadeOut = AnimationUtils.loadAnimation(this, R.anim.fade_out);
+        fadeOut.setAnimationListener(new Animation.AnimationListener() {
+            @Override
+            public void onAnimationStart(Animation animation) {}
 
-                @Override
-                public void onAnimationEnd(Animation animation) {
-                    // 创建Intent跳转到MainActivity
-                    Intent intent = new Intent(SplashActivity.this, MainActivity.class);
-                    startActivity(intent);
-                    
-                    // 不使用默认的转场动画
-                    overridePendingTransition(R.anim.fade_in, R.anim.fade_out);
-                    
-                    // 结束当前Activity
-                    finish();
-                }
+            @Override
+            public void onAnimationEnd(Animation animation) {
+                // 创建Intent跳转到MainActivity
+                Intent intent = new Intent(SplashActivity.this, MainActivity.class);
+                // 转交启动参数（如perf_monitor）
+                intent.putExtras(getIntent());
+                startActivity(intent);
+                
+                // 不使用默认的转场动画
+                overridePendingTransition(R.anim.fade_in, R.anim.fade_out);
+                
+                // 结束当前Activity
+                finish();
+            }
 
-                @Override
-                public void onAnimationRepeat(Animation animation) {}
-            });
-        }, SPLASH_DELAY);
+            @Override
+            public void onAnimationRepeat(Animation animation) {}
+        });
+        splashImage.startAnimation(fadeOut);
     }
     
     /**
      * 加载随机图片
+     * 按屏幕尺寸降采样并缓存处理结果，解码不占用主线程
      */
     private void loadRandomImage(ImageView splashImage) {
         // 随机选择一张图片
         Random random = new Random();
         String randomImage = SPLASH_IMAGES[random.nextInt(SPLASH_IMAGES.length)];
         
-        try {
-            // 从assets加载图片
-            InputStream is = getAssets().open(randomImage);
-            Bitmap bitmap = BitmapFactory.decodeStream(is);
-            splashImage.setImageBitmap(bitmap);
-            is.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        SplashImageLoader.load(this, randomImage, metrics.widthPixels, metrics.heightPixels, bitmap -> {
+            if (!isDestroyed()) {
+                splashImage.setImageBitmap(bitmap);
+            }
+        });
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.stu.calender2;
 
+import android.app.AlertDialog;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
 import android.os.Bundle;
@@ -23,6 +24,7 @@ import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
 import androidx.navigation.fragment.NavHostFragment;
 
+import com.stu.calender2.data.Recurrence;
 import com.stu.calender2.data.Task;
 import com.stu.calender2.data.TaskRepository;
 import com.stu.calender2.viewmodel.TaskViewModel;
@@ -44,6 +46,7 @@ public class TaskDetailFragment extends Fragment {
     private TextView textStartTime;
     private TextView textEndTime;
     private EditText editLocation;
+    private RadioGroup radioGroupRepeat;
     private RadioGroup radioGroupImportance;
     private EditText editNote;
     private Button buttonSave;
@@ -57,6 +60,12 @@ public class TaskDetailFragment extends Fragment {
     // 当前任务ID（编辑模式下有效）
     private long taskId = -1;
     private boolean isEditMode = false;
+    
+    // 从日历点击重复任务的实例时传入的实例开始时间，否则为-1
+    private long occurrenceStart = -1;
+    
+    // 编辑模式下加载的原任务，保存时保留界面上没有的重复规则细节和排除列表
+    private Task loadedTask;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -81,6 +90,7 @@ public class TaskDetailFragment extends Fragment {
         // 获取传递的参数
         if (getArguments() != null) {
             taskId = getArguments().getLong("taskId", -1);
+            occurrenceStart = getArguments().getLong("occurrenceStart", -1);
             if (taskId != -1) {
                 // 编辑模式
                 isEditMode = true;
@@ -98,6 +108,7 @@ public class TaskDetailFragment extends Fragment {
         textStartTime = view.findViewById(R.id.text_start_time);
         textEndTime = view.findViewById(R.id.text_end_time);
         editLocation = view.findViewById(R.id.edit_task_location);
+        radioGroupRepeat = view.findViewById(R.id.radio_group_repeat);
         radioGroupImportance = view.findViewById(R.id.radio_group_importance);
         editNote = view.findViewById(R.id.edit_task_note);
         buttonSave = view.findViewById(R.id.button_save_task);
@@ -188,6 +199,8 @@ public class TaskDetailFragment extends Fragment {
             public void onTaskLoaded(Task task) {
                 if (task != null && isAdded()) {
                     requireActivity().runOnUiThread(() -> {
+                        loadedTask = task;
+                        
                         // 填充UI
                         editTitle.setText(task.getTitle());
                         editLocation.setText(task.getLocation());
@@ -198,6 +211,15 @@ public class TaskDetailFragment extends Fragment {
                         endCalendar.setTime(task.getEndTime());
                         updateTimeDisplay();
                         
+                        // 设置重复频率
+                        radioGroupRepeat.check(repeatButtonOf(task.getRecurrenceRule()));
+                        
+                        // 从某次实例打开时，界面显示和保存的都是整个系列
+                        if (isSeriesEdit()) {
+                            ((TextView) requireView().findViewById(R.id.text_start_time_label)).setText("系列开始时间");
+                            buttonSave.setText("保存整个系列");
+                        }
+                        
                         // 设置重要程度
                         int importance = task.getImportance();
                         switch (importance) {
@@ -257,11 +279,25 @@ public class TaskDetailFragment extends Fragment {
                 importance
         );
         
+        // 设置重复规则
+        Recurrence.Frequency frequency = selectedFrequency();
+        if (frequency != null) {
+            Recurrence existing = loadedTask != null ? Recurrence.parse(loadedTask.getRecurrenceRule()) : null;
+            if (existing != null && existing.getFrequency() == frequency) {
+                // 频率未变，保留导入的间隔、次数等细节；开始时间改变时已删除的实例随系列移动
+                task.setRecurrenceRule(loadedTask.getRecurrenceRule());
+                task.setRecurrenceExceptions(existing.moveExceptions(loadedTask.getRecurrenceExceptions(),
+                        loadedTask.getStartTime().getTime(), task.getStartTime().getTime()));
+            } else {
+                task.setRecurrenceRule(Recurrence.of(frequency).toRule());
+            }
+        }
+        
         if (isEditMode) {
             // 编辑模式 - 更新任务
             task.setId(taskId);
             taskViewModel.update(task);
-            Toast.makeText(requireContext(), "任务已更新", Toast.LENGTH_SHORT).show();
+            Toast.makeText(requireContext(), isSeriesEdit() ? "重复系列已更新" : "任务已更新", Toast.LENGTH_SHORT).show();
             navigateBack();
         } else {
             // 添加模式 - 插入任务
@@ -284,10 +320,74 @@ public class TaskDetailFragment extends Fragment {
         }
     }
 
+    /**
+     * 是否从重复任务的某次实例打开，此时修改作用于整个系列
+     */
+    private boolean isSeriesEdit() {
+        return isEditMode && occurrenceStart != -1 && loadedTask != null && loadedTask.isRecurring();
+    }
+
+    /**
+     * 界面选择的重复频率，不重复时返回null
+     */
+    private Recurrence.Frequency selectedFrequency() {
+        int checkedId = radioGroupRepeat.getCheckedRadioButtonId();
+        if (checkedId == R.id.radio_repeat_daily) {
+            return Recurrence.Frequency.DAILY;
+        } else if (checkedId == R.id.radio_repeat_weekly) {
+            return Recurrence.Frequency.WEEKLY;
+        } else if (checkedId == R.id.radio_repeat_monthly) {
+            return Recurrence.Frequency.MONTHLY;
+        }
+        return null;
+    }
+
+    /**
+     * 重复规则对应的单选按钮，无法识别的规则按频率显示
+     */
+    private static int repeatButtonOf(String rule) {
+        Recurrence recurrence = Recurrence.parse(rule);
+        if (recurrence == null) {
+            return R.id.radio_repeat_none;
+        }
+        switch (recurrence.getFrequency()) {
+            case DAILY:
+                return R.id.radio_repeat_daily;
+            case WEEKLY:
+                return R.id.radio_repeat_weekly;
+            default:
+                return R.id.radio_repeat_monthly;
+        }
+    }
+
     /**
      * 删除任务
      */
     private void deleteTask() {
+        if (isEditMode && occurrenceStart != -1 && loadedTask != null && loadedTask.isRecurring()) {
+            // 从日历打开的重复任务实例，可以只删除这一次
+            new AlertDialog.Builder(requireContext())
+                    .setTitle("删除重复任务")
+                    .setItems(new String[]{"仅删除此次", "删除整个系列"}, (dialog, which) -> {
+                        if (which == 0) {
+                            taskViewModel.deleteOccurrence(taskId, occurrenceStart);
+                            Toast.makeText(requireContext(), "已删除此次任务", Toast.LENGTH_SHORT).show();
+                            navigateBack();
+                        } else {
+                            deleteWholeTask();
+                        }
+                    })
+                    .setNegativeButton("取消", null)
+                    .show();
+            return;
+        }
+        deleteWholeTask();
+    }
+
+    /**
+     * 删除任务记录，重复任务会删除整个系列
+     */
+    private void deleteWholeTask() {
         if (isEditMode) {
             taskViewModel.getTaskById(taskId, new TaskRepository.OnTaskOperationListener() {
                 @Override
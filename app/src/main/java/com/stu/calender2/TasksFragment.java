@@ -2,9 +2,14 @@ package com.stu.calender2;
 
 import android.app.AlertDialog;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -19,6 +24,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.stu.calender2.adapter.TaskAdapter;
 import com.stu.calender2.data.Task;
+import com.stu.calender2.data.TaskWindow;
 import com.stu.calender2.viewmodel.TaskViewModel;
 
 /**
@@ -31,6 +37,17 @@ public class TasksFragment extends Fragment implements TaskAdapter.OnTaskClickLi
     private TaskViewModel taskViewModel;
     private FloatingActionButton fabAddTask;
     private FloatingActionButton fabSettings;
+    private EditText editSearch;
+    
+    // 输入停顿后才搜索；过时的查询会被取消，细化的输入在上次结果中过滤，防抖时间可以较短
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+    
+    // 当前搜索词，为空时显示任务窗口
+    private String searchText = "";
+    // 最近一次窗口更新，退出搜索时恢复
+    private TaskWindow.Update latestUpdate;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -48,15 +65,30 @@ public class TasksFragment extends Fragment implements TaskAdapter.OnTaskClickLi
         // 初始化UI
         recyclerView = view.findViewById(R.id.recycler_tasks);
         fabAddTask = view.findViewById(R.id.fab_add_task);
+        editSearch = view.findViewById(R.id.edit_search);
 
         // 设置RecyclerView
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         adapter = new TaskAdapter(requireContext(), this);
         recyclerView.setAdapter(adapter);
         
-        // 监听LiveData
-        taskViewModel.getAllTasks().observe(getViewLifecycleOwner(), tasks -> {
-            adapter.setTasks(tasks);
+        // 监听任务窗口，单个任务的变化以增量方式更新列表
+        taskViewModel.getAllTasksWindow().observe(getViewLifecycleOwner(), this::onWindowUpdate);
+        
+        // 搜索框
+        editSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                onSearchTextChanged(s.toString().trim());
+            }
         });
         
         // 添加任务按钮点击事件
@@ -67,6 +99,58 @@ public class TasksFragment extends Fragment implements TaskAdapter.OnTaskClickLi
 
     }
     
+    @Override
+    public void onDestroyView() {
+        searchHandler.removeCallbacks(searchRunnable);
+        taskViewModel.cancelSearch();
+        super.onDestroyView();
+    }
+    
+    private void onWindowUpdate(TaskWindow.Update update) {
+        latestUpdate = update;
+        if (searchText.isEmpty()) {
+            adapter.applyUpdate(update);
+        } else {
+            // 搜索期间任务有变化，重新搜索以刷新结果
+            runSearch();
+        }
+    }
+    
+    private void onSearchTextChanged(String text) {
+        if (text.equals(searchText)) {
+            return;
+        }
+        searchText = text;
+        searchHandler.removeCallbacks(searchRunnable);
+        if (text.isEmpty()) {
+            // 退出搜索，恢复完整列表
+            taskViewModel.cancelSearch();
+            if (latestUpdate != null) {
+                adapter.applyUpdate(latestUpdate);
+            }
+            return;
+        }
+        searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+    }
+    
+    private void runSearch() {
+        String text = searchText;
+        if (text.isEmpty()) {
+            return;
+        }
+        taskViewModel.search(text, (query, tasks) -> {
+            if (!isAdded()) {
+                return;
+            }
+            requireActivity().runOnUiThread(() -> {
+                // 忽略已过时的查询结果
+                if (isAdded() && query.equals(searchText)) {
+                    adapter.showTasks(tasks);
+                }
+            });
+        });
+    }
+    
     /**
      * 显示应用信息
      */
@@ -97,11 +181,12 @@ public class TasksFragment extends Fragment implements TaskAdapter.OnTaskClickLi
 
     @Override
     public void onTaskToggleCompletion(Task task) {
-        // 修改任务完成状态
-        task.setCompleted(!task.isCompleted());
-        taskViewModel.update(task);
+        // 修改任务完成状态，列表中的对象保持不变，由窗口的变更送达新状态
+        Task updated = new Task(task);
+        updated.setCompleted(!task.isCompleted());
+        taskViewModel.update(updated);
         
-        if (task.isCompleted()) {
+        if (updated.isCompleted()) {
             Toast.makeText(requireContext(), "任务已完成", Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(requireContext(), "任务已恢复", Toast.LENGTH_SHORT).show();
@@ -20,6 +20,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.stu.calender2.MyApplication;
 import com.stu.calender2.R;
 import com.stu.calender2.data.Task;
+import com.stu.calender2.data.TaskWindow;
 import com.stu.calender2.utils.TaskDiffCallback;
 
 import java.text.SimpleDateFormat;
@@ -49,6 +50,9 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.ViewHolder> {
     private static final int VIEW_TYPE_COMPLETED = 1;
     private final SparseArray<View> layoutCache = new SparseArray<>(2);
     
+    // 已应用的任务窗口版本，-1表示尚未应用
+    private long appliedVersion = -1;
+    
     // 日期格式化器缓存
     private final SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy年MM月dd日 HH:mm", Locale.getDefault());
 
@@ -262,6 +266,45 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.ViewHolder> {
         return taskList.size();
     }
 
+    /**
+     * 应用任务窗口的更新：版本连续时按操作序列逐项通知，否则按完整列表比较
+     */
+    public void applyUpdate(TaskWindow.Update update) {
+        if (!update.canApplyOn(appliedVersion)) {
+            setTasks(update.getTasks());
+            appliedVersion = update.getVersion();
+            return;
+        }
+
+        taskList.clear();
+        taskList.addAll(update.getTasks());
+        for (TaskWindow.Op op : update.getOps()) {
+            switch (op.kind) {
+                case INSERT:
+                    notifyItemInserted(op.position);
+                    break;
+                case REMOVE:
+                    notifyItemRemoved(op.position);
+                    break;
+                case CHANGE:
+                    notifyItemChanged(op.position);
+                    break;
+                case MOVE:
+                    notifyItemMoved(op.position, op.toPosition);
+                    break;
+            }
+        }
+        appliedVersion = update.getVersion();
+    }
+
+    /**
+     * 显示不来自任务窗口的列表（如搜索结果），之后的窗口更新按完整列表重绘
+     */
+    public void showTasks(List<Task> tasks) {
+        setTasks(tasks);
+        appliedVersion = -1;
+    }
+
     @SuppressLint("NotifyDataSetChanged")
     public void setTasks(List<Task> tasks) {
         if (tasks == null) {
@@ -1,39 +1,143 @@
 package com.stu.calender2.data;
 
 import android.content.Context;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PerfMonitor;
+
+import java.io.File;
+import java.io.IOException;
+
 /**
  * 应用数据库类
  */
-@Database(entities = {Task.class}, version = 1, exportSchema = false)
+@Database(entities = {Task.class, TaskFts.class, ArchivedTask.class, ArchivedTaskFts.class}, version = AppDatabase.VERSION, exportSchema = false)
 @TypeConverters({DateConverter.class})
 public abstract class AppDatabase extends RoomDatabase {
     
+    private static final String TAG = "AppDatabase";
+    
+    // 数据库文件名
+    public static final String DATABASE_NAME = "app_database";
+    
+    // 数据库版本，恢复快照时用于检查快照是否来自更新的版本
+    public static final int VERSION = 6;
+    
     // 单例模式
     private static volatile AppDatabase instance;
     
+    // 1 -> 2：为startTime添加索引，避免范围查询和导出时全表扫描再排序
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_startTime` ON `tasks` (`startTime`)");
+        }
+    };
+    
+    // 2 -> 3：重复任务的规则、排除列表和系列结束时间，已有任务都是不重复的，新列为空即可
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `tasks` ADD COLUMN `recurrenceRule` TEXT");
+            db.execSQL("ALTER TABLE `tasks` ADD COLUMN `recurrenceExceptions` TEXT");
+            db.execSQL("ALTER TABLE `tasks` ADD COLUMN `recurrenceEnd` INTEGER");
+        }
+    };
+    
+    // 3 -> 4：全文索引及同步触发器，与Room为TaskFts生成的语句一致，建表后从tasks重建索引
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `tasks_fts` USING FTS4("
+                    + "`title` TEXT, `note` TEXT, `location` TEXT, tokenize=icu `zh_CN`, content=`tasks`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `tasks` BEGIN DELETE FROM `tasks_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `tasks` BEGIN DELETE FROM `tasks_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `tasks` BEGIN INSERT INTO `tasks_fts`(`docid`, `title`, `note`, `location`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`note`, NEW.`location`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `tasks` BEGIN INSERT INTO `tasks_fts`(`docid`, `title`, `note`, `location`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`note`, NEW.`location`); END");
+            db.execSQL("INSERT INTO `tasks_fts`(`tasks_fts`) VALUES('rebuild')");
+        }
+    };
+    
+    // 4 -> 5：归档表，列与tasks一致，与Room为ArchivedTask生成的语句一致
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `tasks_archive` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `title` TEXT, `startTime` INTEGER, "
+                    + "`endTime` INTEGER, `location` TEXT, `note` TEXT, `importance` INTEGER NOT NULL, "
+                    + "`completed` INTEGER NOT NULL, `recurrenceRule` TEXT, `recurrenceExceptions` TEXT, "
+                    + "`recurrenceEnd` INTEGER)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_archive_startTime` ON `tasks_archive` (`startTime`)");
+        }
+    };
+    
+    // 5 -> 6：归档表的全文索引及同步触发器，与Room为ArchivedTaskFts生成的语句一致，建表后从归档重建索引
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `tasks_archive_fts` USING FTS4("
+                    + "`title` TEXT, `note` TEXT, `location` TEXT, tokenize=icu `zh_CN`, content=`tasks_archive`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_archive_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `tasks_archive` BEGIN DELETE FROM `tasks_archive_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_archive_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `tasks_archive` BEGIN DELETE FROM `tasks_archive_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_archive_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `tasks_archive` BEGIN INSERT INTO `tasks_archive_fts`(`docid`, `title`, `note`, `location`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`note`, NEW.`location`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tasks_archive_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `tasks_archive` BEGIN INSERT INTO `tasks_archive_fts`(`docid`, `title`, `note`, `location`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`note`, NEW.`location`); END");
+            db.execSQL("INSERT INTO `tasks_archive_fts`(`tasks_archive_fts`) VALUES('rebuild')");
+        }
+    };
+    
     // 获取DAO
     public abstract TaskDao taskDao();
     
-    // 获取数据库实例
-    public static synchronized AppDatabase getInstance(Context context) {
-        if (instance == null) {
-            instance = Room.databaseBuilder(
+    // 获取数据库实例，使用双重检查锁定，已打开时不再加锁
+    public static AppDatabase getInstance(Context context) {
+        AppDatabase database = instance;
+        if (database != null) {
+            return database;
+        }
+        synchronized (AppDatabase.class) {
+            if (instance == null) {
+                instance = build(context);
+            }
+            return instance;
+        }
+    }
+    
+    private static AppDatabase build(Context context) {
+        return Room.databaseBuilder(
                     context.getApplicationContext(),
                     AppDatabase.class,
-                    "app_database")
+                    DATABASE_NAME)
+                    // 已知版本走迁移保留数据，未知版本才重建
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6)
                     .fallbackToDestructiveMigration()
                     // 启用WAL模式，提高写入性能
                     .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
                     // 允许主线程查询（仅用于简单查询，复杂操作仍应使用异步）
                     .allowMainThreadQueries()
+                    // 查询和事务使用统一调度通道，不再创建Room自己的线程池
+                    .setQueryExecutor(PerfMonitor.getInstance().wrapQueryExecutor(AppSchedulers.getInstance().io()))
+                    .setTransactionExecutor(AppSchedulers.getInstance().dbWrite())
                     // 设置数据库升级的回调
                     .addCallback(new Callback() {
                         @Override
@@ -47,8 +151,47 @@ public abstract class AppDatabase extends RoomDatabase {
                         }
                     })
                     .build();
+    }
+    
+    /**
+     * 是否仍是当前使用的实例，恢复快照后旧实例已关闭
+     */
+    public boolean isCurrent() {
+        return instance == this;
+    }
+    
+    /**
+     * 用快照文件替换数据库文件并重新打开数据库，不需要重启进程
+     * 旧实例被关闭，之后getInstance返回新实例；快照版本较旧时按迁移升级。
+     * 应在dbWrite通道调用，使替换期间没有其他写入
+     * @param replacement 与数据库目录在同一文件系统上的完整数据库文件，成功后被移走
+     */
+    public static void replaceDatabaseFile(Context context, File replacement) throws IOException {
+        synchronized (AppDatabase.class) {
+            AppDatabase old = instance;
+            instance = null;
+            if (old != null) {
+                // 关闭时会执行检查点并删除WAL
+                old.close();
+            }
+            
+            File target = context.getDatabasePath(DATABASE_NAME);
+            // 残留的WAL属于旧文件，与新文件一起打开会损坏数据
+            for (String suffix : new String[]{"-wal", "-shm", "-journal"}) {
+                File sidecar = new File(target.getPath() + suffix);
+                if (sidecar.exists() && !sidecar.delete()) {
+                    Log.w(TAG, "无法删除: " + sidecar);
+                }
+            }
+            // 同一文件系统内rename是原子的，任何时刻数据库文件要么是旧的要么是新的
+            if (!replacement.renameTo(target)) {
+                throw new IOException("无法替换数据库文件: " + target);
+            }
+            
+            instance = build(context);
+            // 立即打开，让迁移在这里执行而不是在下一次查询时
+            instance.getOpenHelper().getWritableDatabase();
         }
-        return instance;
     }
     
     /**
@@ -0,0 +1,19 @@
+package com.stu.calender2.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+
+import java.util.Date;
+
+/**
+ * 归档任务，与tasks列结构相同的冷数据表
+ * 完成已久的不重复任务由维护任务移入该表，日常的日期范围查询只访问tasks。
+ * 查询归档时直接返回Task，该类只用于让Room创建和校验表结构
+ */
+@Entity(tableName = "tasks_archive", indices = {@Index("startTime")})
+public class ArchivedTask extends Task {
+
+    public ArchivedTask(String title, Date startTime, Date endTime, String location, String note, int importance) {
+        super(title, startTime, endTime, location, note, importance);
+    }
+}
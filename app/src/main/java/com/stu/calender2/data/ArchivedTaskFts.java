@@ -0,0 +1,56 @@
+package com.stu.calender2.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * 归档任务的全文索引，外部内容表为tasks_archive
+ * 与{@link TaskFts}的列和分词器相同，任务移入归档后仍可搜索
+ */
+@Fts4(contentEntity = ArchivedTask.class, tokenizer = FtsOptions.TOKENIZER_ICU, tokenizerArgs = {"zh_CN"})
+@Entity(tableName = "tasks_archive_fts")
+public class ArchivedTaskFts {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowid;
+
+    // 列顺序决定matchinfo中的列序号，与TaskSearch的权重一致
+    private String title;
+    private String note;
+    private String location;
+
+    public long getRowid() {
+        return rowid;
+    }
+
+    public void setRowid(long rowid) {
+        this.rowid = rowid;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
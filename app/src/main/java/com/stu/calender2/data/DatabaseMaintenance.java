@@ -0,0 +1,199 @@
+package com.stu.calender2.data;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.utils.PerfMonitor;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 数据库维护，由MaintenanceWorker在充电且空闲时执行
+ * 依次为：归档完成已久的任务、PRAGMA optimize（按需ANALYZE）、
+ * 空闲页较多时VACUUM、截断WAL，记录每一步的耗时；每一步开始前检查是否已取消
+ */
+public final class DatabaseMaintenance {
+    private static final String TAG = "DatabaseMaintenance";
+
+    // 开始时间早于该月数的已完成任务移入归档表
+    public static final int ARCHIVE_AFTER_MONTHS = 6;
+
+    // 空闲页超过总页数的该比例时VACUUM，归档删除大量行后回收空间
+    private static final double VACUUM_FREE_RATIO = 0.25;
+
+    /**
+     * 一次维护的结果
+     */
+    public static final class Report {
+        private final Map<String, Long> stepMs;
+        private final int archived;
+        private final boolean cancelled;
+        private final String error;
+
+        Report(Map<String, Long> stepMs, int archived, boolean cancelled, String error) {
+            this.stepMs = Collections.unmodifiableMap(stepMs);
+            this.archived = archived;
+            this.cancelled = cancelled;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * 是否在某一步开始前被取消，已完成的步骤仍然有效
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 各步骤耗时，按执行顺序；跳过的步骤不在其中
+         */
+        public Map<String, Long> getStepMs() {
+            return stepMs;
+        }
+
+        /**
+         * 移入归档表的任务数
+         */
+        public int getArchived() {
+            return archived;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "归档%d个任务", archived));
+            for (Map.Entry<String, Long> step : stepMs.entrySet()) {
+                sb.append("，").append(step.getKey()).append(' ').append(step.getValue()).append("ms");
+            }
+            if (error != null) {
+                sb.append("，错误: ").append(error);
+            }
+            return sb.toString();
+        }
+    }
+
+    private DatabaseMaintenance() {
+        // 工具类
+    }
+
+    /**
+     * 维护步骤
+     */
+    private interface Step {
+        void run();
+    }
+
+    /**
+     * 取消检查，例如WorkManager停止了任务或等待超时
+     */
+    public interface Cancellation {
+        boolean isCancelled();
+    }
+
+    /**
+     * 在步骤之间发现已取消时抛出，中止剩余步骤
+     */
+    private static final class CancelledException extends RuntimeException {
+        CancelledException(String step) {
+            super("在" + step + "之前取消");
+        }
+    }
+
+    /**
+     * 执行一次维护，应在dbWrite通道调用，与其他写入串行
+     * @param cancellation 每一步开始前检查，已取消时跳过剩余步骤
+     */
+    public static Report runBlocking(Cancellation cancellation) {
+        Map<String, Long> stepMs = new LinkedHashMap<>();
+        int[] archived = new int[1];
+        boolean cancelled = false;
+        String error = null;
+        try {
+            AppDatabase database = MyApplication.getInstance().getDatabase();
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+            runStep("archive", stepMs, cancellation, () -> archived[0] = archive(database));
+            runStep("optimize", stepMs, cancellation, () -> db.query("PRAGMA optimize").close());
+            if (shouldVacuum(db)) {
+                runStep("vacuum", stepMs, cancellation, () -> db.execSQL("VACUUM"));
+            }
+            runStep("checkpoint", stepMs, cancellation, () -> db.query("PRAGMA wal_checkpoint(TRUNCATE)").close());
+        } catch (CancelledException e) {
+            Log.i(TAG, "数据库维护已取消: " + e.getMessage());
+            cancelled = true;
+            error = "已取消";
+        } catch (RuntimeException e) {
+            Log.e(TAG, "数据库维护失败", e);
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        Report report = new Report(stepMs, archived[0], cancelled, error);
+        Log.i(TAG, "数据库维护: " + report);
+        return report;
+    }
+
+    /**
+     * 未取消时执行一步并记录耗时，性能监控开启时同时记入区段统计
+     */
+    private static void runStep(String name, Map<String, Long> stepMs, Cancellation cancellation, Step step) {
+        if (cancellation.isCancelled()) {
+            throw new CancelledException(name);
+        }
+        String section = "maintenance:" + name;
+        long start = System.nanoTime();
+        long traceStart = PerfMonitor.getInstance().beginSection(section);
+        try {
+            step.run();
+        } finally {
+            PerfMonitor.getInstance().endSection(section, traceStart);
+        }
+        stepMs.put(name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 把完成已久的不重复任务移入归档表，复制和删除在同一事务中
+     * 重复任务的主记录仍有未来的实例，不归档
+     */
+    private static int archive(AppDatabase database) {
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.MONTH, -ARCHIVE_AFTER_MONTHS);
+        long cutoffMillis = cutoff.getTimeInMillis();
+        TaskDao dao = database.taskDao();
+        int[] archived = new int[1];
+        database.runInTransaction(() -> {
+            dao.copyArchivableToArchive(cutoffMillis);
+            archived[0] = dao.deleteArchivable(cutoffMillis);
+        });
+        if (archived[0] > 0) {
+            // 已打开的窗口和缓存重新加载
+            TaskChangeBus.getInstance().publishBulk();
+        }
+        return archived[0];
+    }
+
+    private static boolean shouldVacuum(SupportSQLiteDatabase db) {
+        long pages = pragmaLong(db, "PRAGMA page_count");
+        long free = pragmaLong(db, "PRAGMA freelist_count");
+        return free > 0 && free >= pages * VACUUM_FREE_RATIO;
+    }
+
+    private static long pragmaLong(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query(pragma)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
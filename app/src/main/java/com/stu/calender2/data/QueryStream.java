@@ -0,0 +1,294 @@
+package com.stu.calender2.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PerfMonitor;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 数据库查询流
+ * 由触发器（Room表失效通知或任务变更总线）驱动，在后台重新查询，并在交给界面前依次经过各个操作符：
+ * debounce合并短时间内的连续写入，distinctUntilChanged按结果哈希丢弃未变化的结果，
+ * map在后台线程把查询结果转换为界面模型。
+ * 流本身只是描述，每次toLiveData生成独立的订阅；LiveData变为非活跃时注销监听并取消
+ * 尚未开始的查询，已在执行的查询结果由LiveData保留到重新活跃
+ */
+public final class QueryStream<T> {
+
+    /**
+     * 重新查询的触发源
+     */
+    public interface Trigger {
+        /**
+         * 开始监听，需要重新查询时在任意线程调用onChange
+         */
+        Registration register(Runnable onChange);
+    }
+
+    /**
+     * 触发器的一次注册，订阅变为非活跃时注销
+     */
+    public interface Registration {
+        void unregister();
+    }
+
+    /**
+     * 在后台线程执行的查询
+     */
+    public interface Source<T> {
+        T load();
+    }
+
+    /**
+     * 在后台线程执行的结果转换
+     */
+    public interface Mapper<T, R> {
+        R apply(T value);
+    }
+
+    /**
+     * 结果内容哈希，用于判断结果是否变化
+     */
+    public interface Hasher<T> {
+        long hash(T value);
+    }
+
+    /**
+     * 一次订阅中的处理阶段，返回SKIP表示本次结果不向下游传递
+     */
+    private interface Stage<T> {
+        T pull();
+    }
+
+    /**
+     * 为每次订阅创建独立的处理阶段，使distinctUntilChanged等有状态操作符互不干扰
+     */
+    private interface StageFactory<T> {
+        Stage<T> create();
+    }
+
+    private static final Object SKIP = new Object();
+
+    // 监听的注册和注销必须有序且不能在主线程执行
+    private static volatile Executor trackerExecutor;
+
+    private final Trigger trigger;
+    private final StageFactory<T> stages;
+    private final long debounceMs;
+
+    private QueryStream(Trigger trigger, StageFactory<T> stages, long debounceMs) {
+        this.trigger = trigger;
+        this.stages = stages;
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * 创建查询流，触发器触发时重新执行查询
+     * @param source 查询，在io通道执行，不应返回null
+     */
+    public static <T> QueryStream<T> from(Trigger trigger, Source<T> source) {
+        return new QueryStream<>(trigger, () -> source::load, 0);
+    }
+
+    /**
+     * 创建查询流，指定表发生变化时重新执行查询
+     * @param source 查询，在io通道执行，不应返回null
+     * @param tables 查询涉及的表
+     */
+    public static <T> QueryStream<T> from(RoomDatabase database, Source<T> source, String... tables) {
+        return from(tableTrigger(database, tables), source);
+    }
+
+    /**
+     * Room表失效触发器，表中任何写入都会触发
+     */
+    public static Trigger tableTrigger(RoomDatabase database, String... tables) {
+        if (tables.length == 0) {
+            throw new IllegalArgumentException("至少需要监听一张表");
+        }
+        String[] rest = new String[tables.length - 1];
+        System.arraycopy(tables, 1, rest, 0, rest.length);
+        return onChange -> {
+            InvalidationTracker.Observer observer = new InvalidationTracker.Observer(tables[0], rest) {
+                @Override
+                public void onInvalidated(@NonNull Set<String> invalidated) {
+                    onChange.run();
+                }
+            };
+            getTrackerExecutor().execute(() ->
+                    database.getInvalidationTracker().addObserver(observer));
+            return () -> getTrackerExecutor().execute(() ->
+                    database.getInvalidationTracker().removeObserver(observer));
+        };
+    }
+
+    /**
+     * 触发后等待指定时间，期间的后续触发合并为一次查询。首次查询不等待
+     */
+    public QueryStream<T> debounce(long ms) {
+        return new QueryStream<>(trigger, stages, ms);
+    }
+
+    /**
+     * 结果哈希与上一次传递的结果相同时不再传递
+     */
+    public QueryStream<T> distinctUntilChanged(Hasher<T> hasher) {
+        StageFactory<T> upstream = stages;
+        return new QueryStream<>(trigger, () -> {
+            Stage<T> stage = upstream.create();
+            return new Stage<T>() {
+                private boolean hasLast;
+                private long lastHash;
+
+                @Override
+                public T pull() {
+                    T value = stage.pull();
+                    if (value == SKIP) {
+                        return value;
+                    }
+                    long hash = hasher.hash(value);
+                    if (hasLast && hash == lastHash) {
+                        return skip();
+                    }
+                    hasLast = true;
+                    lastHash = hash;
+                    return value;
+                }
+            };
+        }, debounceMs);
+    }
+
+    /**
+     * 在后台线程转换结果，未变化而被跳过的结果不会转换
+     */
+    public <R> QueryStream<R> map(Mapper<T, R> mapper) {
+        StageFactory<T> upstream = stages;
+        return new QueryStream<>(trigger, () -> {
+            Stage<T> stage = upstream.create();
+            return () -> {
+                T value = stage.pull();
+                return value == SKIP ? QueryStream.<R>skip() : mapper.apply(value);
+            };
+        }, debounceMs);
+    }
+
+    /**
+     * 生成一个新的订阅，活跃期间监听触发器
+     */
+    public LiveData<T> toLiveData() {
+        return new StreamLiveData<>(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T skip() {
+        return (T) SKIP;
+    }
+
+    private static Executor getTrackerExecutor() {
+        if (trackerExecutor == null) {
+            synchronized (QueryStream.class) {
+                if (trackerExecutor == null) {
+                    AppSchedulers schedulers = AppSchedulers.getInstance();
+                    trackerExecutor = schedulers.newSerialExecutor(schedulers.io());
+                }
+            }
+        }
+        return trackerExecutor;
+    }
+
+    /**
+     * 单个订阅：活跃时注册触发器，同一时间只执行一次查询，
+     * 查询期间再次触发则在完成后补查一次
+     */
+    private static final class StreamLiveData<T> extends LiveData<T> {
+        private final QueryStream<T> stream;
+        private final Stage<T> stage;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final Executor queryExecutor = AppSchedulers.getInstance().io();
+
+        private final AtomicBoolean computing = new AtomicBoolean(false);
+        private final AtomicBoolean invalid = new AtomicBoolean(true);
+
+        private volatile boolean active;
+
+        private Registration registration;
+
+        private final Runnable debouncedRefresh = this::refresh;
+
+        private final Runnable computeRunnable = this::compute;
+
+        StreamLiveData(QueryStream<T> stream) {
+            this.stream = stream;
+            this.stage = stream.stages.create();
+        }
+
+        @Override
+        protected void onActive() {
+            active = true;
+            registration = stream.trigger.register(this::onTriggered);
+            // 重新活跃时查询一次，未变化的结果会被distinctUntilChanged过滤
+            invalid.set(true);
+            refresh();
+        }
+
+        @Override
+        protected void onInactive() {
+            active = false;
+            mainHandler.removeCallbacks(debouncedRefresh);
+            if (registration != null) {
+                registration.unregister();
+                registration = null;
+            }
+        }
+
+        private void onTriggered() {
+            invalid.set(true);
+            if (stream.debounceMs <= 0) {
+                refresh();
+                return;
+            }
+            mainHandler.post(() -> {
+                if (!active) return;
+                mainHandler.removeCallbacks(debouncedRefresh);
+                mainHandler.postDelayed(debouncedRefresh, stream.debounceMs);
+            });
+        }
+
+        private void refresh() {
+            if (active) {
+                queryExecutor.execute(computeRunnable);
+            }
+        }
+
+        private void compute() {
+            // 与Room的ComputableLiveData相同的模式：只有一个线程在计算，期间的失效由它补查
+            do {
+                if (!computing.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    while (active && invalid.compareAndSet(true, false)) {
+                        long start = PerfMonitor.getInstance().beginSection("db:stream");
+                        T value = stage.pull();
+                        PerfMonitor.getInstance().endQuery("db:stream", start);
+                        if (value != SKIP) {
+                            postValue(value);
+                        }
+                    }
+                } finally {
+                    computing.set(false);
+                }
+            } while (invalid.get() && active);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.stu.calender2.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 重复规则，支持RFC 5545 RRULE的一个子集：
+ * FREQ=DAILY|WEEKLY|MONTHLY，INTERVAL，COUNT，UNTIL，以及WEEKLY的BYDAY。
+ * 重复任务只存一条主记录，展开时从请求窗口附近的周期直接开始计算，
+ * 不从第一次重复逐个推算，展开代价只与窗口内的重复次数有关，与系列持续多久无关
+ */
+public final class Recurrence {
+
+    /**
+     * 重复频率
+     */
+    public enum Frequency {
+        DAILY,
+        WEEKLY,
+        MONTHLY
+    }
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    // 单次展开最多遍历的周期数，防止无法产生实例的规则造成死循环
+    private static final int MAX_PERIODS = 10000;
+
+    // RRULE中的星期缩写，顺序与Calendar.SUNDAY(1)到SATURDAY(7)一致
+    private static final String[] DAY_CODES = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+
+    private final Frequency frequency;
+    private final int interval;
+    // 0表示不限次数
+    private final int count;
+    // Long.MAX_VALUE表示不限结束时间
+    private final long until;
+    // WEEKLY的星期几（Calendar常量），按从周一开始的顺序排列；为空表示与开始时间同一天
+    private final int[] byDay;
+
+    private Recurrence(Frequency frequency, int interval, int count, long until, int[] byDay) {
+        this.frequency = frequency;
+        this.interval = Math.max(1, interval);
+        this.count = Math.max(0, count);
+        this.until = until;
+        this.byDay = byDay;
+    }
+
+    /**
+     * 指定频率、间隔为1、不限次数的规则
+     */
+    public static Recurrence of(Frequency frequency) {
+        return new Recurrence(frequency, 1, 0, Long.MAX_VALUE, new int[0]);
+    }
+
+    /**
+     * 解析RRULE，不支持或格式错误时返回null
+     */
+    public static Recurrence parse(String rule) {
+        if (rule == null || rule.isEmpty()) {
+            return null;
+        }
+        String text = rule.trim();
+        if (text.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            text = text.substring(6);
+        }
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        long until = Long.MAX_VALUE;
+        int[] byDay = new int[0];
+        try {
+            for (String part : text.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq <= 0) {
+                    continue;
+                }
+                String key = part.substring(0, eq).trim().toUpperCase(Locale.ROOT);
+                String value = part.substring(eq + 1).trim().toUpperCase(Locale.ROOT);
+                switch (key) {
+                    case "FREQ":
+                        frequency = Frequency.valueOf(value);
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(value);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(value);
+                        break;
+                    case "UNTIL":
+                        until = parseUntil(value);
+                        break;
+                    case "BYDAY":
+                        byDay = parseByDay(value);
+                        if (byDay == null) {
+                            return null;
+                        }
+                        break;
+                    case "WKST":
+                        // 周从周一开始，与默认值一致
+                        break;
+                    default:
+                        // 其他BYxxx部分会改变实例集合，不能忽略
+                        return null;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (frequency == null || interval < 1 || count < 0) {
+            return null;
+        }
+        if (byDay.length > 0 && frequency != Frequency.WEEKLY) {
+            return null;
+        }
+        return new Recurrence(frequency, interval, count, until, byDay);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * 转换为RRULE字符串（不含RRULE:前缀）
+     */
+    public String toRule() {
+        StringBuilder sb = new StringBuilder("FREQ=").append(frequency.name());
+        if (interval > 1) {
+            sb.append(";INTERVAL=").append(interval);
+        }
+        if (count > 0) {
+            sb.append(";COUNT=").append(count);
+        }
+        if (until != Long.MAX_VALUE) {
+            Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            utc.setTimeInMillis(until);
+            sb.append(";UNTIL=").append(String.format(Locale.US, "%04d%02d%02dT%02d%02d%02dZ",
+                    utc.get(Calendar.YEAR), utc.get(Calendar.MONTH) + 1, utc.get(Calendar.DAY_OF_MONTH),
+                    utc.get(Calendar.HOUR_OF_DAY), utc.get(Calendar.MINUTE), utc.get(Calendar.SECOND)));
+        }
+        if (byDay.length > 0) {
+            sb.append(";BYDAY=");
+            for (int i = 0; i < byDay.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(DAY_CODES[byDay[i] - 1]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 计算开始时间落在[windowStart, windowEnd]内的所有实例
+     * @param seriesStart 第一次重复的开始时间（主记录的startTime）
+     * @param exceptions 排除的实例开始时间，升序
+     * @return 实例开始时间，升序
+     */
+    public long[] expand(long seriesStart, long[] exceptions, long windowStart, long windowEnd) {
+        if (windowEnd < seriesStart || windowEnd < windowStart) {
+            return new long[0];
+        }
+        Calendar calendar = Calendar.getInstance();
+        long[] period = new long[7];
+        long[] result = new long[8];
+        int size = 0;
+
+        int startPeriod = firstPeriodNear(calendar, seriesStart, windowStart);
+        int index = occurrencesBefore(calendar, seriesStart, startPeriod, period);
+        for (int k = startPeriod; k < startPeriod + MAX_PERIODS; k++) {
+            int n = periodOccurrences(calendar, seriesStart, k, period);
+            for (int i = 0; i < n; i++) {
+                long start = period[i];
+                if ((count > 0 && index >= count) || start > until || start > windowEnd) {
+                    return Arrays.copyOf(result, size);
+                }
+                index++;
+                if (start >= windowStart && Arrays.binarySearch(exceptions, start) < 0) {
+                    if (size == result.length) {
+                        result = Arrays.copyOf(result, size * 2);
+                    }
+                    result[size++] = start;
+                }
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 最后一次重复的开始时间，不限次数和结束时间时返回null
+     * 用于范围查询时排除已经结束的系列
+     */
+    public Long lastOccurrenceStart(long seriesStart) {
+        if (count == 0) {
+            return until == Long.MAX_VALUE ? null : until;
+        }
+        // 有次数限制时系列长度有限，从头推算即可
+        Calendar calendar = Calendar.getInstance();
+        long[] period = new long[7];
+        int index = 0;
+        long last = seriesStart;
+        for (int k = 0; k < MAX_PERIODS; k++) {
+            int n = periodOccurrences(calendar, seriesStart, k, period);
+            for (int i = 0; i < n; i++) {
+                if (index >= count || period[i] > until) {
+                    return last;
+                }
+                last = period[i];
+                index++;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * 系列开始时间改变后，把排除的实例移到新系列中同一序号的实例上
+     * 原系列中找不到对应实例的排除项丢弃
+     * @return 新的排除列表，没有排除项时返回null
+     */
+    public String moveExceptions(String exceptions, long oldSeriesStart, long newSeriesStart) {
+        long[] old = parseExceptions(exceptions);
+        if (old.length == 0) {
+            return null;
+        }
+        if (oldSeriesStart == newSeriesStart) {
+            return exceptions;
+        }
+        Calendar calendar = Calendar.getInstance();
+        long[] period = new long[7];
+
+        // 排除项在原系列中的序号，升序
+        int[] indexes = new int[old.length];
+        int found = 0;
+        long last = old[old.length - 1];
+        int index = 0;
+        outer:
+        for (int k = 0; k < MAX_PERIODS; k++) {
+            int n = periodOccurrences(calendar, oldSeriesStart, k, period);
+            for (int i = 0; i < n; i++) {
+                if (period[i] > last) {
+                    break outer;
+                }
+                if (Arrays.binarySearch(old, period[i]) >= 0) {
+                    indexes[found++] = index;
+                }
+                index++;
+            }
+        }
+        if (found == 0) {
+            return null;
+        }
+
+        // 新系列中相同序号的实例
+        StringBuilder sb = new StringBuilder();
+        int next = 0;
+        index = 0;
+        outer:
+        for (int k = 0; k < MAX_PERIODS; k++) {
+            int n = periodOccurrences(calendar, newSeriesStart, k, period);
+            for (int i = 0; i < n; i++) {
+                if (index == indexes[next]) {
+                    if (sb.length() > 0) sb.append(',');
+                    sb.append(period[i]);
+                    if (++next == found) {
+                        break outer;
+                    }
+                }
+                index++;
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    /**
+     * 估算第一个可能与窗口相交的周期，宁可偏早
+     */
+    private int firstPeriodNear(Calendar calendar, long seriesStart, long windowStart) {
+        if (windowStart <= seriesStart) {
+            return 0;
+        }
+        long periods;
+        switch (frequency) {
+            case DAILY:
+                periods = (windowStart - seriesStart) / DAY_MS / interval;
+                break;
+            case WEEKLY:
+                periods = (windowStart - seriesStart) / (7 * DAY_MS) / interval;
+                break;
+            default:
+                calendar.setTimeInMillis(seriesStart);
+                int startMonths = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+                calendar.setTimeInMillis(windowStart);
+                int windowMonths = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+                periods = (windowMonths - startMonths) / interval;
+                break;
+        }
+        // 夏令时等造成的偏差，往前多留一个周期
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE / 2, periods - 1));
+    }
+
+    /**
+     * 第period个周期之前的实例数，用于COUNT判断
+     */
+    private int occurrencesBefore(Calendar calendar, long seriesStart, int period, long[] buffer) {
+        if (period == 0 || count == 0) {
+            return 0;
+        }
+        if (frequency == Frequency.WEEKLY && byDay.length > 0) {
+            int first = periodOccurrences(calendar, seriesStart, 0, buffer);
+            return first + (period - 1) * byDay.length;
+        }
+        if (frequency == Frequency.MONTHLY) {
+            calendar.setTimeInMillis(seriesStart);
+            if (calendar.get(Calendar.DAY_OF_MONTH) > 28) {
+                // 有的月份没有这一天，不产生实例，需要逐月计数
+                int total = 0;
+                for (int k = 0; k < period; k++) {
+                    total += periodOccurrences(calendar, seriesStart, k, buffer);
+                }
+                return total;
+            }
+        }
+        return period;
+    }
+
+    /**
+     * 第k个周期内的实例开始时间，升序写入buffer，返回个数
+     * 每个实例都从seriesStart按日历字段推算，跨夏令时保持本地时间不变
+     */
+    private int periodOccurrences(Calendar calendar, long seriesStart, int k, long[] buffer) {
+        calendar.setTimeInMillis(seriesStart);
+        switch (frequency) {
+            case DAILY:
+                calendar.add(Calendar.DAY_OF_MONTH, k * interval);
+                buffer[0] = calendar.getTimeInMillis();
+                return 1;
+            case MONTHLY: {
+                int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+                calendar.add(Calendar.MONTH, k * interval);
+                // 按RFC 5545，没有这一天的月份（如31日）跳过，而不是改到月末
+                if (calendar.get(Calendar.DAY_OF_MONTH) != dayOfMonth) {
+                    return 0;
+                }
+                buffer[0] = calendar.getTimeInMillis();
+                return 1;
+            }
+            default: {
+                if (byDay.length == 0) {
+                    calendar.add(Calendar.DAY_OF_MONTH, k * interval * 7);
+                    buffer[0] = calendar.getTimeInMillis();
+                    return 1;
+                }
+                // 本周周一相对开始日期的偏移
+                int toMonday = -mondayOffset(calendar.get(Calendar.DAY_OF_WEEK));
+                int n = 0;
+                for (int day : byDay) {
+                    calendar.setTimeInMillis(seriesStart);
+                    calendar.add(Calendar.DAY_OF_MONTH, toMonday + k * interval * 7 + mondayOffset(day));
+                    long start = calendar.getTimeInMillis();
+                    if (start >= seriesStart) {
+                        buffer[n++] = start;
+                    }
+                }
+                return n;
+            }
+        }
+    }
+
+    /**
+     * 星期几相对周一的天数（周一为0，周日为6）
+     */
+    private static int mondayOffset(int dayOfWeek) {
+        return (dayOfWeek - Calendar.MONDAY + 7) % 7;
+    }
+
+    private static int[] parseByDay(String value) {
+        List<Integer> days = new ArrayList<>();
+        for (String code : value.split(",")) {
+            String day = code.trim();
+            // 不支持带序号的写法（如1MO、-1FR）
+            int index = Arrays.asList(DAY_CODES).indexOf(day);
+            if (index < 0) {
+                return null;
+            }
+            if (!days.contains(index + 1)) {
+                days.add(index + 1);
+            }
+        }
+        int[] result = new int[days.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = days.get(i);
+        }
+        // 按从周一开始的顺序排列，保证同一周内的实例升序
+        Integer[] boxed = new Integer[result.length];
+        for (int i = 0; i < result.length; i++) boxed[i] = result[i];
+        Arrays.sort(boxed, (a, b) -> mondayOffset(a) - mondayOffset(b));
+        for (int i = 0; i < result.length; i++) result[i] = boxed[i];
+        return result;
+    }
+
+    /**
+     * UNTIL为yyyyMMdd（当天结束）或yyyyMMddTHHmmss[Z]
+     */
+    private static long parseUntil(String value) {
+        if (value.length() < 8) {
+            throw new IllegalArgumentException("UNTIL格式错误: " + value);
+        }
+        boolean utc = value.endsWith("Z");
+        Calendar calendar = Calendar.getInstance(utc ? TimeZone.getTimeZone("UTC") : TimeZone.getDefault());
+        calendar.clear();
+        int year = Integer.parseInt(value.substring(0, 4));
+        int month = Integer.parseInt(value.substring(4, 6));
+        int day = Integer.parseInt(value.substring(6, 8));
+        if (value.length() >= 15 && value.charAt(8) == 'T') {
+            calendar.set(year, month - 1, day,
+                    Integer.parseInt(value.substring(9, 11)),
+                    Integer.parseInt(value.substring(11, 13)),
+                    Integer.parseInt(value.substring(13, 15)));
+        } else {
+            calendar.set(year, month - 1, day, 23, 59, 59);
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 解析排除列表（逗号分隔的毫秒时间戳），返回升序数组
+     */
+    public static long[] parseExceptions(String exceptions) {
+        if (exceptions == null || exceptions.isEmpty()) {
+            return new long[0];
+        }
+        String[] parts = exceptions.split(",");
+        long[] result = new long[parts.length];
+        int size = 0;
+        for (String part : parts) {
+            try {
+                long value = Long.parseLong(part.trim());
+                result[size++] = value;
+            } catch (NumberFormatException e) {
+                // 忽略无法识别的项
+            }
+        }
+        result = Arrays.copyOf(result, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * 在排除列表中加入一个实例开始时间
+     */
+    public static String addException(String exceptions, long occurrenceStart) {
+        long[] current = parseExceptions(exceptions);
+        if (Arrays.binarySearch(current, occurrenceStart) >= 0) {
+            return exceptions;
+        }
+        return exceptions == null || exceptions.isEmpty()
+                ? Long.toString(occurrenceStart) : exceptions + "," + occurrenceStart;
+    }
+}
@@ -0,0 +1,97 @@
+package com.stu.calender2.data;
+
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 重复任务展开器
+ * 把主记录展开为窗口内的实例，并缓存最近的展开结果。
+ * 缓存键包含规则、排除列表和开始时间，主记录修改后自然不再命中，不需要主动失效
+ */
+public final class RecurrenceExpander {
+
+    // 日历在几个视图和相邻日期间切换，少量条目即可覆盖
+    private static final int CACHE_SIZE = 64;
+
+    // 单例模式
+    private static volatile RecurrenceExpander instance;
+
+    // 值为窗口内实例的开始时间
+    private final LruCache<String, long[]> cache = new LruCache<>(CACHE_SIZE);
+
+    private RecurrenceExpander() {
+        // 私有构造函数
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static RecurrenceExpander getInstance() {
+        if (instance == null) {
+            synchronized (RecurrenceExpander.class) {
+                if (instance == null) {
+                    instance = new RecurrenceExpander();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始时间在[start, end]内的任务，重复任务展开为窗口内的实例
+     * 查询只取范围内的不重复任务和仍在进行的系列主记录，与系列持续多久无关
+     */
+    public List<Task> loadInRange(TaskDao dao, long start, long end) {
+        return merge(dao.getSingleTasksBetweenDates(start, end),
+                dao.getRecurringTasksInRange(start, end), start, end);
+    }
+
+    /**
+     * 合并不重复任务和重复任务在[windowStart, windowEnd]内的实例，按开始时间和ID排序
+     * @param singles 窗口内的不重复任务，已排序
+     * @param masters 可能与窗口相交的重复任务主记录
+     */
+    List<Task> merge(List<Task> singles, List<Task> masters, long windowStart, long windowEnd) {
+        if (masters.isEmpty()) {
+            return singles;
+        }
+        List<Task> result = new ArrayList<>(singles.size() + masters.size() * 4);
+        result.addAll(singles);
+        for (Task master : masters) {
+            expand(master, windowStart, windowEnd, result);
+        }
+        Collections.sort(result, TaskWindow.ORDER);
+        return result;
+    }
+
+    /**
+     * 把主记录在窗口内的实例加入out
+     */
+    void expand(Task master, long windowStart, long windowEnd, List<Task> out) {
+        if (master.getStartTime() == null) {
+            return;
+        }
+        long seriesStart = master.getStartTime().getTime();
+        Recurrence recurrence = Recurrence.parse(master.getRecurrenceRule());
+        if (recurrence == null) {
+            // 无法识别的规则按不重复任务显示
+            if (seriesStart >= windowStart && seriesStart <= windowEnd) {
+                out.add(master);
+            }
+            return;
+        }
+
+        String key = master.getId() + "|" + seriesStart + "|" + master.getRecurrenceRule()
+                + "|" + master.getRecurrenceExceptions() + "|" + windowStart + "|" + windowEnd;
+        long[] starts = cache.get(key);
+        if (starts == null) {
+            starts = recurrence.expand(seriesStart,
+                    Recurrence.parseExceptions(master.getRecurrenceExceptions()), windowStart, windowEnd);
+            cache.put(key, starts);
+        }
+        for (long start : starts) {
+            out.add(master.occurrenceAt(start));
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.stu.calender2.data;
 
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import java.util.Date;
 
 /**
  * 任务实体类，用于Room数据库存储
+ * 按日期范围查询和按时间顺序导出都依赖startTime索引。
+ * 重复任务只存一条主记录，实例在查询时按窗口展开，见{@link Recurrence}
  */
-@Entity(tableName = "tasks")
+@Entity(tableName = "tasks", indices = {@Index("startTime")})
 public class Task {
     @PrimaryKey(autoGenerate = true)
     private long id;
@@ -19,6 +23,17 @@ public class Task {
     private String note;          // 备注
     private int importance;       // 重要程度（1-4，对应四象限：1-重要紧急，2-重要不紧急，3-紧急不重要，4-不紧急不重要）
     private boolean completed;    // 是否已完成
+    private String recurrenceRule;        // 重复规则（RRULE），为空表示不重复
+    private String recurrenceExceptions;  // 排除的实例开始时间，逗号分隔的毫秒时间戳
+    private Long recurrenceEnd;           // 最后一次重复的开始时间，不限时为空；由规则推算，用于范围查询
+
+    // recurrenceEnd是否需要按规则重新推算
+    @Ignore
+    private boolean recurrenceEndStale;
+
+    // 是否为重复任务展开出的实例，实例的ID与主记录相同
+    @Ignore
+    private boolean occurrence;
     
     // 构造函数
     public Task(String title, Date startTime, Date endTime, String location, String note, int importance) {
@@ -31,6 +46,37 @@ public class Task {
         this.completed = false;  // 默认未完成
     }
 
+    // 复制构造函数，内存中的任务窗口保存副本，避免界面修改影响窗口内容
+    @Ignore
+    public Task(Task other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.startTime = other.startTime != null ? new Date(other.startTime.getTime()) : null;
+        this.endTime = other.endTime != null ? new Date(other.endTime.getTime()) : null;
+        this.location = other.location;
+        this.note = other.note;
+        this.importance = other.importance;
+        this.completed = other.completed;
+        this.recurrenceRule = other.recurrenceRule;
+        this.recurrenceExceptions = other.recurrenceExceptions;
+        this.recurrenceEnd = other.recurrenceEnd;
+        this.recurrenceEndStale = other.recurrenceEndStale;
+        this.occurrence = other.occurrence;
+    }
+
+    /**
+     * 在start开始的一个实例，持续时间与主记录相同
+     */
+    Task occurrenceAt(long start) {
+        Task copy = new Task(this);
+        if (startTime != null && endTime != null) {
+            copy.endTime = new Date(start + endTime.getTime() - startTime.getTime());
+        }
+        copy.startTime = new Date(start);
+        copy.occurrence = true;
+        return copy;
+    }
+
     // Getters和Setters
     public long getId() {
         return id;
@@ -54,6 +100,7 @@ public class Task {
 
     public void setStartTime(Date startTime) {
         this.startTime = startTime;
+        this.recurrenceEndStale = recurrenceRule != null;
     }
 
     public Date getEndTime() {
@@ -95,6 +142,48 @@ public class Task {
     public void setCompleted(boolean completed) {
         this.completed = completed;
     }
+
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+
+    public void setRecurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+        this.recurrenceEndStale = true;
+    }
+
+    public String getRecurrenceExceptions() {
+        return recurrenceExceptions;
+    }
+
+    public void setRecurrenceExceptions(String recurrenceExceptions) {
+        this.recurrenceExceptions = recurrenceExceptions;
+    }
+
+    // 规则或开始时间改变后按需推算，所有写入路径都经过这里，保存的值总与规则一致
+    public Long getRecurrenceEnd() {
+        if (recurrenceEndStale) {
+            Recurrence recurrence = Recurrence.parse(recurrenceRule);
+            recurrenceEnd = recurrence != null && startTime != null
+                    ? recurrence.lastOccurrenceStart(startTime.getTime()) : null;
+            recurrenceEndStale = false;
+        }
+        return recurrenceEnd;
+    }
+
+    public void setRecurrenceEnd(Long recurrenceEnd) {
+        this.recurrenceEnd = recurrenceEnd;
+        this.recurrenceEndStale = false;
+    }
+
+    // 是否为重复任务（主记录或展开的实例）
+    public boolean isRecurring() {
+        return recurrenceRule != null;
+    }
+
+    public boolean isOccurrence() {
+        return occurrence;
+    }
     
     // 根据重要程度获取四象限类别
     public String getQuadrantCategory() {
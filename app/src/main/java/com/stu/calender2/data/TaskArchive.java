@@ -0,0 +1,167 @@
+package com.stu.calender2.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热表和归档表之间的查询路由
+ * 维护任务把完成已久的任务移入tasks_archive，tasks只保留近期和未完成的任务。
+ * 记住归档中最晚的开始时间，窗口完全晚于它时只查询tasks，翻看历史时才合并归档，
+ * 调用方不需要知道任务在哪张表
+ */
+public final class TaskArchive {
+
+    // 归档最晚开始时间未知，下次使用时查询
+    private static final long UNKNOWN = Long.MAX_VALUE;
+    // 归档为空
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // 单例模式
+    private static volatile TaskArchive instance;
+
+    // 归档中最晚的开始时间，只需不小于实际值：恢复任务使其变小时不更新，最多多查一次归档
+    private volatile long latestStart = UNKNOWN;
+    // 每次批量变更加一，查询期间发生变更时不保存查询结果
+    private volatile long version;
+
+    private TaskArchive() {
+        // 归档只由维护任务批量写入，恢复快照后也是整体变化，都以批量变更发布
+        TaskChangeBus.getInstance().subscribe(change -> {
+            if (change.getType() == TaskChange.Type.BULK) {
+                version++;
+                latestStart = UNKNOWN;
+            }
+        });
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static TaskArchive getInstance() {
+        if (instance == null) {
+            synchronized (TaskArchive.class) {
+                if (instance == null) {
+                    instance = new TaskArchive();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始时间在[start, end]内的任务，重复任务展开为实例；窗口早于归档最晚时间时合并归档中的任务
+     */
+    public List<Task> loadInRange(TaskDao dao, long start, long end) {
+        return withArchived(dao, RecurrenceExpander.getInstance().loadInRange(dao, start, end), start, end);
+    }
+
+    /**
+     * 在热表的查询结果中合并归档里开始时间在[start, end]内的任务
+     * @param hot 热表中同一范围的任务
+     */
+    public List<Task> withArchived(TaskDao dao, List<Task> hot, long start, long end) {
+        if (start > latestStart(dao)) {
+            return hot;
+        }
+        return merge(hot, dao.getArchivedTasksBetweenDates(start, end));
+    }
+
+    /**
+     * 所有任务，包括归档
+     */
+    public List<Task> loadAll(TaskDao dao) {
+        List<Task> hot = dao.getAllTasksList();
+        if (latestStart(dao) == EMPTY) {
+            return hot;
+        }
+        return merge(hot, dao.getAllArchivedTasks());
+    }
+
+    /**
+     * 某一重要程度的所有任务，包括归档
+     */
+    public List<Task> loadByImportance(TaskDao dao, int importance) {
+        List<Task> hot = dao.getTasksByImportance(importance);
+        if (latestStart(dao) == EMPTY) {
+            return hot;
+        }
+        return merge(hot, dao.getArchivedTasksByImportance(importance));
+    }
+
+    /**
+     * 按ID批量获取任务，热表中没有的从归档查找，顺序由调用方决定
+     */
+    public List<Task> loadByIds(TaskDao dao, long[] ids) {
+        List<Task> tasks = dao.getTasksByIds(ids);
+        if (tasks.size() == ids.length || latestStart(dao) == EMPTY) {
+            return tasks;
+        }
+        Set<Long> found = new HashSet<>(tasks.size() * 2);
+        for (Task task : tasks) {
+            found.add(task.getId());
+        }
+        long[] missing = new long[ids.length - tasks.size()];
+        int count = 0;
+        for (long id : ids) {
+            if (!found.contains(id) && count < missing.length) {
+                missing[count++] = id;
+            }
+        }
+        List<Task> result = new ArrayList<>(tasks);
+        result.addAll(dao.getArchivedTasksByIds(Arrays.copyOf(missing, count)));
+        return result;
+    }
+
+    /**
+     * 合并两个已排序的列表，归档为空时直接返回热表结果
+     */
+    private static List<Task> merge(List<Task> hot, List<Task> archived) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<Task> result = new ArrayList<>(hot.size() + archived.size());
+        result.addAll(hot);
+        result.addAll(archived);
+        Collections.sort(result, TaskWindow.ORDER);
+        return result;
+    }
+
+    /**
+     * 按ID获取任务，热表中没有时查找归档
+     */
+    public Task getTaskById(TaskDao dao, long id) {
+        Task task = dao.getTaskById(id);
+        if (task == null && latestStart(dao) != EMPTY) {
+            task = dao.getArchivedTaskById(id);
+        }
+        return task;
+    }
+
+    /**
+     * 把归档任务移回热表并写入修改后的内容，应在写入通道的事务中调用
+     * @return 任务不在归档中时返回false
+     */
+    boolean restore(TaskDao dao, Task task) {
+        if (dao.deleteArchivedTaskById(task.getId()) == 0) {
+            return false;
+        }
+        // ID不为0时按原ID插入
+        dao.insert(task);
+        return true;
+    }
+
+    private long latestStart(TaskDao dao) {
+        long value = latestStart;
+        if (value == UNKNOWN) {
+            long queriedAt = version;
+            Long latest = dao.getArchiveLatestStart();
+            value = latest != null ? latest : EMPTY;
+            if (queriedAt == version) {
+                latestStart = value;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,126 @@
+package com.stu.calender2.data;
+
+/**
+ * 一次任务变更：任务ID以及变更前后的时间范围
+ * 时间范围为毫秒时间戳的闭区间，没有对应状态（插入前、删除后）时为空
+ */
+public final class TaskChange {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE,
+        // 范围未知的批量变更（导入、恢复等），所有窗口都需要重新查询
+        BULK
+    }
+
+    private final Type type;
+    private final long taskId;
+    private final boolean hasOld;
+    private final long oldStart;
+    private final long oldEnd;
+    private final boolean hasNew;
+    private final long newStart;
+    private final long newEnd;
+    private final Task task;
+    private final boolean recurring;
+
+    private TaskChange(Type type, long taskId, Task before, Task after) {
+        this.type = type;
+        this.taskId = taskId;
+        this.hasOld = before != null;
+        this.oldStart = startOf(before);
+        this.oldEnd = endOf(before);
+        this.hasNew = after != null;
+        this.newStart = startOf(after);
+        this.newEnd = endOf(after);
+        this.task = after;
+        this.recurring = (before != null && before.isRecurring()) || (after != null && after.isRecurring());
+    }
+
+    static TaskChange inserted(Task task) {
+        return new TaskChange(Type.INSERT, task.getId(), null, task);
+    }
+
+    /**
+     * @param before 更新前的数据库记录，未知时为null
+     */
+    static TaskChange updated(Task before, Task after) {
+        // 不知道旧范围时不能只凭新范围判断，按批量变更处理
+        if (before == null) {
+            return new TaskChange(Type.BULK, after.getId(), null, after);
+        }
+        return new TaskChange(Type.UPDATE, after.getId(), before, after);
+    }
+
+    static TaskChange deleted(Task before) {
+        return new TaskChange(Type.DELETE, before.getId(), before, null);
+    }
+
+    static TaskChange bulk() {
+        return new TaskChange(Type.BULK, 0, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * 变更后的任务，删除和批量变更时为null
+     */
+    public Task getTask() {
+        return type == Type.BULK ? null : task;
+    }
+
+    /**
+     * 变更前或变更后是否为重复任务，此时时间范围是整个系列
+     */
+    public boolean isRecurring() {
+        return recurring;
+    }
+
+    /**
+     * 变更前或变更后的时间范围是否与窗口[windowStart, windowEnd]相交
+     */
+    public boolean overlaps(long windowStart, long windowEnd) {
+        if (type == Type.BULK) {
+            return true;
+        }
+        return (hasOld && oldStart <= windowEnd && oldEnd >= windowStart)
+                || (hasNew && newStart <= windowEnd && newEnd >= windowStart);
+    }
+
+    private static long startOf(Task task) {
+        if (task == null || task.getStartTime() == null) {
+            // 没有开始时间的任务可能出现在任何窗口中
+            return Long.MIN_VALUE;
+        }
+        return task.getStartTime().getTime();
+    }
+
+    private static long endOf(Task task) {
+        if (task == null || task.getStartTime() == null) {
+            return Long.MAX_VALUE;
+        }
+        long start = task.getStartTime().getTime();
+        long duration = task.getEndTime() != null ? Math.max(0, task.getEndTime().getTime() - start) : 0;
+        if (task.isRecurring()) {
+            // 重复任务覆盖到最后一次实例结束，不限时的系列没有终点
+            Long last = task.getRecurrenceEnd();
+            return last != null ? Math.max(start, last) + duration : Long.MAX_VALUE;
+        }
+        return start + duration;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskChange{" + type + ", id=" + taskId + "}";
+    }
+}
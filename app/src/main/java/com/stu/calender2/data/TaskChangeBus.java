@@ -0,0 +1,94 @@
+package com.stu.calender2.data;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 任务变更总线
+ * Room的失效通知以整张表为单位，任何写入都会让所有查询重新执行。
+ * 所有写入路径在提交后发布TaskChange，查询窗口只在变更与自身时间范围相交时才重新查询
+ */
+public class TaskChangeBus {
+    private static volatile TaskChangeBus instance;
+
+    /**
+     * 变更监听器，在写入线程调用，不应执行耗时操作
+     */
+    public interface Listener {
+        void onTaskChanged(TaskChange change);
+    }
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private TaskChangeBus() {
+        // 私有构造函数
+    }
+
+    public static TaskChangeBus getInstance() {
+        if (instance == null) {
+            synchronized (TaskChangeBus.class) {
+                if (instance == null) {
+                    instance = new TaskChangeBus();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void publishInsert(Task task) {
+        publish(TaskChange.inserted(task));
+    }
+
+    /**
+     * @param before 更新前的数据库记录，未知时传null
+     */
+    public void publishUpdate(Task before, Task after) {
+        publish(TaskChange.updated(before, after));
+    }
+
+    public void publishDelete(Task before) {
+        publish(TaskChange.deleted(before));
+    }
+
+    /**
+     * 范围未知的批量变更，所有窗口都会重新查询
+     */
+    public void publishBulk() {
+        publish(TaskChange.bulk());
+    }
+
+    private void publish(TaskChange change) {
+        for (Listener listener : listeners) {
+            listener.onTaskChanged(change);
+        }
+    }
+
+    /**
+     * 只在变更与[start, end]相交时触发的查询触发器
+     */
+    public QueryStream.Trigger windowTrigger(long start, long end) {
+        return onChange -> {
+            Listener listener = change -> {
+                if (change.overlaps(start, end)) {
+                    onChange.run();
+                }
+            };
+            subscribe(listener);
+            return () -> unsubscribe(listener);
+        };
+    }
+
+    /**
+     * 任意变更都触发的查询触发器，用于不按时间划分的查询
+     */
+    public QueryStream.Trigger anyChangeTrigger() {
+        return windowTrigger(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+}
@@ -1,13 +1,13 @@
 package com.stu.calender2.data;
 
-import androidx.lifecycle.LiveData;
+import android.database.Cursor;
+
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
 
-import java.util.Date;
 import java.util.List;
 
 @Dao
@@ -38,37 +38,85 @@ public interface TaskDao {
 
     // 获取所有任务
     @Query("SELECT * FROM tasks ORDER BY startTime ASC")
-    LiveData<List<Task>> getAllTasks();
-
-    // 获取所有任务（非LiveData）
-    @Query("SELECT * FROM tasks ORDER BY startTime ASC")
     List<Task> getAllTasksList();
 
-    // 获取某天的所有任务
-    @Query("SELECT * FROM tasks WHERE date(startTime/1000, 'unixepoch', 'localtime') = date(:date/1000, 'unixepoch', 'localtime') ORDER BY startTime ASC")
-    LiveData<List<Task>> getTasksByDate(Date date);
+    // 按开始时间顺序遍历所有任务（包括归档），用于流式导出，调用方负责关闭游标
+    // 两表建表时的列顺序可能不同，UNION按位置对应，因此列出列名
+    @Query("SELECT id, title, startTime, endTime, location, note, importance, completed, recurrenceRule, recurrenceExceptions, recurrenceEnd FROM tasks UNION ALL SELECT id, title, startTime, endTime, location, note, importance, completed, recurrenceRule, recurrenceExceptions, recurrenceEnd FROM tasks_archive "
+            + "ORDER BY startTime ASC, id ASC")
+    Cursor getAllTasksCursor();
 
     // 获取某天的所有任务（使用long时间戳，毫秒）
     @Query("SELECT * FROM tasks WHERE date(startTime/1000, 'unixepoch', 'localtime') = date(:date/1000, 'unixepoch', 'localtime') ORDER BY startTime ASC")
     List<Task> getTasksByDate(long date);
 
-    // 根据日期范围获取任务
-    @Query("SELECT * FROM tasks WHERE startTime BETWEEN :start AND :end ORDER BY startTime ASC")
-    LiveData<List<Task>> getTasksByDateRange(Date start, Date end);
-
     // 根据日期范围获取任务（使用long时间戳，毫秒）
     @Query("SELECT * FROM tasks WHERE startTime BETWEEN :start AND :end ORDER BY startTime ASC")
     List<Task> getTasksBetweenDates(long start, long end);
 
+    // 日期范围内的不重复任务，重复任务由getRecurringTasksInRange取主记录后展开
+    @Query("SELECT * FROM tasks WHERE recurrenceRule IS NULL AND startTime BETWEEN :start AND :end ORDER BY startTime ASC, id ASC")
+    List<Task> getSingleTasksBetweenDates(long start, long end);
+
+    // 可能在[start, end]内有实例的重复任务主记录：已开始且尚未结束的系列
+    @Query("SELECT * FROM tasks WHERE recurrenceRule IS NOT NULL AND startTime <= :end AND (recurrenceEnd IS NULL OR recurrenceEnd >= :start)")
+    List<Task> getRecurringTasksInRange(long start, long end);
+
+    // 某时间之后最早开始的未完成不重复任务，用于设置下一次提醒
+    @Query("SELECT * FROM tasks WHERE completed = 0 AND recurrenceRule IS NULL AND startTime > :after ORDER BY startTime ASC LIMIT :limit")
+    List<Task> getUpcomingSingleTasks(long after, int limit);
+
     // 根据重要程度获取任务
     @Query("SELECT * FROM tasks WHERE importance = :importance ORDER BY startTime ASC")
-    LiveData<List<Task>> getTasksByImportance(int importance);
+    List<Task> getTasksByImportance(int importance);
 
     // 获取未完成的任务
     @Query("SELECT * FROM tasks WHERE completed = 0 ORDER BY startTime ASC")
-    LiveData<List<Task>> getIncompleteTasks();
+    List<Task> getIncompleteTasks();
+
+    // 按ID批量获取任务，用于搜索结果，顺序由调用方决定
+    @Query("SELECT * FROM tasks WHERE id IN (:ids)")
+    List<Task> getTasksByIds(long[] ids);
 
     // 根据ID获取任务
     @Query("SELECT * FROM tasks WHERE id = :id")
     Task getTaskById(long id);
+
+    // 把开始时间早于cutoff的已完成不重复任务复制到归档表，与deleteArchivable在同一事务中调用
+    @Query("INSERT OR REPLACE INTO tasks_archive (id, title, startTime, endTime, location, note, importance, completed, recurrenceRule, recurrenceExceptions, recurrenceEnd) "
+            + "SELECT id, title, startTime, endTime, location, note, importance, completed, recurrenceRule, recurrenceExceptions, recurrenceEnd FROM tasks "
+            + "WHERE completed = 1 AND recurrenceRule IS NULL AND startTime < :cutoff")
+    void copyArchivableToArchive(long cutoff);
+
+    // 归档表中日期范围内的任务，归档的都是不重复任务
+    @Query("SELECT * FROM tasks_archive WHERE startTime BETWEEN :start AND :end ORDER BY startTime ASC, id ASC")
+    List<Task> getArchivedTasksBetweenDates(long start, long end);
+
+    // 归档表中的所有任务
+    @Query("SELECT * FROM tasks_archive ORDER BY startTime ASC, id ASC")
+    List<Task> getAllArchivedTasks();
+
+    // 归档表中某一重要程度的任务
+    @Query("SELECT * FROM tasks_archive WHERE importance = :importance ORDER BY startTime ASC, id ASC")
+    List<Task> getArchivedTasksByImportance(int importance);
+
+    // 按ID批量获取归档任务
+    @Query("SELECT * FROM tasks_archive WHERE id IN (:ids)")
+    List<Task> getArchivedTasksByIds(long[] ids);
+
+    // 归档表中最晚的开始时间，归档为空时返回null
+    @Query("SELECT MAX(startTime) FROM tasks_archive")
+    Long getArchiveLatestStart();
+
+    // 根据ID获取归档任务
+    @Query("SELECT * FROM tasks_archive WHERE id = :id")
+    Task getArchivedTaskById(long id);
+
+    // 从归档表删除任务，返回删除的行数
+    @Query("DELETE FROM tasks_archive WHERE id = :id")
+    int deleteArchivedTaskById(long id);
+
+    // 删除已复制到归档表的任务，返回删除的行数
+    @Query("DELETE FROM tasks WHERE completed = 1 AND recurrenceRule IS NULL AND startTime < :cutoff")
+    int deleteArchivable(long cutoff);
 } 
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.stu.calender2.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * 任务全文索引，外部内容表为tasks
+ * 只保存索引不保存文本，Room生成的触发器在tasks写入时同步索引，rowid即任务ID。
+ * 使用icu分词器并指定zh_CN区域，中文按词典切分为词，拉丁字母做大小写折叠，
+ * 查询词由TaskSearch按同样的规则切分后以前缀匹配
+ */
+@Fts4(contentEntity = Task.class, tokenizer = FtsOptions.TOKENIZER_ICU, tokenizerArgs = {"zh_CN"})
+@Entity(tableName = "tasks_fts")
+public class TaskFts {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowid;
+
+    // 列顺序决定matchinfo中的列序号，与TaskSearch的权重一致
+    private String title;
+    private String note;
+    private String location;
+
+    public long getRowid() {
+        return rowid;
+    }
+
+    public void setRowid(long rowid) {
+        this.rowid = rowid;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
@@ -1,28 +1,74 @@
 package com.stu.calender2.data;
 
 import android.app.Application;
-import android.os.AsyncTask;
 
 import androidx.lifecycle.LiveData;
 
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PowerBudget;
 
 /**
  * 任务仓库类，封装数据库操作
+ * 查询以QueryStream提供：只有与查询时间窗口相交的变更才触发重新查询，
+ * 连续写入在防抖时间内合并为一次查询，结果未变化时不通知界面。
+ * 所有写入在提交后向TaskChangeBus发布变更
  */
 public class TaskRepository {
-    private TaskDao taskDao;
+    // tasks表失效后的防抖时间，合并批量写入引起的连续失效
+    private static final long STREAM_DEBOUNCE_MS = 200;
+    // 单个写入持有WakeLock的上限
+    private static final long WRITE_WAKE_TIMEOUT_MS = 10_000;
+
+    private final Application application;
+    private TaskChangeBus changeBus;
     private LiveData<List<Task>> allTasks;
-    private ExecutorService executorService;
+    private Executor writeExecutor;
+    private Executor readExecutor;
 
     public TaskRepository(Application application) {
-        AppDatabase database = AppDatabase.getInstance(application);
-        taskDao = database.taskDao();
-        allTasks = taskDao.getAllTasks();
-        executorService = Executors.newSingleThreadExecutor();
+        this.application = application;
+        changeBus = TaskChangeBus.getInstance();
+        allTasks = streamAllTasks().toLiveData();
+        // 写入期间持有WakeLock，进入后台后排队的写入也能完成
+        writeExecutor = PowerBudget.getInstance().wrapExecutor(
+                AppSchedulers.getInstance().dbWrite(), "db:write", WRITE_WAKE_TIMEOUT_MS);
+        readExecutor = AppSchedulers.getInstance().io();
+    }
+
+    // 所有任务的查询流，包括归档的历史任务
+    public QueryStream<List<Task>> streamAllTasks() {
+        return streamTasks(changeBus.anyChangeTrigger(), () -> TaskArchive.getInstance().loadAll(taskDao()));
+    }
+
+    // 日期范围内任务的查询流，可继续map为界面模型
+    public QueryStream<List<Task>> streamTasksByDateRange(Date start, Date end) {
+        long startMillis = start.getTime();
+        long endMillis = end.getTime();
+        return streamTasks(changeBus.windowTrigger(startMillis, endMillis),
+                () -> loadTasksInRange(startMillis, endMillis));
+    }
+
+    // 所有任务（包括归档）的物化窗口，单个任务变化时增量更新
+    public TaskWindow openAllTasksWindow() {
+        return new TaskWindow(() -> TaskArchive.getInstance().loadAll(taskDao()), task -> true, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // 日期范围[start, end]内任务的物化窗口，与loadTasksInRange的条件一致
+    // 重复任务的变更由窗口重新查询，过滤条件只用于不重复任务
+    public TaskWindow openWindow(Date start, Date end) {
+        long startMillis = start.getTime();
+        long endMillis = end.getTime();
+        return new TaskWindow(() -> loadTasksInRange(startMillis, endMillis),
+                task -> task.getStartTime() != null
+                        && task.getStartTime().getTime() >= startMillis
+                        && task.getStartTime().getTime() <= endMillis,
+                startMillis, endMillis);
     }
 
     // 获取所有任务
@@ -32,28 +78,80 @@ public class TaskRepository {
 
     // 获取某天的所有任务
     public LiveData<List<Task>> getTasksByDate(Date date) {
-        return taskDao.getTasksByDate(date);
+        Calendar day = Calendar.getInstance();
+        day.setTime(date);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        long dayStart = day.getTimeInMillis();
+        day.add(Calendar.DAY_OF_MONTH, 1);
+        long dayEnd = day.getTimeInMillis() - 1;
+
+        return streamTasks(changeBus.windowTrigger(dayStart, dayEnd),
+                () -> loadTasksInRange(dayStart, dayEnd)).toLiveData();
     }
 
     // 根据日期范围获取任务
     public LiveData<List<Task>> getTasksByDateRange(Date start, Date end) {
-        return taskDao.getTasksByDateRange(start, end);
+        return streamTasksByDateRange(start, end).toLiveData();
     }
 
     // 根据重要程度获取任务
     public LiveData<List<Task>> getTasksByImportance(int importance) {
-        return taskDao.getTasksByImportance(importance);
+        return streamTasks(changeBus.anyChangeTrigger(),
+                () -> TaskArchive.getInstance().loadByImportance(taskDao(), importance)).toLiveData();
     }
 
     // 获取未完成的任务
     public LiveData<List<Task>> getIncompleteTasks() {
-        return taskDao.getIncompleteTasks();
+        return streamTasks(changeBus.anyChangeTrigger(), () -> taskDao().getIncompleteTasks()).toLiveData();
+    }
+
+    // 开始时间在[start, end]内的任务，重复任务展开为实例
+    // 近期的窗口只查询热表，早于归档最晚时间的窗口同时查询归档
+    List<Task> loadTasksInRange(long start, long end) {
+        return TaskArchive.getInstance().loadInRange(taskDao(), start, end);
+    }
+
+    // 每次从当前数据库实例取DAO，恢复快照重新打开数据库后不会继续使用已关闭的实例
+    private TaskDao taskDao() {
+        return AppDatabase.getInstance(application).taskDao();
+    }
+
+    private QueryStream<List<Task>> streamTasks(QueryStream.Trigger trigger,
+                                                QueryStream.Source<List<Task>> source) {
+        return QueryStream.from(trigger, source)
+                .debounce(STREAM_DEBOUNCE_MS)
+                .distinctUntilChanged(TaskRepository::contentHash);
+    }
+
+    /**
+     * 任务列表的内容哈希，覆盖界面显示用到的所有字段
+     */
+    public static long contentHash(List<Task> tasks) {
+        long hash = tasks.size();
+        for (Task task : tasks) {
+            hash = 31 * hash + task.getId();
+            hash = 31 * hash + Objects.hashCode(task.getTitle());
+            hash = 31 * hash + (task.getStartTime() != null ? task.getStartTime().getTime() : 0);
+            hash = 31 * hash + (task.getEndTime() != null ? task.getEndTime().getTime() : 0);
+            hash = 31 * hash + Objects.hashCode(task.getLocation());
+            hash = 31 * hash + Objects.hashCode(task.getNote());
+            hash = 31 * hash + task.getImportance();
+            hash = 31 * hash + (task.isCompleted() ? 1 : 0);
+            hash = 31 * hash + Objects.hashCode(task.getRecurrenceRule());
+            hash = 31 * hash + Objects.hashCode(task.getRecurrenceExceptions());
+        }
+        return hash;
     }
 
     // 插入任务
     public void insert(Task task, OnTaskOperationListener listener) {
-        executorService.execute(() -> {
-            long id = taskDao.insert(task);
+        writeExecutor.execute(() -> {
+            long id = taskDao().insert(task);
+            task.setId(id);
+            changeBus.publishInsert(task);
             if (listener != null) {
                 listener.onTaskInserted(id);
             }
@@ -62,28 +160,69 @@ public class TaskRepository {
 
     // 更新任务
     public void update(Task task) {
-        executorService.execute(() -> {
-            taskDao.update(task);
+        writeExecutor.execute(() -> {
+            // 写入都在单线程的dbWrite通道执行，读取旧记录和更新之间不会有其他写入
+            Task before = taskDao().getTaskById(task.getId());
+            if (before == null) {
+                // 修改归档任务时移回热表，例如重新标记为未完成
+                AppDatabase database = AppDatabase.getInstance(application);
+                Task archived = taskDao().getArchivedTaskById(task.getId());
+                if (archived != null) {
+                    database.runInTransaction(() -> TaskArchive.getInstance().restore(database.taskDao(), task));
+                    changeBus.publishUpdate(archived, task);
+                }
+                return;
+            }
+            taskDao().update(task);
+            changeBus.publishUpdate(before, task);
         });
     }
 
     // 删除任务
     public void delete(Task task) {
-        executorService.execute(() -> {
-            taskDao.delete(task);
+        writeExecutor.execute(() -> {
+            Task before = taskDao().getTaskById(task.getId());
+            if (before == null) {
+                // 不在热表中时从归档删除
+                before = taskDao().getArchivedTaskById(task.getId());
+                taskDao().deleteArchivedTaskById(task.getId());
+            } else {
+                taskDao().delete(task);
+            }
+            changeBus.publishDelete(before != null ? before : task);
+        });
+    }
+
+    // 删除重复任务的一次实例：只在主记录的排除列表中加入该实例，不影响系列的其他实例
+    public void deleteOccurrence(long taskId, long occurrenceStart) {
+        writeExecutor.execute(() -> {
+            Task before = taskDao().getTaskById(taskId);
+            if (before == null || !before.isRecurring()) {
+                return;
+            }
+            Task after = new Task(before);
+            after.setRecurrenceExceptions(
+                    Recurrence.addException(before.getRecurrenceExceptions(), occurrenceStart));
+            taskDao().update(after);
+            changeBus.publishUpdate(before, after);
         });
     }
 
     // 根据ID获取任务
     public void getTaskById(long id, OnTaskOperationListener listener) {
-        executorService.execute(() -> {
-            Task task = taskDao.getTaskById(id);
+        readExecutor.execute(() -> {
+            Task task = TaskArchive.getInstance().getTaskById(taskDao(), id);
             if (listener != null) {
                 listener.onTaskLoaded(task);
             }
         });
     }
 
+    // 全文搜索，结果按相关度排序，在后台线程回调；被之后的搜索取代时不回调
+    public void search(String text, TaskSearchController.SearchCallback callback) {
+        TaskSearchController.getInstance().search(text, callback);
+    }
+
     // 任务操作监听器接口
     public interface OnTaskOperationListener {
         void onTaskInserted(long taskId);
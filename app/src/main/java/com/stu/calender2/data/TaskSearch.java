@@ -0,0 +1,148 @@
+package com.stu.calender2.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 全文搜索的查询构造和相关度计算
+ * FTS4没有内置的相关度函数，按SQLite文档的做法用matchinfo在应用中计算：
+ * 每个词在每列的命中次数除以该词在全表该列的命中总数，再按列加权求和
+ */
+public final class TaskSearch {
+
+    // 与TaskFts的列顺序一致：标题、备注、地点
+    private static final double[] COLUMN_WEIGHTS = {4.0, 1.0, 2.0};
+
+    private TaskSearch() {
+        // 工具类
+    }
+
+    /**
+     * 按zh_CN区域的ICU断词规则拆分用户输入，与tasks_fts的icu分词器一致
+     * 只保留含字母或数字的词，转换为小写；Android的BreakIterator由ICU实现
+     */
+    public static List<String> toTerms(String input) {
+        List<String> terms = new ArrayList<>();
+        if (input == null) {
+            return terms;
+        }
+        BreakIterator words = BreakIterator.getWordInstance(Locale.CHINA);
+        words.setText(input);
+        int start = words.first();
+        for (int end = words.next(); end != BreakIterator.DONE; start = end, end = words.next()) {
+            String token = input.substring(start, end);
+            if (hasLetterOrDigit(token)) {
+                // 希伯来文缩写中可能有双引号，去掉以免提前结束短语
+                terms.add(token.replace("\"", "").toLowerCase(Locale.ROOT));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 把词转换为MATCH表达式：每个词按前缀匹配，多个词需同时命中
+     * 输入中的FTS语法字符已在拆词时去掉，不会构成查询运算符
+     * @return 没有可搜索的词时返回null
+     */
+    public static String toMatchQuery(List<String> terms) {
+        if (terms.isEmpty()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            // 加引号后AND、OR、NEAR等只作为普通词
+            query.append('"').append(term).append("*\"");
+        }
+        return query.toString();
+    }
+
+    /**
+     * newTerms的结果是否一定是oldTerms结果的子集：
+     * 原有的每个词都被同位置的更长前缀替代，或在后面追加了新词
+     */
+    public static boolean isRefinement(List<String> oldTerms, List<String> newTerms) {
+        if (oldTerms.isEmpty() || newTerms.size() < oldTerms.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldTerms.size(); i++) {
+            if (!newTerms.get(i).startsWith(oldTerms.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在内存中判断任务是否匹配所有词，规则与MATCH的前缀查询一致
+     */
+    public static boolean matches(Task task, List<String> terms) {
+        for (String term : terms) {
+            if (!containsPrefix(task.getTitle(), term)
+                    && !containsPrefix(task.getNote(), term)
+                    && !containsPrefix(task.getLocation(), term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * text按toTerms的规则拆分后，是否有以prefix开头的词
+     */
+    private static boolean containsPrefix(String text, String prefix) {
+        if (text == null || text.length() < prefix.length()) {
+            return false;
+        }
+        for (String token : toTerms(text)) {
+            if (token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasLetterOrDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isLetterOrDigit(token.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析matchinfo('pcx')：p个词、c列，之后每个词每列三个数：
+     * 本行命中次数、全表命中次数、有命中的行数
+     */
+    static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        if (matchInfo.length < 4 * (2 + 3 * phrases * columns)) {
+            return 0;
+        }
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int offset = 4 * (2 + 3 * (p * columns + c));
+                long hitsThisRow = buffer.getInt(offset) & 0xFFFFFFFFL;
+                long hitsAllRows = buffer.getInt(offset + 4) & 0xFFFFFFFFL;
+                if (hitsThisRow > 0 && hitsAllRows > 0) {
+                    double weight = c < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[c] : 1.0;
+                    score += weight * hitsThisRow / hitsAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,290 @@
+package com.stu.calender2.data;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PerfMonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 边输入边搜索的控制器，位于TaskViewModel和TaskDao之间
+ * - 新的输入会取消尚未完成的查询，SQLite查询通过CancellationSignal中断
+ * - 新输入是上一次输入的细化（词变长或追加新词）且上次结果完整时，直接在上次结果中过滤，不查询数据库
+ * - 最近的查询词到排序后任务ID的结果保存在LRU中，回删到之前输入过的词时按主键取回任务即可
+ * 任何任务变更都会清空缓存，结果与数据库保持一致
+ */
+public class TaskSearchController {
+    private static final String TAG = "TaskSearchController";
+
+    // 单例模式
+    private static volatile TaskSearchController instance;
+
+    // 一次搜索参与排序的最多候选数，达到上限的结果不完整，不能用于细化过滤
+    private static final int MAX_CANDIDATES = 200;
+
+    // 缓存的查询数
+    private static final int CACHE_SIZE = 32;
+
+    // 先按开始时间取最近的候选，相关度在应用中计算
+    // 热表和归档各有全文索引，合并两边的候选；matchinfo的全表统计各自按所在表计算
+    private static final String SEARCH_SQL = "SELECT tasks.id AS id, tasks.startTime AS startTime, "
+            + "matchinfo(tasks_fts, 'pcx') AS info "
+            + "FROM tasks JOIN tasks_fts ON tasks.id = tasks_fts.docid WHERE tasks_fts MATCH ? "
+            + "UNION ALL SELECT tasks_archive.id, tasks_archive.startTime, matchinfo(tasks_archive_fts, 'pcx') "
+            + "FROM tasks_archive JOIN tasks_archive_fts ON tasks_archive.id = tasks_archive_fts.docid "
+            + "WHERE tasks_archive_fts MATCH ? "
+            + "ORDER BY startTime DESC LIMIT " + MAX_CANDIDATES;
+
+    // 查询失败的标记，按引用比较，不会与查询到的空结果混淆
+    private static final long[] FAILED = new long[0];
+
+    /**
+     * 搜索结果回调，在后台线程调用；被新输入取代的搜索不会回调
+     */
+    public interface SearchCallback {
+        void onSearchResult(String text, List<Task> tasks);
+    }
+
+    // 搜索在串行执行器中依次执行，被取代的搜索在开始前直接跳过
+    private final Executor searchExecutor;
+
+    // MATCH表达式 -> 按相关度排序的任务ID
+    private final LruCache<String, long[]> resultCache = new LruCache<>(CACHE_SIZE);
+
+    // 以下状态由lock保护
+    private final Object lock = new Object();
+    private long generation;
+    private CancellationSignal runningSignal;
+
+    // 上一次完成的搜索，只在搜索执行器中访问
+    private List<String> lastTerms = Collections.emptyList();
+    private List<Task> lastResult = Collections.emptyList();
+    private boolean lastComplete;
+    // 缓存所属的变更代数，变更后旧的上次结果不再可用
+    private volatile long dataVersion;
+    private long lastDataVersion = -1;
+
+    private TaskSearchController() {
+        AppSchedulers schedulers = AppSchedulers.getInstance();
+        searchExecutor = schedulers.newSerialExecutor(schedulers.io());
+        TaskChangeBus.getInstance().subscribe(change -> {
+            synchronized (resultCache) {
+                dataVersion++;
+                resultCache.evictAll();
+            }
+        });
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static TaskSearchController getInstance() {
+        if (instance == null) {
+            synchronized (TaskSearchController.class) {
+                if (instance == null) {
+                    instance = new TaskSearchController();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // 当前数据库实例，恢复快照后数据库会重新打开，因此不缓存实例
+    private AppDatabase database() {
+        return MyApplication.getInstance().getDatabase();
+    }
+
+    /**
+     * 搜索任务，取消之前尚未完成的搜索
+     */
+    public void search(String text, SearchCallback callback) {
+        final long token;
+        synchronized (lock) {
+            token = ++generation;
+            if (runningSignal != null) {
+                runningSignal.cancel();
+                runningSignal = null;
+            }
+        }
+        searchExecutor.execute(() -> {
+            if (isStale(token)) {
+                return;
+            }
+            List<Task> result = runSearch(text, token);
+            if (result != null && !isStale(token)) {
+                callback.onSearchResult(text, result);
+            }
+        });
+    }
+
+    /**
+     * 取消尚未完成的搜索，例如离开搜索界面时
+     */
+    public void cancel() {
+        synchronized (lock) {
+            generation++;
+            if (runningSignal != null) {
+                runningSignal.cancel();
+                runningSignal = null;
+            }
+        }
+    }
+
+    private boolean isStale(long token) {
+        synchronized (lock) {
+            return token != generation;
+        }
+    }
+
+    /**
+     * @return 被取消时返回null
+     */
+    private List<Task> runSearch(String text, long token) {
+        List<String> terms = TaskSearch.toTerms(text);
+        String query = TaskSearch.toMatchQuery(terms);
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        long version = dataVersion;
+        boolean reusable = lastDataVersion == version;
+
+        List<Task> result;
+        boolean complete;
+        long[] cachedIds = resultCache.get(query);
+        if (cachedIds != null) {
+            // 缓存的ID已排序，按主键取回任务
+            result = loadTasks(cachedIds);
+            complete = cachedIds.length < MAX_CANDIDATES;
+            AppLog.v(TAG, () -> "缓存命中: " + query);
+        } else if (reusable && lastComplete && TaskSearch.isRefinement(lastTerms, terms)) {
+            // 细化的结果一定在上次结果中，过滤即可，保留上次的相关度顺序
+            result = new ArrayList<>();
+            for (Task task : lastResult) {
+                if (TaskSearch.matches(task, terms)) {
+                    result.add(task);
+                }
+            }
+            complete = true;
+            AppLog.v(TAG, () -> "在上次结果中过滤: " + query);
+        } else {
+            long[] ids = queryIds(query, token);
+            if (ids == null) {
+                return null;
+            }
+            if (ids == FAILED) {
+                // 失败不是真正的空结果，不缓存，也不作为细化过滤的基础
+                return Collections.emptyList();
+            }
+            // 查询期间数据有变化时结果可能已过期，不写入缓存
+            synchronized (resultCache) {
+                if (version == dataVersion) {
+                    resultCache.put(query, ids);
+                }
+            }
+            result = loadTasks(ids);
+            complete = ids.length < MAX_CANDIDATES;
+        }
+
+        // 查询期间数据有变化时不保存为上次结果
+        if (version == dataVersion) {
+            lastTerms = terms;
+            lastResult = result;
+            lastComplete = complete;
+            lastDataVersion = version;
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 执行全文查询，返回按相关度排序的任务ID，被取消时返回null，出错时返回FAILED
+     */
+    private long[] queryIds(String query, long token) {
+        CancellationSignal signal = new CancellationSignal();
+        synchronized (lock) {
+            if (token != generation) {
+                return null;
+            }
+            runningSignal = signal;
+        }
+        long section = PerfMonitor.getInstance().beginSection("db:search");
+        try (Cursor cursor = database().query(new SimpleSQLiteQuery(SEARCH_SQL, new Object[]{query, query}), signal)) {
+            int count = cursor.getCount();
+            long[] ids = new long[count];
+            long[] starts = new long[count];
+            double[] scores = new double[count];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+                starts[i] = cursor.isNull(1) ? Long.MIN_VALUE : cursor.getLong(1);
+                scores[i] = TaskSearch.score(cursor.getBlob(2));
+            }
+            return sortByScore(ids, starts, scores);
+        } catch (OperationCanceledException e) {
+            AppLog.v(TAG, () -> "搜索已取消: " + query);
+            return null;
+        } catch (RuntimeException e) {
+            // 例如恢复快照时数据库被关闭
+            Log.e(TAG, "搜索失败: " + query, e);
+            return FAILED;
+        } finally {
+            PerfMonitor.getInstance().endQuery("db:search", section);
+            synchronized (lock) {
+                if (runningSignal == signal) {
+                    runningSignal = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按相关度从高到低排序，相同时开始时间较晚的在前
+     */
+    private static long[] sortByScore(long[] ids, long[] starts, double[] scores) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Long.compare(starts[b], starts[a]);
+        });
+        long[] sorted = new long[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = ids[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * 按主键从热表或归档取回任务并保持ids的顺序，已删除的任务被跳过
+     */
+    private List<Task> loadTasks(long[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        Map<Long, Task> byId = new HashMap<>(ids.length * 2);
+        for (Task task : TaskArchive.getInstance().loadByIds(database().taskDao(), ids)) {
+            byId.put(task.getId(), task);
+        }
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Task task = byId.get(id);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+}
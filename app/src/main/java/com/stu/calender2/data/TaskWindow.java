@@ -0,0 +1,303 @@
+package com.stu.calender2.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+
+import com.stu.calender2.utils.AppSchedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 物化的任务窗口
+ * 在内存中维护窗口内按开始时间排序的任务列表，首次活跃时查询一次，
+ * 之后直接把TaskChangeBus上的插入/更新/删除应用到列表，并向界面发送最小变更集，
+ * 不再为单个任务的变化重新查询整个窗口。范围未知的批量变更仍会重新查询。
+ * 同一批变更合并为一次Update发送；界面发现版本不连续时应按完整列表重绘
+ */
+public class TaskWindow extends LiveData<TaskWindow.Update> {
+
+    /**
+     * 窗口内容的初始查询，在后台线程执行
+     */
+    public interface Loader {
+        List<Task> load();
+    }
+
+    /**
+     * 判断变更后的任务是否属于该窗口，应与Loader的查询条件一致
+     */
+    public interface Filter {
+        boolean accept(Task task);
+    }
+
+    /**
+     * 对列表的一次操作，位置按操作顺序依次生效
+     */
+    public static final class Op {
+        public enum Kind {
+            INSERT,
+            REMOVE,
+            CHANGE,
+            MOVE
+        }
+
+        public final Kind kind;
+        public final int position;
+        // MOVE的目标位置，其他操作与position相同
+        public final int toPosition;
+
+        private Op(Kind kind, int position, int toPosition) {
+            this.kind = kind;
+            this.position = position;
+            this.toPosition = toPosition;
+        }
+    }
+
+    /**
+     * 发送给界面的一次更新
+     */
+    public static final class Update {
+        private final List<Task> tasks;
+        private final List<Op> ops;
+        private final List<Task> touchedTasks;
+        private final long baseVersion;
+        private final long version;
+        private final boolean reset;
+
+        private Update(List<Task> tasks, List<Op> ops, List<Task> touchedTasks,
+                       long baseVersion, long version, boolean reset) {
+            this.tasks = tasks;
+            this.ops = ops;
+            this.touchedTasks = touchedTasks;
+            this.baseVersion = baseVersion;
+            this.version = version;
+            this.reset = reset;
+        }
+
+        /**
+         * 更新后窗口内的全部任务，只读
+         */
+        public List<Task> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * 相对baseVersion的操作序列，reset时为空
+         */
+        public List<Op> getOps() {
+            return ops;
+        }
+
+        /**
+         * 变更涉及的任务（包括变更前和变更后的状态），用于日历按单元格局部重绘
+         */
+        public List<Task> getTouchedTasks() {
+            return touchedTasks;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * 是否能在appliedVersion的基础上增量应用
+         */
+        public boolean canApplyOn(long appliedVersion) {
+            return !reset && baseVersion == appliedVersion;
+        }
+    }
+
+    // 与查询的ORDER BY startTime一致，开始时间相同时按ID排序
+    static final Comparator<Task> ORDER = (a, b) -> {
+        long ta = a.getStartTime() != null ? a.getStartTime().getTime() : Long.MIN_VALUE;
+        long tb = b.getStartTime() != null ? b.getStartTime().getTime() : Long.MIN_VALUE;
+        if (ta != tb) {
+            return ta < tb ? -1 : 1;
+        }
+        return Long.compare(a.getId(), b.getId());
+    };
+
+    private final Loader loader;
+    private final Filter filter;
+    private final long rangeStart;
+    private final long rangeEnd;
+
+    // 查询和变更都在该串行执行器中处理，保证顺序
+    private final Executor serialExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 以下状态只在串行执行器中访问
+    private final List<Task> tasks = new ArrayList<>();
+    private boolean loaded;
+
+    // 待发送的变更，由串行执行器写入、主线程取出
+    private final Object pendingLock = new Object();
+    private List<Op> pendingOps = new ArrayList<>();
+    private List<Task> pendingTouched = new ArrayList<>();
+    private List<Task> pendingSnapshot;
+    private boolean pendingReset;
+    private boolean emitScheduled;
+
+    // 只在主线程访问
+    private long version;
+
+    private final TaskChangeBus.Listener changeListener = this::onTaskChanged;
+    private final Runnable emitRunnable = this::emit;
+
+    /**
+     * @param rangeStart 窗口的时间范围，用于快速过滤无关的变更
+     */
+    public TaskWindow(Loader loader, Filter filter, long rangeStart, long rangeEnd) {
+        this.loader = loader;
+        this.filter = filter;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        AppSchedulers schedulers = AppSchedulers.getInstance();
+        this.serialExecutor = schedulers.newSerialExecutor(schedulers.io());
+    }
+
+    @Override
+    protected void onActive() {
+        TaskChangeBus.getInstance().subscribe(changeListener);
+        // 非活跃期间没有接收变更，重新活跃时重新查询
+        serialExecutor.execute(this::reload);
+    }
+
+    @Override
+    protected void onInactive() {
+        TaskChangeBus.getInstance().unsubscribe(changeListener);
+        serialExecutor.execute(() -> loaded = false);
+    }
+
+    private void onTaskChanged(TaskChange change) {
+        if (!change.overlaps(rangeStart, rangeEnd)) {
+            return;
+        }
+        serialExecutor.execute(() -> apply(change));
+    }
+
+    private void reload() {
+        List<Task> result = loader.load();
+        tasks.clear();
+        for (Task task : result) {
+            tasks.add(new Task(task));
+        }
+        Collections.sort(tasks, ORDER);
+        loaded = true;
+        synchronized (pendingLock) {
+            pendingOps = new ArrayList<>();
+            pendingTouched = new ArrayList<>();
+            pendingReset = true;
+        }
+        scheduleEmit();
+    }
+
+    /**
+     * 把一次变更应用到列表并记录操作，在串行执行器中调用
+     */
+    private void apply(TaskChange change) {
+        if (!loaded) {
+            // 尚未加载或已非活跃，下次活跃时会重新查询
+            return;
+        }
+        // 重复任务的一次变更可能影响窗口内任意多个实例，而且实例共用主记录的ID，直接重新查询
+        if (change.getType() == TaskChange.Type.BULK || change.isRecurring()) {
+            reload();
+            return;
+        }
+
+        int oldPosition = indexOf(change.getTaskId());
+        Task updated = change.getTask();
+        boolean accepted = updated != null && filter.accept(updated);
+        if (oldPosition < 0 && !accepted) {
+            return;
+        }
+
+        List<Op> ops = new ArrayList<>(2);
+        List<Task> touched = new ArrayList<>(2);
+        if (oldPosition >= 0) {
+            touched.add(tasks.remove(oldPosition));
+        }
+        if (accepted) {
+            Task copy = new Task(updated);
+            int newPosition = insertionPoint(copy);
+            tasks.add(newPosition, copy);
+            touched.add(copy);
+            if (oldPosition < 0) {
+                ops.add(new Op(Op.Kind.INSERT, newPosition, newPosition));
+            } else if (oldPosition == newPosition) {
+                ops.add(new Op(Op.Kind.CHANGE, newPosition, newPosition));
+            } else {
+                ops.add(new Op(Op.Kind.MOVE, oldPosition, newPosition));
+                ops.add(new Op(Op.Kind.CHANGE, newPosition, newPosition));
+            }
+        } else {
+            ops.add(new Op(Op.Kind.REMOVE, oldPosition, oldPosition));
+        }
+
+        synchronized (pendingLock) {
+            pendingOps.addAll(ops);
+            pendingTouched.addAll(touched);
+        }
+        scheduleEmit();
+    }
+
+    private int indexOf(long taskId) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId() == taskId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int insertionPoint(Task task) {
+        int index = Collections.binarySearch(tasks, task, ORDER);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    private void scheduleEmit() {
+        synchronized (pendingLock) {
+            pendingSnapshot = Collections.unmodifiableList(new ArrayList<>(tasks));
+            if (emitScheduled) {
+                return;
+            }
+            emitScheduled = true;
+        }
+        mainHandler.post(emitRunnable);
+    }
+
+    /**
+     * 在主线程发送累计的变更；使用setValue保证每次更新都按顺序送达活跃的观察者
+     */
+    private void emit() {
+        List<Op> ops;
+        List<Task> touched;
+        List<Task> snapshot;
+        boolean reset;
+        synchronized (pendingLock) {
+            ops = pendingOps;
+            touched = pendingTouched;
+            snapshot = pendingSnapshot;
+            reset = pendingReset;
+            pendingOps = new ArrayList<>();
+            pendingTouched = new ArrayList<>();
+            pendingReset = false;
+            emitScheduled = false;
+        }
+        if (!reset && ops.isEmpty()) {
+            return;
+        }
+        long baseVersion = version;
+        version++;
+        setValue(new Update(snapshot,
+                reset ? Collections.<Op>emptyList() : Collections.unmodifiableList(ops),
+                Collections.unmodifiableList(touched), baseVersion, version, reset));
+    }
+}
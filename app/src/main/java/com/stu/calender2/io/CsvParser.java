@@ -0,0 +1,395 @@
+package com.stu.calender2.io;
+
+import com.stu.calender2.data.Task;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CSV（RFC 4180）流式解析器
+ * 第一行为表头，按列名识别字段；支持引号字段、字段内换行和""转义。
+ * 兼容开始日期和开始时间分成两列的导出格式（如Google日历、Outlook）
+ */
+final class CsvParser implements TaskParser {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // 各字段可能的列名，比较前统一转为小写并去掉空格、下划线
+    private static final String[] TITLE_NAMES = {"title", "subject", "summary", "name", "标题", "主题"};
+    private static final String[] START_NAMES = {"start", "startdate", "starttime", "dtstart", "begin", "开始时间", "开始日期"};
+    private static final String[] START_CLOCK_NAMES = {"starttime", "开始时间"};
+    private static final String[] END_NAMES = {"end", "enddate", "endtime", "dtend", "结束时间", "结束日期"};
+    private static final String[] END_CLOCK_NAMES = {"endtime", "结束时间"};
+    private static final String[] LOCATION_NAMES = {"location", "place", "地点"};
+    private static final String[] NOTE_NAMES = {"note", "notes", "description", "备注", "描述"};
+    private static final String[] IMPORTANCE_NAMES = {"importance", "priority", "重要程度", "优先级"};
+    private static final String[] COMPLETED_NAMES = {"completed", "done", "status", "已完成", "是否完成"};
+
+    private final Reader reader;
+    private final char[] buffer = new char[16 * 1024];
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    // 当前记录的字段，跨记录复用
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+
+    private final Calendar calendar = Calendar.getInstance();
+
+    private boolean headerRead;
+    private int titleColumn = -1;
+    private int startColumn = -1;
+    private int startClockColumn = -1;
+    private int endColumn = -1;
+    private int endClockColumn = -1;
+    private int locationColumn = -1;
+    private int noteColumn = -1;
+    private int importanceColumn = -1;
+    private int completedColumn = -1;
+
+    // 最近一次解析的时间是否只有日期
+    private boolean lastDateOnly;
+
+    private int skipped;
+
+    CsvParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Task next() throws IOException {
+        if (!headerRead) {
+            headerRead = true;
+            if (!readRecord()) {
+                return null;
+            }
+            readHeader();
+            if (startColumn < 0) {
+                throw new IOException("CSV缺少开始时间列");
+            }
+        }
+
+        while (readRecord()) {
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                // 空行
+                continue;
+            }
+            long start = parseDateTime(column(startColumn), column(startClockColumn));
+            boolean startDateOnly = lastDateOnly;
+            if (start == NO_TIME) {
+                skipped++;
+                continue;
+            }
+            long end = parseDateTime(column(endColumn), column(endClockColumn));
+            if (end == NO_TIME) {
+                end = startDateOnly ? start + DAY_MS : start;
+            } else if (lastDateOnly) {
+                // 只有日期的结束日期包含当天
+                end += DAY_MS;
+            }
+
+            String title = column(titleColumn);
+            Task task = new Task(title != null ? title : "", new Date(start), new Date(Math.max(start, end)),
+                    emptyToNull(column(locationColumn)), emptyToNull(column(noteColumn)),
+                    parseImportance(column(importanceColumn)));
+            task.setCompleted(parseBoolean(column(completedColumn)));
+            return task;
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    private void readHeader() {
+        List<String> names = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i);
+            if (i == 0 && !name.isEmpty() && name.charAt(0) == '\uFEFF') {
+                name = name.substring(1);
+            }
+            names.add(name.trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("_", ""));
+        }
+        // 开始日期和开始时间分列时，时间列单独记录
+        startColumn = findColumn(names, START_NAMES, -1);
+        startClockColumn = findColumn(names, START_CLOCK_NAMES, startColumn);
+        endColumn = findColumn(names, END_NAMES, -1);
+        endClockColumn = findColumn(names, END_CLOCK_NAMES, endColumn);
+        titleColumn = findColumn(names, TITLE_NAMES, -1);
+        locationColumn = findColumn(names, LOCATION_NAMES, -1);
+        noteColumn = findColumn(names, NOTE_NAMES, -1);
+        importanceColumn = findColumn(names, IMPORTANCE_NAMES, -1);
+        completedColumn = findColumn(names, COMPLETED_NAMES, -1);
+    }
+
+    /**
+     * 按候选名的顺序查找列，跳过exclude列
+     */
+    private static int findColumn(List<String> names, String[] candidates, int exclude) {
+        for (String candidate : candidates) {
+            int index = names.indexOf(candidate);
+            if (index >= 0 && index != exclude) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private String column(int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    /**
+     * 读取一条记录到fields，文件结束时返回false
+     */
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        while (true) {
+            if (position >= limit && !fill()) {
+                if (!any) {
+                    return false;
+                }
+                fields.add(field.toString());
+                return true;
+            }
+            char c = buffer[position++];
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    if (position >= limit && !fill()) {
+                        quoted = false;
+                        continue;
+                    }
+                    if (buffer[position] == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+                continue;
+            }
+            if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    if (position < limit || fill()) {
+                        if (buffer[position] == '\n') {
+                            position++;
+                        }
+                    }
+                }
+                fields.add(field.toString());
+                return true;
+            } else {
+                field.append(c);
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            eof = true;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * 解析日期时间：yyyy-MM-dd、yyyy/MM/dd、MM/dd/yyyy，可带HH:mm[:ss][ AM/PM]，
+     * 日期和时间之间可为空格或T；纯数字按毫秒时间戳处理
+     * @param clock 单独的时间列，可为null
+     */
+    private long parseDateTime(String date, String clock) {
+        lastDateOnly = false;
+        if (date == null) {
+            return NO_TIME;
+        }
+        String text = date.trim();
+        if (text.isEmpty()) {
+            return NO_TIME;
+        }
+        if (text.length() > 8 && isAllDigits(text)) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return NO_TIME;
+            }
+        }
+
+        // 切分日期中的数字
+        int[] parts = new int[3];
+        int count = 0;
+        int i = 0;
+        int firstLength = 0;
+        while (i < text.length() && count < 3) {
+            int begin = i;
+            int value = 0;
+            while (i < text.length() && Character.isDigit(text.charAt(i))) {
+                value = value * 10 + (text.charAt(i) - '0');
+                i++;
+            }
+            if (i == begin) {
+                return NO_TIME;
+            }
+            if (count == 0) {
+                firstLength = i - begin;
+            }
+            parts[count++] = value;
+            if (count < 3) {
+                if (i >= text.length() || (text.charAt(i) != '-' && text.charAt(i) != '/' && text.charAt(i) != '.')) {
+                    return NO_TIME;
+                }
+                i++;
+            }
+        }
+        if (count < 3) {
+            return NO_TIME;
+        }
+        int year;
+        int month;
+        int day;
+        if (firstLength == 4) {
+            year = parts[0];
+            month = parts[1];
+            day = parts[2];
+        } else {
+            // 美式日期 MM/dd/yyyy
+            month = parts[0];
+            day = parts[1];
+            year = parts[2];
+        }
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_TIME;
+        }
+
+        String time = null;
+        if (i < text.length()) {
+            time = text.substring(i + 1);
+        } else if (clock != null && !clock.trim().isEmpty()) {
+            time = clock;
+        }
+        int[] hms = {0, 0, 0};
+        if (time == null) {
+            lastDateOnly = true;
+        } else if (!parseClock(time.trim(), hms)) {
+            return NO_TIME;
+        }
+
+        calendar.clear();
+        calendar.set(year, month - 1, day, hms[0], hms[1], hms[2]);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 解析HH:mm[:ss][ AM/PM]
+     */
+    private static boolean parseClock(String text, int[] hms) {
+        int i = 0;
+        int part = 0;
+        while (i < text.length() && part < 3) {
+            int begin = i;
+            int value = 0;
+            while (i < text.length() && Character.isDigit(text.charAt(i))) {
+                value = value * 10 + (text.charAt(i) - '0');
+                i++;
+            }
+            if (i == begin) {
+                break;
+            }
+            hms[part++] = value;
+            if (i < text.length() && text.charAt(i) == ':') {
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (part < 2) {
+            return false;
+        }
+        String suffix = text.substring(i).trim().toUpperCase(Locale.ROOT);
+        if (suffix.startsWith("PM") && hms[0] < 12) {
+            hms[0] += 12;
+        } else if (suffix.startsWith("AM") && hms[0] == 12) {
+            hms[0] = 0;
+        }
+        return hms[0] < 24 && hms[1] < 60 && hms[2] < 60;
+    }
+
+    /**
+     * 重要程度列：1-4直接使用，也接受高/中/低
+     */
+    private static int parseImportance(String value) {
+        if (value == null) {
+            return 4;
+        }
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        switch (text) {
+            case "high":
+            case "高":
+                return 1;
+            case "medium":
+            case "normal":
+            case "中":
+                return 2;
+            case "low":
+            case "低":
+                return 4;
+            default:
+                try {
+                    int importance = Integer.parseInt(text);
+                    return importance >= 1 && importance <= 4 ? importance : 4;
+                } catch (NumberFormatException e) {
+                    return 4;
+                }
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (value == null) {
+            return false;
+        }
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        return text.equals("1") || text.equals("true") || text.equals("yes") || text.equals("y")
+                || text.equals("completed") || text.equals("done") || text.equals("是") || text.equals("已完成");
+    }
+
+    private static boolean isAllDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
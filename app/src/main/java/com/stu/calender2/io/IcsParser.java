@@ -0,0 +1,409 @@
+package com.stu.calender2.io;
+
+import com.stu.calender2.data.Recurrence;
+import com.stu.calender2.data.Task;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * iCalendar（RFC 5545）流式解析器
+ * 逐行读取并合并折行，只保留当前VEVENT/VTODO的字段，文件大小不影响内存占用。
+ * 嵌套组件（如VALARM）中的属性会被忽略
+ */
+final class IcsParser implements TaskParser {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    // 没有时间的标记值
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final BufferedReader reader;
+
+    // 预读的下一物理行，用于判断折行
+    private String lookahead;
+    private boolean hasLookahead;
+    private final StringBuilder unfolded = new StringBuilder();
+
+    // 日期解析复用的日历，按时区缓存
+    private final Calendar localCalendar = Calendar.getInstance();
+    private final Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private final Map<String, Calendar> zoneCalendars = new HashMap<>();
+
+    // 最近一次解析的时间是否只有日期
+    private boolean lastDateOnly;
+
+    private int skipped;
+
+    IcsParser(Reader reader) {
+        this.reader = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader, 16 * 1024);
+    }
+
+    @Override
+    public Task next() throws IOException {
+        boolean inComponent = false;
+        int nestedDepth = 0;
+
+        String title = null;
+        String location = null;
+        String note = null;
+        long start = NO_TIME;
+        long end = NO_TIME;
+        long duration = NO_TIME;
+        boolean startDateOnly = false;
+        int priority = 0;
+        boolean completed = false;
+        String rule = null;
+        StringBuilder exceptions = new StringBuilder();
+
+        String line;
+        while ((line = readLogicalLine()) != null) {
+            if (!inComponent) {
+                if (line.equalsIgnoreCase("BEGIN:VEVENT") || line.equalsIgnoreCase("BEGIN:VTODO")) {
+                    inComponent = true;
+                    nestedDepth = 0;
+                    title = location = note = null;
+                    start = end = duration = NO_TIME;
+                    startDateOnly = false;
+                    priority = 0;
+                    completed = false;
+                    rule = null;
+                    exceptions.setLength(0);
+                }
+                continue;
+            }
+
+            if (startsWithIgnoreCase(line, "BEGIN:")) {
+                nestedDepth++;
+                continue;
+            }
+            if (startsWithIgnoreCase(line, "END:")) {
+                if (nestedDepth > 0) {
+                    nestedDepth--;
+                    continue;
+                }
+                inComponent = false;
+                if (start == NO_TIME) {
+                    skipped++;
+                    continue;
+                }
+                if (end == NO_TIME) {
+                    if (duration != NO_TIME) {
+                        end = start + duration;
+                    } else {
+                        // RFC 5545：只有日期的事件默认持续一天，带时间的事件结束于开始时间
+                        end = startDateOnly ? start + DAY_MS : start;
+                    }
+                }
+                Task task = new Task(title != null ? title : "", new Date(start),
+                        new Date(Math.max(start, end)), location, note, importanceOf(priority));
+                task.setCompleted(completed);
+                if (rule != null) {
+                    task.setRecurrenceRule(rule);
+                    if (exceptions.length() > 0) {
+                        task.setRecurrenceExceptions(exceptions.toString());
+                    }
+                }
+                return task;
+            }
+            if (nestedDepth > 0) {
+                continue;
+            }
+
+            // 属性格式：NAME;PARAM=...;PARAM="...":VALUE，引号内的冒号不是分隔符
+            int colon = -1;
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == ':' && !quoted) {
+                    colon = i;
+                    break;
+                }
+            }
+            if (colon < 0) {
+                continue;
+            }
+            int semicolon = line.indexOf(';');
+            int nameEnd = semicolon >= 0 && semicolon < colon ? semicolon : colon;
+            String name = line.substring(0, nameEnd).toUpperCase(Locale.ROOT);
+            String params = nameEnd < colon ? line.substring(nameEnd + 1, colon) : null;
+            String value = line.substring(colon + 1);
+
+            switch (name) {
+                case "SUMMARY":
+                    title = unescape(value);
+                    break;
+                case "LOCATION":
+                    location = unescape(value);
+                    break;
+                case "DESCRIPTION":
+                    note = unescape(value);
+                    break;
+                case "DTSTART":
+                    start = parseDateTime(value, params);
+                    startDateOnly = lastDateOnly;
+                    break;
+                case "DTEND":
+                case "DUE":
+                    end = parseDateTime(value, params);
+                    break;
+                case "DURATION":
+                    duration = parseDuration(value);
+                    break;
+                case "PRIORITY":
+                    priority = parseInt(value, 0);
+                    break;
+                case "STATUS":
+                    completed = completed || value.equalsIgnoreCase("COMPLETED");
+                    break;
+                case "COMPLETED":
+                    completed = true;
+                    break;
+                case "RRULE":
+                    // 不支持的规则按单次任务导入，避免展开出错误的实例
+                    Recurrence recurrence = Recurrence.parse(value);
+                    rule = recurrence != null ? recurrence.toRule() : null;
+                    break;
+                case "EXDATE":
+                    for (String exdate : value.split(",")) {
+                        long time = parseDateTime(exdate, params);
+                        if (time != NO_TIME) {
+                            if (exceptions.length() > 0) {
+                                exceptions.append(',');
+                            }
+                            exceptions.append(time);
+                        }
+                    }
+                    break;
+                case "X-CALENDER2-COMPLETED":
+                    // 本应用导出时记录的完成状态
+                    completed = completed || value.trim().equalsIgnoreCase("TRUE");
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (inComponent) {
+            // 文件在组件中间结束
+            skipped++;
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * 读取一个逻辑行：以空格或制表符开头的后续物理行属于上一行
+     */
+    private String readLogicalLine() throws IOException {
+        String first = hasLookahead ? lookahead : reader.readLine();
+        hasLookahead = false;
+        if (first == null) {
+            return null;
+        }
+        String next = reader.readLine();
+        if (!isContinuation(next)) {
+            lookahead = next;
+            hasLookahead = true;
+            return first;
+        }
+        unfolded.setLength(0);
+        unfolded.append(first);
+        while (isContinuation(next)) {
+            unfolded.append(next, 1, next.length());
+            next = reader.readLine();
+        }
+        lookahead = next;
+        hasLookahead = true;
+        return unfolded.toString();
+    }
+
+    private static boolean isContinuation(String line) {
+        return line != null && !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t');
+    }
+
+    /**
+     * 解析DATE或DATE-TIME值：yyyyMMdd、yyyyMMddTHHmmss、yyyyMMddTHHmmssZ，支持TZID参数
+     */
+    private long parseDateTime(String value, String params) {
+        lastDateOnly = false;
+        String text = value.trim();
+        if (text.length() < 8) {
+            return NO_TIME;
+        }
+        int year = parseDigits(text, 0, 4);
+        int month = parseDigits(text, 4, 6);
+        int day = parseDigits(text, 6, 8);
+        if (year < 0 || month < 1 || day < 1) {
+            return NO_TIME;
+        }
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        boolean utc = false;
+        if (text.length() >= 15 && text.charAt(8) == 'T') {
+            hour = parseDigits(text, 9, 11);
+            minute = parseDigits(text, 11, 13);
+            second = parseDigits(text, 13, 15);
+            if (hour < 0 || minute < 0 || second < 0) {
+                return NO_TIME;
+            }
+            utc = text.length() > 15 && (text.charAt(15) == 'Z' || text.charAt(15) == 'z');
+        } else {
+            lastDateOnly = true;
+        }
+
+        Calendar calendar = utc ? utcCalendar : calendarFor(paramValue(params, "TZID"));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    private Calendar calendarFor(String tzid) {
+        if (tzid == null) {
+            return localCalendar;
+        }
+        Calendar calendar = zoneCalendars.get(tzid);
+        if (calendar == null) {
+            TimeZone zone = TimeZone.getTimeZone(tzid);
+            // 无法识别的时区ID会返回GMT，此时按本地时间处理
+            if ("GMT".equals(zone.getID()) && !tzid.toUpperCase(Locale.ROOT).contains("GMT")
+                    && !tzid.toUpperCase(Locale.ROOT).contains("UTC")) {
+                calendar = localCalendar;
+            } else {
+                calendar = Calendar.getInstance(zone);
+            }
+            zoneCalendars.put(tzid, calendar);
+        }
+        return calendar;
+    }
+
+    /**
+     * 解析DURATION值，例如P1D、PT1H30M、P2W、-PT15M
+     */
+    private static long parseDuration(String value) {
+        String text = value.trim();
+        int i = 0;
+        boolean negative = false;
+        if (i < text.length() && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i >= text.length() || text.charAt(i) != 'P') {
+            return NO_TIME;
+        }
+        i++;
+        long total = 0;
+        long number = 0;
+        boolean hasNumber = false;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                hasNumber = true;
+                continue;
+            }
+            if (c == 'T') {
+                continue;
+            }
+            if (!hasNumber) {
+                return NO_TIME;
+            }
+            switch (c) {
+                case 'W': total += number * 7 * DAY_MS; break;
+                case 'D': total += number * DAY_MS; break;
+                case 'H': total += number * 60 * 60 * 1000; break;
+                case 'M': total += number * 60 * 1000; break;
+                case 'S': total += number * 1000; break;
+                default: return NO_TIME;
+            }
+            number = 0;
+            hasNumber = false;
+        }
+        return negative ? -total : total;
+    }
+
+    /**
+     * 把iCalendar优先级（1最高，9最低，0未定义）映射为四象限重要程度
+     */
+    private static int importanceOf(int priority) {
+        if (priority >= 1 && priority <= 2) return 1;
+        if (priority >= 3 && priority <= 4) return 2;
+        if (priority >= 5 && priority <= 6) return 3;
+        return 4;
+    }
+
+    private static String paramValue(String params, String key) {
+        if (params == null) {
+            return null;
+        }
+        for (String param : params.split(";")) {
+            int eq = param.indexOf('=');
+            if (eq > 0 && param.substring(0, eq).equalsIgnoreCase(key)) {
+                String value = param.substring(eq + 1);
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 还原TEXT值中的转义：\n \, \; \\
+     */
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                sb.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int parseDigits(String text, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(String text, String prefix) {
+        return text.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+}
@@ -0,0 +1,404 @@
+package com.stu.calender2.io;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.data.AppDatabase;
+import com.stu.calender2.data.TaskChangeBus;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.DatabaseOptimizer;
+import com.stu.calender2.utils.PerfMonitor;
+import com.stu.calender2.utils.PowerBudget;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 数据库快照工具类
+ * Auto Backup直接复制WAL模式下正在使用的数据库文件，可能得到不一致的副本。
+ * 快照在数据库写入通道中生成一致的数据库副本并gzip压缩：SQLite 3.27及以上使用VACUUM INTO，
+ * 同时去除空闲页；更早的版本在写事务中执行WAL检查点并复制主文件。
+ * 恢复时先解压并校验，再原子替换数据库文件并重新打开，不需要重启进程
+ */
+public class SnapshotManager {
+    private static final String TAG = "SnapshotManager";
+
+    // 单例模式
+    private static volatile SnapshotManager instance;
+
+    // 快照目录，位于filesDir下，由备份规则包含
+    public static final String SNAPSHOT_DIR = "snapshots";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".db.gz";
+
+    // 保留的快照数量
+    private static final int MAX_SNAPSHOTS = 5;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 快照或恢复持有WakeLock的上限
+    private static final long WAKE_TIMEOUT_MS = 60_000;
+
+    /**
+     * 快照完成回调，在主线程调用；失败时result.isSuccess()为false
+     */
+    public interface SnapshotCallback {
+        void onComplete(Result result);
+    }
+
+    /**
+     * 快照或恢复的结果
+     */
+    public static final class Result {
+        private final boolean success;
+        private final File file;
+        private final long databaseBytes;
+        private final long compressedBytes;
+        private final long durationMs;
+        private final String error;
+
+        Result(boolean success, File file, long databaseBytes, long compressedBytes,
+               long durationMs, String error) {
+            this.success = success;
+            this.file = file;
+            this.databaseBytes = databaseBytes;
+            this.compressedBytes = compressedBytes;
+            this.durationMs = durationMs;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * 快照文件
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * 未压缩的数据库大小
+         */
+        public long getDatabaseBytes() {
+            return databaseBytes;
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "数据库%dKB，压缩后%dKB，耗时%dms%s",
+                    databaseBytes / 1024, compressedBytes / 1024, durationMs,
+                    error != null ? "，错误: " + error : "");
+        }
+    }
+
+    private final Context context;
+
+    private SnapshotManager() {
+        context = MyApplication.getInstance();
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static SnapshotManager getInstance() {
+        if (instance == null) {
+            synchronized (SnapshotManager.class) {
+                if (instance == null) {
+                    instance = new SnapshotManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 数据库写入通道，执行期间持有WakeLock；进入后台时的快照不会因设备休眠中断
+     */
+    private Executor snapshotExecutor() {
+        return PowerBudget.getInstance().wrapExecutor(
+                AppSchedulers.getInstance().dbWrite(), "snapshot", WAKE_TIMEOUT_MS);
+    }
+
+    /**
+     * 在数据库写入通道中生成快照，回调在主线程执行
+     * @param callback 可为null
+     */
+    public void createSnapshot(SnapshotCallback callback) {
+        snapshotExecutor().execute(() -> deliver(callback, createSnapshotBlocking()));
+    }
+
+    /**
+     * 最新快照早于maxAgeMs时生成新快照，用于在应用进入后台时定期备份
+     */
+    public void createSnapshotIfStale(long maxAgeMs) {
+        snapshotExecutor().execute(() -> {
+            List<File> snapshots = listSnapshots();
+            if (!snapshots.isEmpty()
+                    && System.currentTimeMillis() - snapshots.get(0).lastModified() < maxAgeMs) {
+                return;
+            }
+            createSnapshotBlocking();
+        });
+    }
+
+    /**
+     * 数据库文件不存在（例如重装后从系统备份恢复了快照目录）时，用最新快照恢复
+     * 在首次打开数据库之前调用
+     * @return 是否执行了恢复
+     */
+    public boolean restoreLatestIfDatabaseMissing() {
+        if (context.getDatabasePath(AppDatabase.DATABASE_NAME).exists()) {
+            return false;
+        }
+        List<File> snapshots = listSnapshots();
+        return !snapshots.isEmpty() && restoreSnapshotBlocking(snapshots.get(0)).isSuccess();
+    }
+
+    /**
+     * 已有的快照，最新的在前
+     */
+    public List<File> listSnapshots() {
+        File[] files = getSnapshotDir().listFiles((dir, name) ->
+                name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        // 文件名中的时间戳按字典序即按时间排序
+        Arrays.sort(files, (a, b) -> b.getName().compareTo(a.getName()));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * 生成快照，应在数据库写入通道调用
+     */
+    Result createSnapshotBlocking() {
+        long startTime = System.currentTimeMillis();
+        long section = PerfMonitor.getInstance().beginSection("snapshot:create");
+        File raw = new File(context.getCacheDir(), "snapshot.db");
+        String name = SNAPSHOT_PREFIX
+                + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + SNAPSHOT_SUFFIX;
+        File target = new File(getSnapshotDir(), name);
+        File temp = new File(target.getPath() + ".tmp");
+        try {
+            deleteIfExists(raw);
+            AppDatabase database = MyApplication.getInstance().getDatabase();
+            if (supportsVacuumInto(database.getOpenHelper().getWritableDatabase())) {
+                vacuumInto(database, raw);
+            } else {
+                checkpointAndCopy(database, raw);
+            }
+            long databaseBytes = raw.length();
+
+            File dir = getSnapshotDir();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("无法创建目录: " + dir);
+            }
+            try (InputStream input = new FileInputStream(raw);
+                 FileOutputStream fileOutput = new FileOutputStream(temp);
+                 GZIPOutputStream output = new GZIPOutputStream(fileOutput, BUFFER_SIZE)) {
+                copy(input, output);
+                output.finish();
+                fileOutput.getFD().sync();
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("无法写入: " + target);
+            }
+            pruneSnapshots();
+
+            Result result = new Result(true, target, databaseBytes, target.length(),
+                    System.currentTimeMillis() - startTime, null);
+            AppLog.i(TAG, () -> "快照完成: " + target.getName() + "，" + result);
+            return result;
+        } catch (Exception e) {
+            Log.e(TAG, "生成快照失败", e);
+            deleteIfExists(temp);
+            return new Result(false, null, 0, 0, System.currentTimeMillis() - startTime,
+                    e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            deleteIfExists(raw);
+            PerfMonitor.getInstance().endSection("snapshot:create", section);
+        }
+    }
+
+    /**
+     * 用快照恢复数据库，在首次打开数据库之前或数据库写入通道中调用
+     */
+    Result restoreSnapshotBlocking(File snapshot) {
+        long startTime = System.currentTimeMillis();
+        long section = PerfMonitor.getInstance().beginSection("snapshot:restore");
+        // 解压到数据库目录，与数据库文件在同一文件系统上才能原子替换
+        File databaseFile = context.getDatabasePath(AppDatabase.DATABASE_NAME);
+        File restored = new File(databaseFile.getPath() + ".restore");
+        try {
+            try (InputStream input = new GZIPInputStream(new FileInputStream(snapshot), BUFFER_SIZE);
+                 FileOutputStream output = new FileOutputStream(restored)) {
+                copy(input, output);
+                output.getFD().sync();
+            }
+            long databaseBytes = restored.length();
+            validate(restored);
+
+            AppDatabase.replaceDatabaseFile(context, restored);
+
+            // 缓存和所有查询窗口都基于旧数据
+            DatabaseOptimizer.getInstance().clearCache();
+            TaskChangeBus.getInstance().publishBulk();
+
+            Result result = new Result(true, snapshot, databaseBytes, snapshot.length(),
+                    System.currentTimeMillis() - startTime, null);
+            AppLog.i(TAG, () -> "已从快照恢复: " + snapshot.getName() + "，" + result);
+            return result;
+        } catch (Exception e) {
+            Log.e(TAG, "恢复快照失败", e);
+            return new Result(false, snapshot, 0, snapshot.length(), System.currentTimeMillis() - startTime,
+                    e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            deleteIfExists(restored);
+            PerfMonitor.getInstance().endSection("snapshot:restore", section);
+        }
+    }
+
+    private File getSnapshotDir() {
+        return new File(context.getFilesDir(), SNAPSHOT_DIR);
+    }
+
+    /**
+     * VACUUM INTO需要SQLite 3.27及以上（Android 11起内置）
+     */
+    private static boolean supportsVacuumInto(SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query("SELECT sqlite_version()")) {
+            if (!cursor.moveToFirst()) {
+                return false;
+            }
+            String[] parts = cursor.getString(0).split("\\.");
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major > 3 || (major == 3 && minor >= 27);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 用VACUUM INTO生成紧凑的一致副本，读事务期间不阻塞写入
+     */
+    private static void vacuumInto(AppDatabase database, File target) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("VACUUM INTO '" + target.getAbsolutePath().replace("'", "''") + "'");
+    }
+
+    /**
+     * 旧版SQLite的回退方案：先开启写事务取得写锁，再用检查点把WAL写回主文件并复制主文件。
+     * 从检查点到复制结束都持有写锁，其他连接无法在两者之间提交，复制到的是一致的状态
+     */
+    private void checkpointAndCopy(AppDatabase database, File target) throws IOException {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        File source = context.getDatabasePath(AppDatabase.DATABASE_NAME);
+        database.beginTransaction();
+        try {
+            try (Cursor cursor = db.query("PRAGMA wal_checkpoint(TRUNCATE)")) {
+                // 第一列非0表示有读者占用WAL，检查点没有完成，主文件不完整
+                if (cursor.moveToFirst() && cursor.getInt(0) != 0) {
+                    throw new IOException("WAL检查点未完成");
+                }
+            }
+            try (InputStream input = new FileInputStream(source);
+                 OutputStream output = new FileOutputStream(target)) {
+                copy(input, output);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * 恢复前检查快照是完整的数据库，且不是来自更新的数据库版本
+     */
+    private static void validate(File file) throws IOException {
+        SQLiteDatabase db;
+        try {
+            db = SQLiteDatabase.openDatabase(file.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        } catch (Exception e) {
+            throw new IOException("快照不是有效的数据库", e);
+        }
+        try {
+            try (Cursor cursor = db.rawQuery("PRAGMA quick_check", null)) {
+                if (!cursor.moveToFirst() || !"ok".equalsIgnoreCase(cursor.getString(0))) {
+                    throw new IOException("快照校验失败");
+                }
+            }
+            try (Cursor cursor = db.rawQuery(
+                    "SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'tasks'", null)) {
+                if (!cursor.moveToFirst()) {
+                    throw new IOException("快照中没有任务表");
+                }
+            }
+            int version = db.getVersion();
+            if (version > AppDatabase.VERSION) {
+                throw new IOException("快照来自更新的版本: " + version);
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    private void pruneSnapshots() {
+        List<File> snapshots = listSnapshots();
+        for (int i = MAX_SNAPSHOTS; i < snapshots.size(); i++) {
+            deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+    }
+
+    private static void deleteIfExists(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "无法删除: " + file);
+        }
+    }
+
+    private static void deliver(SnapshotCallback callback, Result result) {
+        if (callback != null) {
+            MyApplication.getInstance().postToMainThread(() -> callback.onComplete(result));
+        }
+    }
+}
@@ -0,0 +1,582 @@
+package com.stu.calender2.io;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.data.AppDatabase;
+import com.stu.calender2.data.Recurrence;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PerfMonitor;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 任务导出工具类
+ * 用原始Cursor按startTime顺序逐行遍历tasks表，每行直接编码进固定大小的缓冲区，
+ * 缓冲区满时写入FileChannel。内存占用与任务数量无关，不会把全部任务转换为Task对象。
+ * 目标是ACTION_CREATE_DOCUMENT返回的Uri，通过其文件描述符直接写入；
+ * 导出失败时删除该文档，不会留下半个文件
+ */
+public class TaskExporter {
+    private static final String TAG = "TaskExporter";
+
+    // 单例模式
+    private static volatile TaskExporter instance;
+
+    // 输出缓冲区大小
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 每导出多少行回调一次进度
+    private static final int PROGRESS_INTERVAL = 2000;
+
+    // ICS内容行的最大字节数（不含换行），超过时折行
+    private static final int ICS_LINE_OCTETS = 75;
+
+    /**
+     * 导出文件格式
+     */
+    public enum Format {
+        ICS("ics"),
+        JSON_LINES("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * 导出进度，在主线程回调
+     */
+    public interface ProgressListener {
+        void onProgress(int exported, int total);
+    }
+
+    /**
+     * 导出完成回调，在主线程调用
+     */
+    public interface ExportCallback {
+        void onComplete(Result result);
+    }
+
+    /**
+     * 导出结果
+     */
+    public static final class Result {
+        private final boolean success;
+        private final Uri target;
+        private final int exported;
+        private final long bytesWritten;
+        private final long durationMs;
+        private final String error;
+
+        Result(boolean success, Uri target, int exported, long bytesWritten, long durationMs, String error) {
+            this.success = success;
+            this.target = target;
+            this.exported = exported;
+            this.bytesWritten = bytesWritten;
+            this.durationMs = durationMs;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public Uri getTarget() {
+            return target;
+        }
+
+        public int getExported() {
+            return exported;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "导出%d条，写入%dKB，耗时%dms%s",
+                    exported, bytesWritten / 1024, durationMs, error != null ? "，错误: " + error : "");
+        }
+    }
+
+    private TaskExporter() {
+        // 私有构造函数
+    }
+
+    // 当前数据库实例，恢复快照后数据库会重新打开，因此不缓存实例
+    private AppDatabase database() {
+        return MyApplication.getInstance().getDatabase();
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static TaskExporter getInstance() {
+        if (instance == null) {
+            synchronized (TaskExporter.class) {
+                if (instance == null) {
+                    instance = new TaskExporter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在IO通道中异步导出，回调在主线程执行
+     * @param target ACTION_CREATE_DOCUMENT返回的文档Uri
+     * @param listener 进度监听，可为null
+     */
+    public void exportAsync(Uri target, Format format, ProgressListener listener, ExportCallback callback) {
+        AppSchedulers.getInstance().io().execute(() -> {
+            Result result = exportBlocking(target, format, listener);
+            if (callback != null) {
+                MyApplication.getInstance().postToMainThread(() -> callback.onComplete(result));
+            }
+        });
+    }
+
+    /**
+     * 在当前线程导出到target，不能在主线程调用
+     * @param listener 进度监听，在主线程回调，可为null
+     */
+    public Result exportBlocking(Uri target, Format format, ProgressListener listener) {
+        long startTime = System.currentTimeMillis();
+        String sectionName = "export:" + format.getExtension();
+        long section = PerfMonitor.getInstance().beginSection(sectionName);
+
+        int[] exported = new int[1];
+        long bytesWritten = 0;
+        String error = null;
+        try (ParcelFileDescriptor descriptor = openForWrite(target);
+             FileOutputStream output = new FileOutputStream(descriptor.getFileDescriptor())) {
+            bytesWritten = writeAll(output.getChannel(), format, listener, exported);
+        } catch (Exception e) {
+            Log.e(TAG, "导出失败", e);
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            PerfMonitor.getInstance().endSection(sectionName, section);
+        }
+
+        if (error != null) {
+            deleteQuietly(target);
+        }
+
+        Result result = new Result(error == null, target, exported[0], bytesWritten,
+                System.currentTimeMillis() - startTime, error);
+        AppLog.i(TAG, result.toString());
+        return result;
+    }
+
+    /**
+     * 以"wt"模式打开，覆盖已有文档时先清空旧内容
+     */
+    private ParcelFileDescriptor openForWrite(Uri target) throws FileNotFoundException {
+        ParcelFileDescriptor descriptor = MyApplication.getInstance().getContentResolver()
+                .openFileDescriptor(target, "wt");
+        if (descriptor == null) {
+            throw new FileNotFoundException(target.toString());
+        }
+        return descriptor;
+    }
+
+    /**
+     * 删除导出失败的文档，提供方不支持删除时保留
+     */
+    private void deleteQuietly(Uri target) {
+        try {
+            DocumentsContract.deleteDocument(MyApplication.getInstance().getContentResolver(), target);
+        } catch (Exception e) {
+            Log.w(TAG, "无法删除导出失败的文档: " + target, e);
+        }
+    }
+
+    /**
+     * 遍历所有任务写入channel并落盘，返回写入的字节数
+     * @param exported 输出参数，已导出的任务数，出错时为出错前的数量
+     */
+    private long writeAll(FileChannel channel, Format format, ProgressListener listener,
+                          int[] exported) throws IOException {
+        try (Cursor cursor = database().taskDao().getAllTasksCursor()) {
+            ChannelWriter writer = new ChannelWriter(channel);
+            RecordWriter records = format == Format.ICS ? new IcsWriter(writer) : new JsonLinesWriter(writer);
+
+            int idColumn = cursor.getColumnIndexOrThrow("id");
+            int titleColumn = cursor.getColumnIndexOrThrow("title");
+            int startColumn = cursor.getColumnIndexOrThrow("startTime");
+            int endColumn = cursor.getColumnIndexOrThrow("endTime");
+            int locationColumn = cursor.getColumnIndexOrThrow("location");
+            int noteColumn = cursor.getColumnIndexOrThrow("note");
+            int importanceColumn = cursor.getColumnIndexOrThrow("importance");
+            int completedColumn = cursor.getColumnIndexOrThrow("completed");
+            int ruleColumn = cursor.getColumnIndexOrThrow("recurrenceRule");
+            int exceptionsColumn = cursor.getColumnIndexOrThrow("recurrenceExceptions");
+            int total = cursor.getCount();
+
+            records.begin();
+            while (cursor.moveToNext()) {
+                records.write(cursor.getLong(idColumn),
+                        cursor.getString(titleColumn),
+                        cursor.isNull(startColumn) ? Long.MIN_VALUE : cursor.getLong(startColumn),
+                        cursor.isNull(endColumn) ? Long.MIN_VALUE : cursor.getLong(endColumn),
+                        cursor.getString(locationColumn),
+                        cursor.getString(noteColumn),
+                        cursor.getInt(importanceColumn),
+                        cursor.getInt(completedColumn) != 0,
+                        cursor.getString(ruleColumn),
+                        cursor.getString(exceptionsColumn));
+                exported[0]++;
+                if (listener != null && exported[0] % PROGRESS_INTERVAL == 0) {
+                    final int progress = exported[0];
+                    MyApplication.getInstance().postToMainThread(() -> listener.onProgress(progress, total));
+                }
+            }
+            records.end();
+            writer.flush();
+            return writer.getBytesWritten();
+        }
+    }
+
+    /**
+     * 把字符编码为UTF-8写入固定大小的缓冲区，缓冲区满时写入通道
+     */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private long bytesWritten;
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void append(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    try {
+                        result.throwException();
+                    } catch (CharacterCodingException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+            encoder.reset();
+        }
+
+        void flush() throws IOException {
+            drain();
+            channel.force(false);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+    }
+
+    /**
+     * 一种导出格式的记录写入器，时间缺失时为Long.MIN_VALUE
+     */
+    private interface RecordWriter {
+        void begin() throws IOException;
+
+        void write(long id, String title, long start, long end, String location, String note,
+                   int importance, boolean completed, String recurrenceRule,
+                   String recurrenceExceptions) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * iCalendar格式，每个任务一个VEVENT，时间统一写为UTC
+     */
+    private static final class IcsWriter implements RecordWriter {
+        private final ChannelWriter writer;
+        private final StringBuilder line = new StringBuilder(256);
+        private final StringBuilder folded = new StringBuilder(256);
+        private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        private final String stamp;
+
+        IcsWriter(ChannelWriter writer) {
+            this.writer = writer;
+            StringBuilder sb = new StringBuilder(16);
+            appendUtc(sb, System.currentTimeMillis());
+            this.stamp = sb.toString();
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.append("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//stu//calender2//CN\r\n");
+        }
+
+        @Override
+        public void write(long id, String title, long start, long end, String location, String note,
+                          int importance, boolean completed, String recurrenceRule,
+                          String recurrenceExceptions) throws IOException {
+            if (start == Long.MIN_VALUE) {
+                // 没有开始时间的任务无法表示为VEVENT
+                return;
+            }
+            writer.append("BEGIN:VEVENT\r\n");
+            line.setLength(0);
+            line.append("UID:task-").append(id).append("@calender2");
+            writeLine();
+            line.setLength(0);
+            line.append("DTSTAMP:");
+            line.append(stamp);
+            writeLine();
+            line.setLength(0);
+            line.append("DTSTART:");
+            appendUtc(line, start);
+            writeLine();
+            if (end != Long.MIN_VALUE) {
+                line.setLength(0);
+                line.append("DTEND:");
+                appendUtc(line, Math.max(start, end));
+                writeLine();
+            }
+            writeText("SUMMARY:", title);
+            writeText("LOCATION:", location);
+            writeText("DESCRIPTION:", note);
+            line.setLength(0);
+            line.append("PRIORITY:").append(priorityOf(importance));
+            writeLine();
+            if (completed) {
+                writer.append("X-CALENDER2-COMPLETED:TRUE\r\n");
+            }
+            if (recurrenceRule != null) {
+                // 重复任务导出为一个带RRULE的VEVENT，不展开实例
+                line.setLength(0);
+                line.append("RRULE:").append(recurrenceRule);
+                writeLine();
+                long[] exceptions = Recurrence.parseExceptions(recurrenceExceptions);
+                if (exceptions.length > 0) {
+                    line.setLength(0);
+                    line.append("EXDATE:");
+                    for (int i = 0; i < exceptions.length; i++) {
+                        if (i > 0) line.append(',');
+                        appendUtc(line, exceptions[i]);
+                    }
+                    writeLine();
+                }
+            }
+            writer.append("END:VEVENT\r\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.append("END:VCALENDAR\r\n");
+        }
+
+        private void writeText(String name, String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            line.setLength(0);
+            line.append(name);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\': line.append("\\\\"); break;
+                    case ';': line.append("\\;"); break;
+                    case ',': line.append("\\,"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': break;
+                    default: line.append(c);
+                }
+            }
+            writeLine();
+        }
+
+        /**
+         * 按UTF-8字节数折行后写出line，续行以空格开头，不拆开代理对
+         */
+        private void writeLine() throws IOException {
+            folded.setLength(0);
+            int octets = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                int size;
+                if (c < 0x80) {
+                    size = 1;
+                } else if (c < 0x800) {
+                    size = 2;
+                } else if (Character.isHighSurrogate(c)) {
+                    size = 4;
+                } else if (Character.isLowSurrogate(c)) {
+                    size = 0;
+                } else {
+                    size = 3;
+                }
+                if (size > 0 && octets + size > ICS_LINE_OCTETS) {
+                    folded.append("\r\n ");
+                    octets = 1;
+                }
+                folded.append(c);
+                octets += size;
+            }
+            folded.append("\r\n");
+            writer.append(folded);
+        }
+
+        /**
+         * 与导入时的映射对应：1、3、5、9
+         */
+        private static int priorityOf(int importance) {
+            switch (importance) {
+                case 1: return 1;
+                case 2: return 3;
+                case 3: return 5;
+                default: return 9;
+            }
+        }
+
+        private void appendUtc(StringBuilder sb, long time) {
+            utc.setTimeInMillis(time);
+            appendPadded(sb, utc.get(Calendar.YEAR), 4);
+            appendPadded(sb, utc.get(Calendar.MONTH) + 1, 2);
+            appendPadded(sb, utc.get(Calendar.DAY_OF_MONTH), 2);
+            sb.append('T');
+            appendPadded(sb, utc.get(Calendar.HOUR_OF_DAY), 2);
+            appendPadded(sb, utc.get(Calendar.MINUTE), 2);
+            appendPadded(sb, utc.get(Calendar.SECOND), 2);
+            sb.append('Z');
+        }
+
+        private static void appendPadded(StringBuilder sb, int value, int width) {
+            String digits = Integer.toString(value);
+            for (int i = digits.length(); i < width; i++) {
+                sb.append('0');
+            }
+            sb.append(digits);
+        }
+    }
+
+    /**
+     * JSON Lines格式，每行一个任务对象，时间为毫秒时间戳
+     */
+    private static final class JsonLinesWriter implements RecordWriter {
+        private final ChannelWriter writer;
+        private final StringBuilder line = new StringBuilder(256);
+
+        JsonLinesWriter(ChannelWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() {
+            // JSON Lines没有文件头
+        }
+
+        @Override
+        public void write(long id, String title, long start, long end, String location, String note,
+                          int importance, boolean completed, String recurrenceRule,
+                          String recurrenceExceptions) throws IOException {
+            line.setLength(0);
+            line.append("{\"id\":").append(id);
+            line.append(",\"title\":");
+            appendString(title);
+            line.append(",\"startTime\":");
+            appendTime(start);
+            line.append(",\"endTime\":");
+            appendTime(end);
+            line.append(",\"location\":");
+            appendString(location);
+            line.append(",\"note\":");
+            appendString(note);
+            line.append(",\"importance\":").append(importance);
+            line.append(",\"completed\":").append(completed);
+            line.append(",\"recurrenceRule\":");
+            appendString(recurrenceRule);
+            line.append(",\"recurrenceExceptions\":");
+            appendString(recurrenceExceptions);
+            line.append("}\n");
+            writer.append(line);
+        }
+
+        @Override
+        public void end() {
+            // JSON Lines没有文件尾
+        }
+
+        private void appendTime(long time) {
+            if (time == Long.MIN_VALUE) {
+                line.append("null");
+            } else {
+                line.append(time);
+            }
+        }
+
+        private void appendString(String value) {
+            if (value == null) {
+                line.append("null");
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': line.append("\\\""); break;
+                    case '\\': line.append("\\\\"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    case '\t': line.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            line.append(String.format(Locale.US, "\\u%04x", (int) c));
+                        } else {
+                            line.append(c);
+                        }
+                }
+            }
+            line.append('"');
+        }
+    }
+}
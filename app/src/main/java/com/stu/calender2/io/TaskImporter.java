@@ -0,0 +1,404 @@
+package com.stu.calender2.io;
+
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.data.AppDatabase;
+import com.stu.calender2.data.Task;
+import com.stu.calender2.data.TaskChangeBus;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PerfMonitor;
+import com.stu.calender2.utils.PowerBudget;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 日历批量导入工具类
+ * 在IO通道从InputStream流式解析ICS或CSV，每解析出一批任务就交给数据库写入通道，
+ * 用预编译的INSERT语句在一个事务中写入。
+ * 内存中最多保留一批任务，十万条事件的文件也不会整体读入内存；
+ * 批与批之间释放写入通道，导入期间界面的写入可以穿插执行
+ */
+public class TaskImporter {
+    private static final String TAG = "TaskImporter";
+
+    // 单例模式
+    private static volatile TaskImporter instance;
+
+    // 每个事务写入的任务数
+    private static final int TRANSACTION_SIZE = 2000;
+
+    // 导入持有WakeLock的上限
+    private static final long IMPORT_WAKE_TIMEOUT_MS = 10L * 60 * 1000;
+
+    // 字段顺序与bindTask一致，列名为Task的字段名
+    private static final String INSERT_SQL = "INSERT INTO tasks "
+            + "(title, startTime, endTime, location, note, importance, completed, "
+            + "recurrenceRule, recurrenceExceptions, recurrenceEnd) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 导入文件格式
+     */
+    public enum Format {
+        ICS,
+        CSV;
+
+        /**
+         * 根据MIME类型或文件名判断格式，无法判断时返回null
+         */
+        public static Format detect(String mimeType, String fileName) {
+            if (mimeType != null) {
+                String mime = mimeType.toLowerCase(Locale.ROOT);
+                if (mime.startsWith("text/calendar") || mime.startsWith("text/x-vcalendar")) {
+                    return ICS;
+                }
+                if (mime.startsWith("text/csv") || mime.startsWith("text/comma-separated-values")) {
+                    return CSV;
+                }
+            }
+            if (fileName != null) {
+                String name = fileName.toLowerCase(Locale.ROOT);
+                if (name.endsWith(".ics") || name.endsWith(".ical") || name.endsWith(".ifb")) {
+                    return ICS;
+                }
+                if (name.endsWith(".csv")) {
+                    return CSV;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 导入数据源，在后台线程打开
+     */
+    public interface StreamSource {
+        InputStream open() throws IOException;
+
+        /**
+         * 数据总字节数，未知时返回-1
+         */
+        long length();
+    }
+
+    /**
+     * 导入进度，每写入一批在主线程回调
+     */
+    public interface ProgressListener {
+        void onProgress(int imported, long bytesRead, long totalBytes);
+    }
+
+    /**
+     * 导入完成回调，在主线程调用
+     */
+    public interface ImportCallback {
+        void onComplete(Result result);
+    }
+
+    /**
+     * 导入结果
+     */
+    public static final class Result {
+        private final boolean success;
+        private final int imported;
+        private final int skipped;
+        private final long bytesRead;
+        private final long peakMemoryBytes;
+        private final long durationMs;
+        private final String error;
+
+        Result(boolean success, int imported, int skipped, long bytesRead,
+               long peakMemoryBytes, long durationMs, String error) {
+            this.success = success;
+            this.imported = imported;
+            this.skipped = skipped;
+            this.bytesRead = bytesRead;
+            this.peakMemoryBytes = peakMemoryBytes;
+            this.durationMs = durationMs;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * 已写入数据库的任务数；失败时为出错前已提交的部分
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * 导入期间观察到的最大Java堆占用
+         */
+        public long getPeakMemoryBytes() {
+            return peakMemoryBytes;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "导入%d条，跳过%d条，读取%dKB，耗时%dms，峰值内存%dKB%s",
+                    imported, skipped, bytesRead / 1024, durationMs, peakMemoryBytes / 1024,
+                    error != null ? "，错误: " + error : "");
+        }
+    }
+
+    private TaskImporter() {
+        // 私有构造函数
+    }
+
+    // 当前数据库实例，恢复快照后数据库会重新打开，因此不缓存实例
+    private AppDatabase database() {
+        return MyApplication.getInstance().getDatabase();
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static TaskImporter getInstance() {
+        if (instance == null) {
+            synchronized (TaskImporter.class) {
+                if (instance == null) {
+                    instance = new TaskImporter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在IO通道中异步导入，回调在主线程执行
+     * @param listener 进度监听，可为null
+     */
+    public void importAsync(StreamSource source, Format format,
+                            ProgressListener listener, ImportCallback callback) {
+        // 大文件导入期间切到后台时保持CPU唤醒，直到导入完成
+        PowerBudget.getInstance().wrapExecutor(AppSchedulers.getInstance().io(), "import", IMPORT_WAKE_TIMEOUT_MS).execute(() -> {
+            Result result;
+            try (InputStream input = source.open()) {
+                result = importBlocking(input, format, source.length(), listener);
+            } catch (IOException e) {
+                Log.e(TAG, "打开导入文件失败", e);
+                result = new Result(false, 0, 0, 0, 0, 0, e.getMessage());
+            }
+            if (callback != null) {
+                final Result finalResult = result;
+                MyApplication.getInstance().postToMainThread(() -> callback.onComplete(finalResult));
+            }
+        });
+    }
+
+    /**
+     * 在当前线程解析并等待每批写入完成，不能在主线程或数据库写入通道中调用
+     * @param totalBytes 数据总字节数，用于进度显示，未知时传-1
+     * @param listener 进度监听，在主线程回调，可为null
+     */
+    public Result importBlocking(InputStream input, Format format, long totalBytes,
+                                 ProgressListener listener) {
+        long startTime = System.currentTimeMillis();
+        String sectionName = "import:" + format.name().toLowerCase(Locale.ROOT);
+        long section = PerfMonitor.getInstance().beginSection(sectionName);
+        CountingInputStream counting = new CountingInputStream(input);
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(counting, Charset.forName("UTF-8")), 16 * 1024);
+        TaskParser parser = format == Format.ICS ? new IcsParser(reader) : new CsvParser(reader);
+
+        Runtime runtime = Runtime.getRuntime();
+        long peakMemory = runtime.totalMemory() - runtime.freeMemory();
+        int imported = 0;
+        String error = null;
+
+        // 一批任务在内存中复用同一个列表
+        List<Task> batch = new ArrayList<>(TRANSACTION_SIZE);
+        // 整个导入使用同一个数据库实例
+        AppDatabase database = database();
+        try {
+            boolean finished = false;
+            while (!finished) {
+                batch.clear();
+                Task task;
+                while (batch.size() < TRANSACTION_SIZE && (task = parser.next()) != null) {
+                    batch.add(task);
+                }
+                finished = batch.size() < TRANSACTION_SIZE;
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                peakMemory = Math.max(peakMemory, runtime.totalMemory() - runtime.freeMemory());
+                insertBatchOnWriter(database, batch);
+                imported += batch.size();
+
+                final int progressCount = imported;
+                final long progressBytes = counting.getCount();
+                AppLog.d(TAG, () -> "已导入 " + progressCount + " 条，读取 " + progressBytes + " 字节");
+                if (listener != null) {
+                    MyApplication.getInstance().postToMainThread(() ->
+                            listener.onProgress(progressCount, progressBytes, totalBytes));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "导入失败，已提交 " + imported + " 条", e);
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            PerfMonitor.getInstance().endSection(sectionName, section);
+        }
+
+        if (imported > 0) {
+            // 导入范围不确定，通知所有窗口重新查询
+            TaskChangeBus.getInstance().publishBulk();
+        }
+
+        Result result = new Result(error == null, imported, parser.getSkippedCount(), counting.getCount(),
+                peakMemory, System.currentTimeMillis() - startTime, error);
+        AppLog.i(TAG, result.toString());
+        return result;
+    }
+
+    /**
+     * 把一批任务交给数据库写入通道并等待提交，写入期间解析线程不再读取下一批
+     */
+    private static void insertBatchOnWriter(AppDatabase database, List<Task> batch) throws Exception {
+        FutureTask<Void> write = new FutureTask<>(() -> {
+            insertBatch(database, batch);
+            return null;
+        });
+        AppSchedulers.getInstance().dbWrite().execute(write);
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            // 写入任务仍会完成，这里只是不再继续导入
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批任务，出错时整批回滚，只在数据库写入通道中调用
+     */
+    private static void insertBatch(AppDatabase database, List<Task> batch) throws IOException {
+        SupportSQLiteStatement statement = database.compileStatement(INSERT_SQL);
+        try {
+            database.beginTransaction();
+            try {
+                for (Task task : batch) {
+                    bindTask(statement, task);
+                    statement.executeInsert();
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void bindTask(SupportSQLiteStatement statement, Task task) {
+        statement.clearBindings();
+        bindString(statement, 1, task.getTitle());
+        bindDate(statement, 2, task.getStartTime());
+        bindDate(statement, 3, task.getEndTime());
+        bindString(statement, 4, task.getLocation());
+        bindString(statement, 5, task.getNote());
+        statement.bindLong(6, task.getImportance());
+        statement.bindLong(7, task.isCompleted() ? 1 : 0);
+        bindString(statement, 8, task.getRecurrenceRule());
+        bindString(statement, 9, task.getRecurrenceExceptions());
+        Long recurrenceEnd = task.getRecurrenceEnd();
+        if (recurrenceEnd == null) {
+            statement.bindNull(10);
+        } else {
+            statement.bindLong(10, recurrenceEnd);
+        }
+    }
+
+    private static void bindString(SupportSQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void bindDate(SupportSQLiteStatement statement, int index, Date value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value.getTime());
+        }
+    }
+
+    /**
+     * 统计已读取字节数的输入流，用于显示进度
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.stu.calender2.io;
+
+import com.stu.calender2.data.Task;
+
+import java.io.IOException;
+
+/**
+ * 流式任务解析器，每次只解析出一个任务，不把整个文件读入内存
+ */
+interface TaskParser {
+
+    /**
+     * 解析下一个任务
+     * @return 下一个任务，文件结束时返回null
+     */
+    Task next() throws IOException;
+
+    /**
+     * 无法解析而跳过的记录数
+     */
+    int getSkippedCount();
+}
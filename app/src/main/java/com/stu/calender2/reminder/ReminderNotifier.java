@@ -0,0 +1,96 @@
+package com.stu.calender2.reminder;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import com.stu.calender2.MainActivity;
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.R;
+import com.stu.calender2.data.Task;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * 任务提醒通知
+ */
+final class ReminderNotifier {
+    private static final String TAG = "ReminderNotifier";
+
+    private static final String CHANNEL_ID = "task_reminder_channel";
+    private static final String CHANNEL_NAME = "任务提醒";
+
+    private ReminderNotifier() {
+        // 工具类
+    }
+
+    /**
+     * 发出一个任务的提醒，用户关闭通知时不发出
+     */
+    static void notify(Context context, Task task) {
+        if (!MyApplication.getInstance().getPreferenceManager().isNotificationEnabled()) {
+            Log.i(TAG, "应用内已关闭通知，不提醒任务: " + task.getId());
+            return;
+        }
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled()) {
+            // 系统设置中关闭了通知，或Android 13起未授予通知权限
+            Log.w(TAG, "系统通知不可用，丢弃任务提醒: " + task.getId());
+            return;
+        }
+        createNotificationChannel(context);
+
+        Intent intent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        StringBuilder text = new StringBuilder(timeFormat.format(task.getStartTime()));
+        if (task.getLocation() != null && !task.getLocation().isEmpty()) {
+            text.append(" · ").append(task.getLocation());
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(task.getTitle())
+                .setContentText(text)
+                .setContentIntent(pendingIntent)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true);
+
+        // 同一重复任务的不同实例使用不同的通知ID
+        int notificationId = (int) (task.getId() * 31 + task.getStartTime().getTime() / 60000);
+        try {
+            manager.notify(notificationId, builder.build());
+        } catch (SecurityException e) {
+            // Android 13起未授予通知权限
+            Log.w(TAG, "没有通知权限，丢弃任务提醒: " + task.getId(), e);
+        }
+    }
+
+    /**
+     * 创建通知渠道（Android 8.0及以上需要）
+     */
+    private static void createNotificationChannel(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    CHANNEL_NAME,
+                    NotificationManager.IMPORTANCE_HIGH);
+            channel.setDescription("任务开始时提醒");
+            NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+            if (notificationManager != null) {
+                notificationManager.createNotificationChannel(channel);
+            }
+        }
+    }
+}
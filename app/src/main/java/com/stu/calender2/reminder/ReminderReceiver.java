@@ -0,0 +1,33 @@
+package com.stu.calender2.reminder;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * 提醒闹钟到期，以及开机、应用更新、系统时间或时区变化时重新设置提醒
+ * 处理在后台线程进行，用goAsync让广播在处理完成前保持有效
+ */
+public class ReminderReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (action == null) {
+            return;
+        }
+        PendingResult result = goAsync();
+        switch (action) {
+            case ReminderScheduler.ACTION_FIRE:
+            case Intent.ACTION_TIME_CHANGED:
+            case Intent.ACTION_TIMEZONE_CHANGED:
+                // 时间变化后可能已有提醒到期
+                ReminderScheduler.getInstance().onAlarm(result::finish);
+                break;
+            default:
+                // 开机或应用更新后系统已清除闹钟
+                ReminderScheduler.getInstance().reschedule(result::finish);
+                break;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.stu.calender2.reminder;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.stu.calender2.MyApplication;
+import com.stu.calender2.data.RecurrenceExpander;
+import com.stu.calender2.data.Task;
+import com.stu.calender2.data.TaskChangeBus;
+import com.stu.calender2.data.TaskDao;
+import com.stu.calender2.utils.AppLog;
+import com.stu.calender2.utils.AppSchedulers;
+import com.stu.calender2.utils.PowerBudget;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 任务提醒调度器，在任务开始时发出通知
+ * AlarmManager中始终只保留一个精确闹钟，指向下一个到期的提醒，到期后再设置下一个，
+ * 不需要常驻服务和WakeLock。应用在前台时，近期的提醒同时放入进程内的分层时间轮，
+ * 由主线程按时间轮给出的间隔唤醒，不依赖闹钟广播。
+ * 两条路径都调用fireDue，以"已提醒到的时间"去重，同一个提醒只通知一次
+ */
+public class ReminderScheduler {
+    private static final String TAG = "ReminderScheduler";
+
+    static final String ACTION_FIRE = "com.stu.calender2.action.FIRE_REMINDER";
+
+    // 单例模式
+    private static volatile ReminderScheduler instance;
+
+    private static final String PREF_NAME = "reminder_state";
+    private static final String KEY_FIRED_UP_TO = "fired_up_to";
+
+    // 设备关机或进程被杀期间错过的提醒，超过该时长不再补发
+    private static final long MISSED_GRACE_MS = 60L * 60 * 1000;
+
+    // 前台时放入时间轮的范围
+    private static final long WHEEL_HORIZON_MS = 60L * 60 * 1000;
+
+    // 时间轮每格1秒，三层覆盖约3天
+    private static final long WHEEL_TICK_MS = 1000;
+    private static final int WHEEL_LEVELS = 3;
+
+    // 展开重复任务寻找下一次提醒的最大范围；范围内没有时到期后重新查找
+    private static final long RECURRING_LOOKAHEAD_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // 连续的任务变更合并为一次重新调度
+    private static final long RESCHEDULE_DEBOUNCE_MS = 500;
+
+    // 一次提醒处理持有WakeLock的上限
+    private static final long WAKE_TIMEOUT_MS = 10_000;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final SharedPreferences state;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 查询、通知和闹钟设置都在该串行执行器中进行
+    private final Executor serialExecutor;
+
+    // 以下只在主线程访问
+    private final TimingWheel<Long> wheel;
+    private boolean foreground;
+    private final Runnable wheelTick = this::onWheelTick;
+    private final Runnable debouncedReschedule = () -> reschedule(null);
+
+    private ReminderScheduler() {
+        context = MyApplication.getInstance();
+        alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        state = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        AppSchedulers schedulers = AppSchedulers.getInstance();
+        serialExecutor = schedulers.newSerialExecutor(schedulers.io());
+        wheel = new TimingWheel<>(WHEEL_TICK_MS, WHEEL_LEVELS, System.currentTimeMillis());
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static ReminderScheduler getInstance() {
+        if (instance == null) {
+            synchronized (ReminderScheduler.class) {
+                if (instance == null) {
+                    instance = new ReminderScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始监听任务变更并设置下一次提醒，在应用启动时调用
+     */
+    public void start() {
+        TaskChangeBus.getInstance().subscribe(change -> {
+            mainHandler.removeCallbacks(debouncedReschedule);
+            mainHandler.postDelayed(debouncedReschedule, RESCHEDULE_DEBOUNCE_MS);
+        });
+        reschedule(null);
+    }
+
+    /**
+     * 应用进入前台或后台，在主线程调用
+     */
+    public void setForeground(boolean foreground) {
+        if (this.foreground == foreground) {
+            return;
+        }
+        this.foreground = foreground;
+        if (foreground) {
+            // 重新装载近期提醒到时间轮
+            reschedule(null);
+        } else {
+            // 后台只依赖闹钟，停止主线程唤醒
+            wheel.clear();
+            mainHandler.removeCallbacks(wheelTick);
+        }
+    }
+
+    /**
+     * 闹钟到期或系统时间变化，发出到期的提醒并设置下一次
+     * @param onComplete 完成后在后台线程调用，可为null
+     */
+    void onAlarm(Runnable onComplete) {
+        // 提交起即持有WakeLock，排队期间设备也不会休眠
+        PowerBudget.Lease lease = PowerBudget.getInstance().acquire("reminder", WAKE_TIMEOUT_MS);
+        serialExecutor.execute(() -> {
+            try {
+                fireDue(System.currentTimeMillis());
+                scheduleNext();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "处理提醒失败", e);
+            } finally {
+                lease.release();
+                if (onComplete != null) {
+                    onComplete.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 重新计算下一次提醒
+     * @param onComplete 完成后在后台线程调用，可为null
+     */
+    void reschedule(Runnable onComplete) {
+        PowerBudget.Lease lease = PowerBudget.getInstance().acquire("reminder", WAKE_TIMEOUT_MS);
+        serialExecutor.execute(() -> {
+            try {
+                scheduleNext();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "设置提醒失败", e);
+            } finally {
+                lease.release();
+                if (onComplete != null) {
+                    onComplete.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 通知开始时间在(上次提醒到的时间, now]内的未完成任务，在串行执行器中调用
+     */
+    private void fireDue(long now) {
+        long firedUpTo = firedUpTo(now);
+        if (now <= firedUpTo) {
+            return;
+        }
+        long from = Math.max(firedUpTo + 1, now - MISSED_GRACE_MS);
+        List<Task> due = RecurrenceExpander.getInstance().loadInRange(dao(), from, now);
+        int count = 0;
+        for (Task task : due) {
+            if (!task.isCompleted()) {
+                ReminderNotifier.notify(context, task);
+                count++;
+            }
+        }
+        state.edit().putLong(KEY_FIRED_UP_TO, now).apply();
+        final int fired = count;
+        AppLog.d(TAG, () -> "已发出提醒 " + fired + " 个");
+    }
+
+    /**
+     * 查找下一次提醒并设置闹钟，前台时装载时间轮，在串行执行器中调用
+     */
+    private void scheduleNext() {
+        long now = System.currentTimeMillis();
+        long after = Math.max(now, firedUpTo(now));
+        TaskDao dao = dao();
+
+        // 最早的不重复任务
+        List<Task> singles = dao.getUpcomingSingleTasks(after, 1);
+        long next = singles.isEmpty() ? Long.MAX_VALUE : singles.get(0).getStartTime().getTime();
+
+        // 重复任务只在下一个不重复任务之前（最多7天）展开
+        long recurringEnd = Math.min(next, after + RECURRING_LOOKAHEAD_MS);
+        if (!dao.getRecurringTasksInRange(after + 1, recurringEnd).isEmpty()) {
+            for (Task task : RecurrenceExpander.getInstance().loadInRange(dao, after + 1, recurringEnd)) {
+                if (!task.isCompleted()) {
+                    next = Math.min(next, task.getStartTime().getTime());
+                    break;
+                }
+            }
+            if (next == Long.MAX_VALUE) {
+                // 范围内没有实例，到时重新展开
+                next = recurringEnd;
+            }
+        }
+        setAlarm(next);
+
+        // 前台时把近期提醒放入时间轮
+        List<Long> nearTerm = new ArrayList<>();
+        if (next <= now + WHEEL_HORIZON_MS) {
+            for (Task task : RecurrenceExpander.getInstance().loadInRange(dao, after + 1, now + WHEEL_HORIZON_MS)) {
+                if (!task.isCompleted()) {
+                    nearTerm.add(task.getStartTime().getTime());
+                }
+            }
+        }
+        mainHandler.post(() -> loadWheel(nearTerm));
+    }
+
+    private void loadWheel(List<Long> deadlines) {
+        wheel.clear();
+        mainHandler.removeCallbacks(wheelTick);
+        if (!foreground) {
+            return;
+        }
+        // 时间轮可能很久没有推进，先对齐到当前时间
+        wheel.advance(System.currentTimeMillis());
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        scheduleWheelTick();
+    }
+
+    private void onWheelTick() {
+        List<Long> expired = wheel.advance(System.currentTimeMillis());
+        if (!expired.isEmpty()) {
+            onAlarm(null);
+        }
+        scheduleWheelTick();
+    }
+
+    private void scheduleWheelTick() {
+        long delay = wheel.nextDelay(System.currentTimeMillis());
+        if (delay >= 0) {
+            mainHandler.postDelayed(wheelTick, delay);
+        }
+    }
+
+    /**
+     * 设置唯一的提醒闹钟，time为Long.MAX_VALUE时取消
+     */
+    private void setAlarm(long time) {
+        PendingIntent pendingIntent = alarmIntent();
+        if (alarmManager == null) {
+            return;
+        }
+        if (time == Long.MAX_VALUE) {
+            alarmManager.cancel(pendingIntent);
+            AppLog.d(TAG, "没有待提醒的任务");
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // 没有精确闹钟权限时退化为允许休眠时触发的非精确闹钟
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, time, pendingIntent);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, time, pendingIntent);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, time, pendingIntent);
+        }
+        AppLog.d(TAG, () -> "下一次提醒: " + new Date(time));
+    }
+
+    private PendingIntent alarmIntent() {
+        Intent intent = new Intent(context, ReminderReceiver.class).setAction(ACTION_FIRE);
+        return PendingIntent.getBroadcast(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * 上一次提醒到的时间；首次运行时为当前时间，不为安装前的任务补发提醒。
+     * 系统时间被调早时同样从当前时间算起
+     */
+    private long firedUpTo(long now) {
+        long firedUpTo = state.getLong(KEY_FIRED_UP_TO, Long.MAX_VALUE);
+        if (firedUpTo > now) {
+            state.edit().putLong(KEY_FIRED_UP_TO, now).apply();
+            return now;
+        }
+        return firedUpTo;
+    }
+
+    // 当前数据库实例，恢复快照后数据库会重新打开，因此不缓存实例
+    private TaskDao dao() {
+        return MyApplication.getInstance().getDatabase().taskDao();
+    }
+}
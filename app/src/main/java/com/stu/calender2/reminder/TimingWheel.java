@@ -0,0 +1,178 @@
+package com.stu.calender2.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮
+ * 每层有SLOTS个槽，第0层每槽一个tick，上一层每槽是下一层一整圈。
+ * 插入和到期都是O(1)，到达下一层的槽位时把其中的条目重新分配到下一层（级联）。
+ * 只在一个线程中使用，不做同步
+ */
+final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final class Entry<T> {
+        final long expireTick;
+        final T item;
+
+        Entry(long expireTick, T item) {
+            this.expireTick = expireTick;
+            this.item = item;
+        }
+    }
+
+    private final long tickMs;
+    private final int levels;
+    // buckets[level][slot]
+    private final List<List<Entry<T>>> buckets;
+    // 超出最高层范围的条目，最高层转完一圈时重新分配
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMs 第0层每个槽的时长
+     * @param levels 层数，覆盖范围为tickMs * 64^levels
+     * @param now 当前时间
+     */
+    TimingWheel(long tickMs, int levels, long now) {
+        this.tickMs = tickMs;
+        this.levels = levels;
+        this.buckets = new ArrayList<>(levels * SLOTS);
+        for (int i = 0; i < levels * SLOTS; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = now / tickMs;
+    }
+
+    /**
+     * 加入一个在deadline到期的条目；到期时间向上取整到tick，不会提前到期
+     */
+    void schedule(long deadline, T item) {
+        long expireTick = (deadline + tickMs - 1) / tickMs;
+        place(new Entry<>(Math.max(expireTick, currentTick + 1), item));
+        size++;
+    }
+
+    /**
+     * 推进到now，返回期间到期的条目
+     */
+    List<T> advance(long now) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = now / tickMs;
+        if (targetTick - currentTick > span()) {
+            // 跳过的时间超过整个时间轮（例如设备休眠），直接重新分配所有条目
+            List<Entry<T>> all = drainAll();
+            currentTick = targetTick;
+            for (Entry<T> entry : all) {
+                if (entry.expireTick <= currentTick) {
+                    expired.add(entry.item);
+                    size--;
+                } else {
+                    place(entry);
+                }
+            }
+            return expired;
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            List<Entry<T>> slot = bucket(0, (int) (currentTick & SLOT_MASK));
+            for (Entry<T> entry : slot) {
+                expired.add(entry.item);
+            }
+            size -= slot.size();
+            slot.clear();
+        }
+        return expired;
+    }
+
+    /**
+     * 距离下一次需要推进的时间：最近的非空第0层槽，或下一次级联；没有条目时返回-1
+     */
+    long nextDelay(long now) {
+        if (size == 0) {
+            return -1;
+        }
+        long ticksToCascade = SLOTS - (currentTick & SLOT_MASK);
+        for (long ahead = 1; ahead <= ticksToCascade; ahead++) {
+            if (!bucket(0, (int) ((currentTick + ahead) & SLOT_MASK)).isEmpty()) {
+                return Math.max(0, (currentTick + ahead) * tickMs - now);
+            }
+        }
+        // 第0层本圈没有条目，到级联时再看
+        return Math.max(0, (currentTick + ticksToCascade) * tickMs - now);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (List<Entry<T>> bucket : buckets) {
+            bucket.clear();
+        }
+        overflow.clear();
+        size = 0;
+    }
+
+    /**
+     * 第0层转完一圈时从上一层的当前槽取出条目重新分配，依次向上
+     */
+    private void cascade() {
+        for (int level = 1; level < levels; level++) {
+            int lowerBits = SLOT_BITS * level;
+            if ((currentTick & ((1L << lowerBits) - 1)) != 0) {
+                return;
+            }
+            List<Entry<T>> slot = bucket(level, (int) ((currentTick >> lowerBits) & SLOT_MASK));
+            List<Entry<T>> moving = new ArrayList<>(slot);
+            slot.clear();
+            for (Entry<T> entry : moving) {
+                place(entry);
+            }
+        }
+        if ((currentTick & ((1L << (SLOT_BITS * levels)) - 1)) == 0 && !overflow.isEmpty()) {
+            List<Entry<T>> moving = new ArrayList<>(overflow);
+            overflow.clear();
+            for (Entry<T> entry : moving) {
+                place(entry);
+            }
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long ticks = entry.expireTick - currentTick;
+        for (int level = 0; level < levels; level++) {
+            if (ticks < 1L << (SLOT_BITS * (level + 1))) {
+                int slot = (int) ((entry.expireTick >> (SLOT_BITS * level)) & SLOT_MASK);
+                bucket(level, slot).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private List<Entry<T>> drainAll() {
+        List<Entry<T>> all = new ArrayList<>(size);
+        for (List<Entry<T>> bucket : buckets) {
+            all.addAll(bucket);
+            bucket.clear();
+        }
+        all.addAll(overflow);
+        overflow.clear();
+        return all;
+    }
+
+    private List<Entry<T>> bucket(int level, int slot) {
+        return buckets.get(level * SLOTS + slot);
+    }
+
+    private long span() {
+        return 1L << (SLOT_BITS * levels);
+    }
+}
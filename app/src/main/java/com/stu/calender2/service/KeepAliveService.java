@@ -5,28 +5,26 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
-import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
-import android.os.PowerManager;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
 import com.stu.calender2.MainActivity;
 import com.stu.calender2.R;
+import com.stu.calender2.utils.PowerBudget;
 
 /**
- * 常驻后台服务，保持应用活跃并使屏幕常亮
+ * 常驻后台服务，保持应用进程活跃
+ * 不再持有WakeLock，需要CPU保持唤醒的工作由PowerBudget在工作期间按需持有
  */
 public class KeepAliveService extends Service {
 
     private static final int NOTIFICATION_ID = 1001;
     private static final String CHANNEL_ID = "keep_alive_channel";
     private static final String CHANNEL_NAME = "保持应用运行";
-    
-    private PowerManager.WakeLock wakeLock;
 
     @Override
     public void onCreate() {
@@ -35,14 +33,8 @@ public class KeepAliveService extends Service {
         // 创建通知渠道（Android 8.0及以上需要）
         createNotificationChannel();
         
-        // 获取电源管理服务
-        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(
-                PowerManager.PARTIAL_WAKE_LOCK | PowerManager.ON_AFTER_RELEASE,
-                "Calender2:WakeLock");
-        
-        // 获取WakeLock
-        wakeLock.acquire();
+        // 记录运行状态，供Application判断是否需要启动服务
+        PowerBudget.getInstance().setServiceRunning(true);
     }
 
     @Override
@@ -58,11 +50,7 @@ public class KeepAliveService extends Service {
     public void onDestroy() {
         super.onDestroy();
         
-        // 释放WakeLock
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
-            wakeLock = null;
-        }
+        PowerBudget.getInstance().setServiceRunning(false);
         
         // 停止前台服务
         stopForeground(true);
@@ -0,0 +1,115 @@
+package com.stu.calender2.service;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.stu.calender2.data.DatabaseMaintenance;
+import com.stu.calender2.utils.AppSchedulers;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 定期数据库维护，只在充电且设备空闲时由系统调度执行，见{@link DatabaseMaintenance}
+ */
+public class MaintenanceWorker extends Worker {
+    private static final String TAG = "MaintenanceWorker";
+
+    private static final String WORK_NAME = "database_maintenance";
+
+    // 等待dbWrite通道完成维护的上限，超时后剩余步骤被取消，本周期不再重试
+    private static final long RUN_TIMEOUT_MINUTES = 5;
+
+    // 已提交到dbWrite通道、尚未结束的维护；超时返回后可能仍在执行，期间不再提交新的一次
+    private static final AtomicBoolean IN_FLIGHT = new AtomicBoolean();
+
+    // 等待超时，通知仍在执行的维护在下一步之前停止
+    private volatile boolean timedOut;
+
+    public MaintenanceWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 登记每天一次的维护任务，已登记时保持原有计划
+     */
+    public static void schedule(Context context) {
+        Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(MaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints.build())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        if (!IN_FLIGHT.compareAndSet(false, true)) {
+            Log.w(TAG, "上一次数据库维护仍在执行，跳过本次");
+            return Result.success();
+        }
+        // 在dbWrite通道执行，与应用的其他写入串行
+        DatabaseMaintenance.Report[] report = new DatabaseMaintenance.Report[1];
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            AppSchedulers.getInstance().dbWrite().execute(() -> {
+                try {
+                    report[0] = DatabaseMaintenance.runBlocking(() -> timedOut || isStopped());
+                } finally {
+                    IN_FLIGHT.set(false);
+                    done.countDown();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            IN_FLIGHT.set(false);
+            Log.w(TAG, "dbWrite通道已关闭", e);
+            return Result.failure();
+        }
+        try {
+            if (!done.await(RUN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                // 维护仍在dbWrite通道中执行，重试会与它重叠；剩余步骤取消，等下一个周期
+                timedOut = true;
+                Log.w(TAG, "数据库维护超时");
+                return Result.failure();
+            }
+        } catch (InterruptedException e) {
+            // 约束不再满足时系统会停止任务，isStopped()让维护在下一步之前停止
+            Thread.currentThread().interrupt();
+            return Result.failure();
+        }
+        if (report[0] == null || report[0].isCancelled()) {
+            return Result.failure();
+        }
+        if (!report[0].isSuccess()) {
+            // 维护已结束且确实出错，交由系统稍后重试
+            return Result.retry();
+        }
+
+        // 各步骤耗时作为输出，可通过WorkManager查询最近一次的结果
+        Data.Builder output = new Data.Builder()
+                .putInt("archived", report[0].getArchived());
+        for (Map.Entry<String, Long> step : report[0].getStepMs().entrySet()) {
+            output.putLong(step.getKey() + "Ms", step.getValue());
+        }
+        return Result.success(output.build());
+    }
+}
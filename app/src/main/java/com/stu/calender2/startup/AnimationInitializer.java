@@ -0,0 +1,38 @@
+package com.stu.calender2.startup;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 通过反射把属性动画时长缩放设为0，需在首个Activity创建前完成
+ */
+public class AnimationInitializer implements Initializer<Boolean> {
+    private static final String TAG = "AnimationInitializer";
+
+    @Override
+    public Boolean create(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return false;
+        }
+        try {
+            Field field = ValueAnimator.class.getDeclaredField("sDurationScale");
+            field.setAccessible(true);
+            field.setFloat(null, 0.0f);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to set animation duration scale", e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,206 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 应用初始化依赖图
+ * 组件在首次get时按依赖顺序创建，也可以提交到后台线程并行预热；
+ * 每个初始化器的耗时和所在线程都会记录，便于找出阻塞首帧的组件
+ */
+public class AppStartup {
+    private static final String TAG = "AppStartup";
+
+    private final Context context;
+    private final Map<Class<?>, Node> nodes = new HashMap<>();
+    private final List<Timing> timings = new ArrayList<>();
+
+    // 检测循环依赖：记录当前线程正在初始化的组件
+    private final ThreadLocal<Set<Class<?>>> initializing = new ThreadLocal<Set<Class<?>>>() {
+        @Override
+        protected Set<Class<?>> initialValue() {
+            return new HashSet<>();
+        }
+    };
+
+    /**
+     * 单个初始化器的耗时记录
+     */
+    public static class Timing {
+        public final String name;
+        public final long durationMs;
+        public final String threadName;
+        public final boolean mainThread;
+
+        Timing(String name, long durationMs, String threadName, boolean mainThread) {
+            this.name = name;
+            this.durationMs = durationMs;
+            this.threadName = threadName;
+            this.mainThread = mainThread;
+        }
+    }
+
+    private static class Node {
+        final Initializer<?> initializer;
+        volatile boolean done;
+        Object value;
+
+        Node(Initializer<?> initializer) {
+            this.initializer = initializer;
+        }
+    }
+
+    public AppStartup(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * 注册初始化器，需在get之前完成
+     */
+    public synchronized AppStartup register(Initializer<?>... initializers) {
+        for (Initializer<?> initializer : initializers) {
+            nodes.put(initializer.getClass(), new Node(initializer));
+        }
+        return this;
+    }
+
+    /**
+     * 获取组件，未初始化时先初始化其依赖再创建
+     * 其他线程正在创建同一组件时会等待其完成
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Class<? extends Initializer<T>> type) {
+        return (T) resolve(type);
+    }
+
+    /**
+     * 获取已初始化的组件，尚未初始化时返回null而不触发初始化
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T peek(Class<? extends Initializer<T>> type) {
+        Node node = findNode(type);
+        return node.done ? (T) node.value : null;
+    }
+
+    /**
+     * 是否已初始化
+     */
+    public boolean isInitialized(Class<? extends Initializer<?>> type) {
+        return findNode(type).done;
+    }
+
+    /**
+     * 在后台线程并行初始化，各自的依赖仍按顺序创建
+     */
+    @SafeVarargs
+    public final void startInBackground(Executor executor, Class<? extends Initializer<?>>... types) {
+        for (final Class<? extends Initializer<?>> type : types) {
+            executor.execute(() -> {
+                try {
+                    resolve(type);
+                } catch (Exception e) {
+                    Log.e(TAG, "后台初始化失败: " + type.getSimpleName(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 按完成顺序输出各初始化器的耗时，主线程上的条目会阻塞首帧
+     */
+    public String getTimingReport() {
+        StringBuilder builder = new StringBuilder("初始化耗时:");
+        synchronized (timings) {
+            for (Timing timing : timings) {
+                builder.append("\n  ").append(timing.name)
+                        .append(' ').append(timing.durationMs).append("ms")
+                        .append(" [").append(timing.threadName).append(']');
+                if (timing.mainThread) {
+                    builder.append(" (阻塞主线程)");
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 获取耗时记录的副本
+     */
+    public List<Timing> getTimings() {
+        synchronized (timings) {
+            return new ArrayList<>(timings);
+        }
+    }
+
+    private Object resolve(Class<?> type) {
+        Node node = findNode(type);
+        if (node.done) {
+            return node.value;
+        }
+
+        Set<Class<?>> inProgress = initializing.get();
+        if (!inProgress.add(type)) {
+            throw new IllegalStateException("初始化器存在循环依赖: " + type.getSimpleName());
+        }
+        try {
+            synchronized (node) {
+                if (node.done) {
+                    return node.value;
+                }
+
+                for (Class<? extends Initializer<?>> dependency : node.initializer.dependencies()) {
+                    resolve(dependency);
+                }
+
+                String name = type.getSimpleName();
+                long startTime = SystemClock.elapsedRealtime();
+                Trace.beginSection(traceName(name));
+                try {
+                    node.value = node.initializer.create(context);
+                } finally {
+                    Trace.endSection();
+                }
+                node.done = true;
+                recordTiming(name, SystemClock.elapsedRealtime() - startTime);
+                return node.value;
+            }
+        } finally {
+            inProgress.remove(type);
+        }
+    }
+
+    private synchronized Node findNode(Class<?> type) {
+        Node node = nodes.get(type);
+        if (node == null) {
+            throw new IllegalArgumentException("未注册的初始化器: " + type.getName());
+        }
+        return node;
+    }
+
+    private void recordTiming(String name, long durationMs) {
+        boolean mainThread = Looper.myLooper() == Looper.getMainLooper();
+        String threadName = Thread.currentThread().getName();
+        synchronized (timings) {
+            timings.add(new Timing(name, durationMs, threadName, mainThread));
+        }
+        Log.d(TAG, "初始化 " + name + " 耗时: " + durationMs + "ms [" + threadName + "]"
+                + (mainThread ? " (阻塞主线程)" : ""));
+    }
+
+    // Trace段名最长127个字符
+    private static String traceName(String name) {
+        String section = "AppStartup#" + name;
+        return section.length() > 127 ? section.substring(0, 127) : section;
+    }
+}
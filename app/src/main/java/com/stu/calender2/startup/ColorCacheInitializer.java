@@ -0,0 +1,46 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.LruCache;
+
+import com.stu.calender2.R;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 颜色资源缓存，预先加载常用颜色并预热资源管理器
+ */
+public class ColorCacheInitializer implements Initializer<LruCache<Integer, Integer>> {
+
+    // 常用颜色资源
+    private static final int[] COMMON_COLORS = new int[] {
+        R.color.white,
+        R.color.black,
+        R.color.colorPrimary,
+        R.color.colorAccent,
+    };
+
+    @Override
+    public LruCache<Integer, Integer> create(Context context) {
+        int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
+        int cacheSize = maxMemory / 16; // 使用最大内存的1/16作为缓存大小
+        LruCache<Integer, Integer> colorCache = new LruCache<>(cacheSize);
+
+        Resources res = context.getResources();
+        for (int colorId : COMMON_COLORS) {
+            colorCache.put(colorId, res.getColor(colorId, null));
+        }
+
+        // 预热资源管理器
+        res.getDisplayMetrics();
+        res.getConfiguration();
+        return colorCache;
+    }
+
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,40 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.stu.calender2.data.AppDatabase;
+import com.stu.calender2.io.SnapshotManager;
+import com.stu.calender2.utils.StartupReadiness;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 打开数据库并通知启动就绪状态
+ * 打开失败时返回null，由使用方处理
+ */
+public class DatabaseInitializer implements Initializer<AppDatabase> {
+    private static final String TAG = "DatabaseInitializer";
+
+    @Override
+    public AppDatabase create(Context context) {
+        try {
+            // 数据库目录不参与系统备份，重装后从备份的快照恢复
+            if (SnapshotManager.getInstance().restoreLatestIfDatabaseMissing()) {
+                Log.i(TAG, "已从快照恢复数据库");
+            }
+            AppDatabase database = AppDatabase.getInstance(context);
+            StartupReadiness.getInstance().markDatabaseOpened();
+            return database;
+        } catch (Exception e) {
+            Log.e(TAG, "数据库初始化失败", e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
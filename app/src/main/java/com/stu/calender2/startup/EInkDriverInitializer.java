@@ -0,0 +1,24 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+
+import com.stu.calender2.utils.EInkDriver;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 探测水墨屏厂商刷新接口，避免首次刷新时在主线程做反射查找
+ */
+public class EInkDriverInitializer implements Initializer<EInkDriver> {
+
+    @Override
+    public EInkDriver create(Context context) {
+        return EInkDriver.getInstance();
+    }
+
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
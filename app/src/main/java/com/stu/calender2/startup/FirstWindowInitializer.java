@@ -0,0 +1,49 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.stu.calender2.utils.DatabaseOptimizer;
+import com.stu.calender2.utils.StartupReadiness;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预取日历首屏窗口的数据
+ * CalendarFragment默认显示月视图，因此预取当月范围；启动页据此判断是否就绪
+ */
+public class FirstWindowInitializer implements Initializer<Void> {
+    private static final String TAG = "FirstWindowInitializer";
+
+    @Override
+    public Void create(Context context) {
+        Calendar startOfMonth = Calendar.getInstance();
+        startOfMonth.set(Calendar.DAY_OF_MONTH, 1);
+        startOfMonth.set(Calendar.HOUR_OF_DAY, 0);
+        startOfMonth.set(Calendar.MINUTE, 0);
+        startOfMonth.set(Calendar.SECOND, 0);
+        startOfMonth.set(Calendar.MILLISECOND, 0);
+
+        Calendar endOfMonth = (Calendar) startOfMonth.clone();
+        endOfMonth.add(Calendar.MONTH, 1);
+
+        try {
+            DatabaseOptimizer.getInstance().preloadTasksByDateRange(
+                    startOfMonth.getTimeInMillis(),
+                    endOfMonth.getTimeInMillis(),
+                    () -> StartupReadiness.getInstance().markFirstWindowPrefetched());
+        } catch (Exception e) {
+            // 预取失败不应阻塞启动
+            Log.e(TAG, "预取首屏数据失败", e);
+            StartupReadiness.getInstance().markFirstWindowPrefetched();
+        }
+        return null;
+    }
+
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.<Class<? extends Initializer<?>>>singletonList(DatabaseInitializer.class);
+    }
+}
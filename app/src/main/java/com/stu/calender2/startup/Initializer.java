@@ -0,0 +1,25 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+
+import java.util.List;
+
+/**
+ * 应用组件初始化器
+ * 每个初始化器声明自己的依赖，由AppStartup按依赖顺序、在首次使用时创建
+ *
+ * @param <T> 初始化产出的组件类型
+ */
+public interface Initializer<T> {
+
+    /**
+     * 创建组件，调用时所有依赖均已初始化完成
+     * @param context Application上下文
+     */
+    T create(Context context);
+
+    /**
+     * 依赖的初始化器，没有依赖时返回空列表
+     */
+    List<Class<? extends Initializer<?>>> dependencies();
+}
@@ -0,0 +1,24 @@
+package com.stu.calender2.startup;
+
+import android.content.Context;
+
+import com.stu.calender2.utils.PreferenceManager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 偏好设置，主题模式依赖它，需在首个Activity创建前完成
+ */
+public class PreferenceInitializer implements Initializer<PreferenceManager> {
+
+    @Override
+    public PreferenceManager create(Context context) {
+        return new PreferenceManager(context);
+    }
+
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
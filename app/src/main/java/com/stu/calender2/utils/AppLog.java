@@ -0,0 +1,193 @@
+package com.stu.calender2.utils;
+
+import android.util.Log;
+
+import com.stu.calender2.BuildConfig;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 日志门面
+ * 两级开关：VERBOSE/DEBUG在release构建中由编译期常量BuildConfig.DEBUG整体裁掉，
+ * 其余级别由运行时级别过滤。通过门槛的日志同时写入logcat和最近日志环形缓冲区。
+ * 热路径中先用isLoggable判断，或传入MessageSupplier，未启用时不拼接字符串
+ */
+public final class AppLog {
+
+    // 级别取值与android.util.Log一致，可直接传给Log.println
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    // 编译期开关，release构建中为常量false，相关分支会被编译器移除
+    private static final boolean DEBUG_BUILD = BuildConfig.DEBUG;
+
+    // 环形缓冲区容量，必须是2的幂
+    private static final int RING_CAPACITY = 256;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+
+    private static volatile int minLevel = DEBUG_BUILD ? DEBUG : INFO;
+
+    private static final AtomicLong ringCursor = new AtomicLong();
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+
+    /**
+     * 延迟构造日志内容，只在日志确实会输出时调用
+     */
+    public interface MessageSupplier {
+        String get();
+    }
+
+    /**
+     * 环形缓冲区中的一条日志，创建后不再修改
+     */
+    private static final class Entry {
+        final long time;
+        final int level;
+        final String tag;
+        final String message;
+        final String thread;
+
+        Entry(int level, String tag, String message) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+            this.thread = Thread.currentThread().getName();
+        }
+    }
+
+    private AppLog() {
+        // 工具类
+    }
+
+    /**
+     * 设置运行时最低输出级别
+     */
+    public static void setLevel(int level) {
+        minLevel = level;
+    }
+
+    public static int getLevel() {
+        return minLevel;
+    }
+
+    /**
+     * 指定级别是否会输出，热路径拼接日志前调用
+     */
+    public static boolean isLoggable(int level) {
+        if (level < INFO && !DEBUG_BUILD) {
+            return false;
+        }
+        return level >= minLevel;
+    }
+
+    public static void v(String tag, String message) {
+        if (DEBUG_BUILD && isLoggable(VERBOSE)) {
+            write(VERBOSE, tag, message, null);
+        }
+    }
+
+    public static void v(String tag, MessageSupplier supplier) {
+        if (DEBUG_BUILD && isLoggable(VERBOSE)) {
+            write(VERBOSE, tag, supplier.get(), null);
+        }
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) {
+            write(DEBUG, tag, message, null);
+        }
+    }
+
+    public static void d(String tag, MessageSupplier supplier) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) {
+            write(DEBUG, tag, supplier.get(), null);
+        }
+    }
+
+    public static void i(String tag, String message) {
+        if (isLoggable(INFO)) {
+            write(INFO, tag, message, null);
+        }
+    }
+
+    public static void i(String tag, MessageSupplier supplier) {
+        if (isLoggable(INFO)) {
+            write(INFO, tag, supplier.get(), null);
+        }
+    }
+
+    public static void w(String tag, String message) {
+        w(tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable throwable) {
+        if (isLoggable(WARN)) {
+            write(WARN, tag, message, throwable);
+        }
+    }
+
+    public static void e(String tag, String message) {
+        e(tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        if (isLoggable(ERROR)) {
+            write(ERROR, tag, message, throwable);
+        }
+    }
+
+    private static void write(int level, String tag, String message, Throwable throwable) {
+        if (throwable != null) {
+            Log.println(level, tag, message + '\n' + Log.getStackTraceString(throwable));
+        } else {
+            Log.println(level, tag, message);
+        }
+
+        // 环形缓冲区只保留消息和异常摘要，不保存完整堆栈
+        String recorded = throwable != null ? message + " (" + throwable + ")" : message;
+        long sequence = ringCursor.getAndIncrement();
+        ring.set((int) (sequence & RING_MASK), new Entry(level, tag, recorded));
+    }
+
+    /**
+     * 最近的日志，按时间顺序，用于性能报告和问题排查
+     * 读取期间仍可能有新日志写入，最早的几条可能已被覆盖
+     */
+    public static String getRecentLogs() {
+        long end = ringCursor.get();
+        long start = Math.max(0, end - RING_CAPACITY);
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        StringBuilder sb = new StringBuilder();
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = ring.get((int) (sequence & RING_MASK));
+            if (entry == null) {
+                continue;
+            }
+            sb.append(format.format(new Date(entry.time)))
+                    .append(' ').append(levelChar(entry.level))
+                    .append(' ').append(entry.tag)
+                    .append(" [").append(entry.thread).append("] ")
+                    .append(entry.message)
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case VERBOSE: return 'V';
+            case DEBUG: return 'D';
+            case INFO: return 'I';
+            case WARN: return 'W';
+            default: return 'E';
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.stu.calender2.utils;
+
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 应用统一线程调度
+ * 按用途划分为IO、数据库写入和计算三条通道。IO和计算通道的队列容量是软上限，
+ * 超过容量时不丢弃任务：通道线程直接在当前线程执行，其他后台线程阻塞等待队列有空位；
+ * 主线程既不阻塞也不执行通道任务（IO通道同时是Room的查询线程），任务照常入队。
+ * 数据库写入通道队列无界，写入始终在唯一的写入线程上按提交顺序执行
+ */
+public class AppSchedulers {
+    private static final String TAG = "AppSchedulers";
+
+    private static volatile AppSchedulers instance;
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    // 空闲线程保持时间
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    // 队列容量，表示不限制
+    private static final int UNBOUNDED = 0;
+
+    private final Lane io;
+    private final Lane dbWrite;
+    private final Lane compute;
+
+    private AppSchedulers() {
+        // IO通道：数据库读取、文件、偏好设置
+        io = new Lane("io", Math.max(2, Math.min(4, CPU_COUNT)), 128,
+                Process.THREAD_PRIORITY_BACKGROUND);
+        // 数据库写入通道：单线程，保证写入顺序并避免写锁竞争
+        // 队列无界：背压时在调用线程执行会出现主线程写库和两个写入者并发，破坏"先读旧记录再写"的前提
+        dbWrite = new Lane("db-write", 1, UNBOUNDED,
+                Process.THREAD_PRIORITY_BACKGROUND);
+        // 计算通道：排序、布局数据准备等CPU密集任务
+        compute = new Lane("compute", Math.max(2, CPU_COUNT - 1), 64,
+                Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+    }
+
+    public static AppSchedulers getInstance() {
+        if (instance == null) {
+            synchronized (AppSchedulers.class) {
+                if (instance == null) {
+                    instance = new AppSchedulers();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * IO通道
+     */
+    public Lane io() {
+        return io;
+    }
+
+    /**
+     * 数据库写入通道，单线程顺序执行
+     */
+    public Lane dbWrite() {
+        return dbWrite;
+    }
+
+    /**
+     * 计算通道
+     */
+    public Lane compute() {
+        return compute;
+    }
+
+    /**
+     * 创建一个按提交顺序依次执行的执行器，任务仍运行在指定通道上
+     */
+    public Executor newSerialExecutor(Executor lane) {
+        return new SerialExecutor(lane);
+    }
+
+    /**
+     * 当前线程是否为调度通道的工作线程
+     */
+    public static boolean isLaneThread() {
+        return Thread.currentThread() instanceof LaneThread;
+    }
+
+    /**
+     * 各通道的队列深度与延迟统计
+     */
+    public String getStats() {
+        return io.getStats() + "\n" + dbWrite.getStats() + "\n" + compute.getStats();
+    }
+
+    /**
+     * 关闭所有通道，等待已提交的任务执行完毕
+     */
+    public void shutdown(long timeoutMs) {
+        io.shutdown(timeoutMs);
+        dbWrite.shutdown(timeoutMs);
+        compute.shutdown(timeoutMs);
+        Log.d(TAG, "调度通道已关闭\n" + getStats());
+    }
+
+    /**
+     * 单条调度通道
+     */
+    public static class Lane implements Executor {
+        private final String name;
+        private final int queueCapacity;
+        private final ThreadPoolExecutor executor;
+
+        // 等待队列空位的后台线程数，由spaceLock保护，读取不加锁
+        private final Object spaceLock = new Object();
+        private volatile int spaceWaiters;
+
+        // 统计数据
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong callerRuns = new AtomicLong();
+        private final AtomicLong blockedSubmits = new AtomicLong();
+        private final AtomicLong mainOverflows = new AtomicLong();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalExecNanos = new AtomicLong();
+        private final AtomicLong maxExecNanos = new AtomicLong();
+
+        Lane(String name, int threads, int queueCapacity, int threadPriority) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            // 底层队列不设上限，容量在execute中检查；线程池只在关闭后拒绝任务
+            executor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new LaneThreadFactory(name, threadPriority),
+                    (r, pool) -> {
+                        throw new RejectedExecutionException("通道已关闭: " + name);
+                    });
+            // 核心线程空闲时也回收，线程在首次提交时才创建
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            submitted.incrementAndGet();
+            if (queueCapacity != UNBOUNDED && executor.getQueue().size() >= queueCapacity) {
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    // 主线程不能阻塞，也不能替通道执行数据库查询等任务，超出容量照常入队
+                    mainOverflows.incrementAndGet();
+                } else if (isLaneThread()) {
+                    // 通道线程阻塞等待可能造成死锁，直接在当前线程执行
+                    callerRuns.incrementAndGet();
+                    Log.w(TAG, name + " 队列已满，在调用线程执行任务");
+                    new TimedTask(command, System.nanoTime()).run();
+                    return;
+                } else {
+                    awaitSpace();
+                }
+            }
+            executor.execute(new TimedTask(command, System.nanoTime()));
+            updateMax(maxQueueDepth, executor.getQueue().size());
+        }
+
+        /**
+         * 后台线程阻塞直到队列低于容量，工作线程取出任务时唤醒
+         */
+        private void awaitSpace() {
+            blockedSubmits.incrementAndGet();
+            synchronized (spaceLock) {
+                spaceWaiters++;
+                try {
+                    while (executor.getQueue().size() >= queueCapacity && !executor.isShutdown()) {
+                        spaceLock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("等待入队时被中断: " + name, e);
+                } finally {
+                    spaceWaiters--;
+                }
+            }
+        }
+
+        private void signalSpace() {
+            if (spaceWaiters > 0) {
+                synchronized (spaceLock) {
+                    spaceLock.notifyAll();
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 当前排队中的任务数
+         */
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+        public String getStats() {
+            long done = Math.max(1, completed.get());
+            return name
+                    + ": 提交=" + submitted.get()
+                    + ", 完成=" + completed.get()
+                    + ", 排队=" + executor.getQueue().size() + "/" + maxQueueDepth.get() + "(峰值)"
+                    + ", 调用方执行=" + callerRuns.get()
+                    + ", 阻塞提交=" + blockedSubmits.get()
+                    + ", 主线程超额入队=" + mainOverflows.get()
+                    + ", 等待均值/峰值=" + nanosToMs(totalWaitNanos.get() / done) + "/" + nanosToMs(maxWaitNanos.get()) + "ms"
+                    + ", 执行均值/峰值=" + nanosToMs(totalExecNanos.get() / done) + "/" + nanosToMs(maxExecNanos.get()) + "ms";
+        }
+
+        void shutdown(long timeoutMs) {
+            executor.shutdown();
+            // 唤醒等待入队的线程，入队时会因通道关闭被拒绝
+            synchronized (spaceLock) {
+                spaceLock.notifyAll();
+            }
+            try {
+                if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 记录排队等待和执行耗时的任务包装
+         */
+        private class TimedTask implements Runnable {
+            private final Runnable task;
+            private final long enqueuedAt;
+
+            TimedTask(Runnable task, long enqueuedAt) {
+                this.task = task;
+                this.enqueuedAt = enqueuedAt;
+            }
+
+            @Override
+            public void run() {
+                // 任务已离开队列
+                signalSpace();
+                long startedAt = System.nanoTime();
+                long wait = startedAt - enqueuedAt;
+                totalWaitNanos.addAndGet(wait);
+                updateMax(maxWaitNanos, wait);
+                try {
+                    task.run();
+                } finally {
+                    long exec = System.nanoTime() - startedAt;
+                    totalExecNanos.addAndGet(exec);
+                    updateMax(maxExecNanos, exec);
+                    completed.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按提交顺序串行执行的执行器
+     * 只在锁内取出下一个任务，提交到通道在锁外进行：通道背压时可能阻塞或在当前线程执行任务，
+     * 持锁执行会让其他提交者一起等待
+     */
+    private static class SerialExecutor implements Executor {
+        private final Executor lane;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        // 已交给通道、尚未执行完的任务，只在锁内读写
+        private Runnable active;
+
+        SerialExecutor(Executor lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            Runnable next;
+            synchronized (this) {
+                tasks.offer(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                });
+                if (active != null) {
+                    return;
+                }
+                next = active = tasks.poll();
+            }
+            dispatch(next);
+        }
+
+        private void scheduleNext() {
+            Runnable next;
+            synchronized (this) {
+                next = active = tasks.poll();
+            }
+            if (next != null) {
+                dispatch(next);
+            }
+        }
+
+        private void dispatch(Runnable next) {
+            try {
+                lane.execute(next);
+            } catch (RejectedExecutionException e) {
+                // 通道已关闭，放弃剩余任务
+                synchronized (this) {
+                    active = null;
+                    tasks.clear();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class LaneThread extends Thread {
+        private final int threadPriority;
+
+        LaneThread(Runnable target, String name, int threadPriority) {
+            super(target, name);
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(threadPriority);
+            super.run();
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final int threadPriority;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        LaneThreadFactory(String name, int threadPriority) {
+            this.namePrefix = name + "-";
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new LaneThread(r, namePrefix + threadNumber.getAndIncrement(), threadPriority);
+            // 不阻止应用程序退出
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    private static String nanosToMs(long nanos) {
+        return String.valueOf(nanos / 1_000_000L);
+    }
+}
@@ -6,15 +6,16 @@ import android.util.LruCache;
 import com.stu.calender2.MyApplication;
 import com.stu.calender2.data.AppDatabase;
 import com.stu.calender2.data.Task;
+import com.stu.calender2.data.TaskArchive;
+import com.stu.calender2.data.TaskChangeBus;
+import com.stu.calender2.data.TaskDao;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 数据库操作优化工具类
@@ -29,11 +30,12 @@ public class DatabaseOptimizer {
     // 任务缓存，增大缓存容量以提高性能
     private final LruCache<Long, Task> taskCache;
     
-    // 数据库实例引用
-    private final AppDatabase database;
+    // 读取走IO通道，写入走单线程的数据库写入通道
+    private final Executor readExecutor;
+    private final Executor writeExecutor;
     
-    // 线程池，用于异步操作
-    private final ExecutorService executor;
+    // 写入提交后发布变更，查询窗口据此决定是否重新查询
+    private final TaskChangeBus changeBus = TaskChangeBus.getInstance();
     
     // 批量操作的分批大小
     private static final int BATCH_SIZE = 50;
@@ -49,10 +51,9 @@ public class DatabaseOptimizer {
     
     // 私有构造函数，确保单例模式
     private DatabaseOptimizer() {
-        database = MyApplication.getInstance().getDatabase();
-        
-        // 创建固定大小的线程池，适合I/O操作
-        executor = Executors.newFixedThreadPool(4);
+        // 使用统一调度通道，不再单独创建线程池
+        readExecutor = AppSchedulers.getInstance().io();
+        writeExecutor = AppSchedulers.getInstance().dbWrite();
         
         // 创建缓存
         taskCache = new LruCache<>(CACHE_SIZE);
@@ -60,6 +61,11 @@ public class DatabaseOptimizer {
         Log.d(TAG, "数据库优化器初始化完成，缓存大小: " + CACHE_SIZE);
     }
     
+    // 当前数据库实例，恢复快照后数据库会重新打开，因此不缓存实例
+    private AppDatabase database() {
+        return MyApplication.getInstance().getDatabase();
+    }
+    
     // 获取单例实例，使用双重检查锁定确保线程安全
     public static DatabaseOptimizer getInstance() {
         if (instance == null) {
@@ -77,27 +83,17 @@ public class DatabaseOptimizer {
      * 应在应用程序结束时调用
      */
     public void shutdown() {
-        try {
-            // 执行所有待处理的写操作
-            for (Runnable pendingWrite : pendingWrites.values()) {
-                pendingWrite.run();
-            }
-            pendingWrites.clear();
-            
-            // 关闭线程池
-            executor.shutdown();
-            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
-            }
-            
-            // 清除缓存
-            taskCache.evictAll();
-            
-            Log.d(TAG, "数据库优化器已关闭");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            Log.e(TAG, "关闭数据库优化器时发生中断", e);
+        // 执行所有待处理的写操作，调度通道由AppSchedulers统一关闭
+        for (Runnable pendingWrite : pendingWrites.values()) {
+            MyApplication.getInstance().removeMainThreadCallback(pendingWrite);
+            pendingWrite.run();
         }
+        pendingWrites.clear();
+        
+        // 清除缓存
+        taskCache.evictAll();
+        
+        Log.d(TAG, "数据库优化器已关闭");
     }
     
     /**
@@ -107,14 +103,18 @@ public class DatabaseOptimizer {
         // 先检查缓存
         Task cachedTask = taskCache.get(taskId);
         if (cachedTask != null) {
-            Log.d(TAG, "从缓存获取任务: " + taskId);
+            if (AppLog.isLoggable(AppLog.VERBOSE)) {
+                AppLog.v(TAG, "从缓存获取任务: " + taskId);
+            }
             callback.onTaskLoaded(cachedTask);
             return;
         }
         
         // 缓存未命中，从数据库加载
-        executor.execute(() -> {
-            Task task = database.taskDao().getTaskById(taskId);
+        readExecutor.execute(() -> {
+            long start = PerfMonitor.getInstance().beginSection("db:getTaskById");
+            Task task = TaskArchive.getInstance().getTaskById(database().taskDao(), taskId);
+            PerfMonitor.getInstance().endQuery("db:getTaskById", start);
             if (task != null) {
                 // 加入缓存
                 taskCache.put(taskId, task);
@@ -134,9 +134,11 @@ public class DatabaseOptimizer {
      * 根据日期获取任务列表
      */
     public void getTasksByDate(long date, TasksCallback callback) {
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             // 使用非LiveData版本的DAO方法
-            List<Task> tasks = database.taskDao().getTasksByDate(date);
+            long start = PerfMonitor.getInstance().beginSection("db:getTasksByDate");
+            List<Task> tasks = loadTasksOfDay(date);
+            PerfMonitor.getInstance().endQuery("db:getTasksByDate", start);
             
             if (tasks != null) {
                 // 更新缓存
@@ -156,18 +158,57 @@ public class DatabaseOptimizer {
         });
     }
     
+    /**
+     * date所在自然日的任务，包括归档
+     */
+    private List<Task> loadTasksOfDay(long date) {
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(date);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        long dayStart = day.getTimeInMillis();
+        day.add(Calendar.DAY_OF_MONTH, 1);
+        long dayEnd = day.getTimeInMillis() - 1;
+        TaskDao dao = database().taskDao();
+        return TaskArchive.getInstance().withArchived(dao, dao.getTasksByDate(date), dayStart, dayEnd);
+    }
+    
     /**
      * 预加载指定日期范围内的任务到缓存
      * 适用于提前加载接下来几天的任务
      */
     public void preloadTasksByDateRange(long startDate, long endDate) {
-        executor.execute(() -> {
-            // 使用添加的非LiveData方法
-            List<Task> tasks = database.taskDao().getTasksBetweenDates(startDate, endDate);
-            if (tasks != null) {
-                Log.d(TAG, "预加载任务到缓存: " + tasks.size() + "条");
-                for (Task task : tasks) {
-                    taskCache.put(task.getId(), task);
+        preloadTasksByDateRange(startDate, endDate, null);
+    }
+    
+    /**
+     * 预加载指定日期范围内的任务到缓存，完成后在工作线程回调
+     * @param onComplete 预加载完成（无论成功与否）后执行，可为null
+     */
+    public void preloadTasksByDateRange(long startDate, long endDate, Runnable onComplete) {
+        readExecutor.execute(() -> {
+            try {
+                // 使用添加的非LiveData方法
+                long start = PerfMonitor.getInstance().beginSection("db:getTasksBetweenDates");
+                TaskDao dao = database().taskDao();
+                List<Task> tasks = TaskArchive.getInstance().withArchived(dao,
+                        dao.getTasksBetweenDates(startDate, endDate), startDate, endDate);
+                PerfMonitor.getInstance().endQuery("db:getTasksBetweenDates", start);
+                if (tasks != null) {
+                    if (AppLog.isLoggable(AppLog.DEBUG)) {
+                        AppLog.d(TAG, "预加载任务到缓存: " + tasks.size() + "条");
+                    }
+                    for (Task task : tasks) {
+                        taskCache.put(task.getId(), task);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "预加载任务失败", e);
+            } finally {
+                if (onComplete != null) {
+                    onComplete.run();
                 }
             }
         });
@@ -177,9 +218,11 @@ public class DatabaseOptimizer {
      * 批量获取所有任务
      */
     public void getAllTasks(TasksCallback callback) {
-        executor.execute(() -> {
+        readExecutor.execute(() -> {
             // 使用非LiveData版本的方法
-            List<Task> tasks = database.taskDao().getAllTasksList();
+            long start = PerfMonitor.getInstance().beginSection("db:getAllTasksList");
+            List<Task> tasks = TaskArchive.getInstance().loadAll(database().taskDao());
+            PerfMonitor.getInstance().endQuery("db:getAllTasksList", start);
             
             if(tasks != null) {
                 // 更新缓存
@@ -217,9 +260,11 @@ public class DatabaseOptimizer {
         }
         
         Runnable updateRunnable = () -> {
-            executor.execute(() -> {
-                // 更新数据库
-                database.taskDao().update(task);
+            writeExecutor.execute(() -> {
+                // 更新数据库，并发布包含旧时间范围的变更
+                Task before = database().taskDao().getTaskById(task.getId());
+                database().taskDao().update(task);
+                changeBus.publishUpdate(before, task);
                 
                 // 返回结果
                 if (callback != null) {
@@ -252,15 +297,22 @@ public class DatabaseOptimizer {
             taskCache.put(task.getId(), task);
         }
         
-        executor.execute(() -> {
+        writeExecutor.execute(() -> {
             // 分批处理
             for (int i = 0; i < tasks.size(); i += BATCH_SIZE) {
                 int end = Math.min(i + BATCH_SIZE, tasks.size());
                 List<Task> batch = tasks.subList(i, end);
                 
                 // 转换为数组以便批量更新
+                Task[] before = new Task[batch.size()];
+                for (int j = 0; j < batch.size(); j++) {
+                    before[j] = database().taskDao().getTaskById(batch.get(j).getId());
+                }
                 Task[] taskArray = batch.toArray(new Task[0]);
-                database.taskDao().updateAll(taskArray);
+                database().taskDao().updateAll(taskArray);
+                for (int j = 0; j < taskArray.length; j++) {
+                    changeBus.publishUpdate(before[j], taskArray[j]);
+                }
             }
             
             // 返回结果
@@ -278,15 +330,16 @@ public class DatabaseOptimizer {
         final String operationId = "insert_" + System.currentTimeMillis();
         
         Runnable insertRunnable = () -> {
-            executor.execute(() -> {
+            writeExecutor.execute(() -> {
                 // 插入数据库
-                long id = database.taskDao().insert(task);
+                long id = database().taskDao().insert(task);
                 
                 // 设置生成的ID
                 task.setId(id);
                 
                 // 更新缓存
                 taskCache.put(id, task);
+                changeBus.publishInsert(task);
                 
                 // 返回结果
                 if (callback != null) {
@@ -306,7 +359,8 @@ public class DatabaseOptimizer {
     }
     
     /**
-     * 批量插入任务，分批处理
+     * 批量插入任务，所有分批在同一个事务中提交，只需一次日志同步
+     * 大文件导入请使用TaskImporter，避免整个列表常驻内存
      */
     public void insertTasks(List<Task> tasks, BatchOperationCallback callback) {
         if (tasks == null || tasks.isEmpty()) {
@@ -316,37 +370,56 @@ public class DatabaseOptimizer {
             return;
         }
         
-        executor.execute(() -> {
-            int totalInserted = 0;
+        writeExecutor.execute(() -> {
+            List<Task> inserted = new ArrayList<>(tasks.size());
             boolean success = true;
             
-            // 分批处理
-            for (int i = 0; i < tasks.size(); i += BATCH_SIZE) {
-                int end = Math.min(i + BATCH_SIZE, tasks.size());
-                List<Task> batch = tasks.subList(i, end);
-                
-                try {
-                    // 转换为数组以便批量插入
-                    Task[] taskArray = batch.toArray(new Task[0]);
-                    long[] ids = database.taskDao().insertAll(taskArray);
+            AppDatabase database = database();
+            database.beginTransaction();
+            try {
+                // 分批处理
+                for (int i = 0; i < tasks.size(); i += BATCH_SIZE) {
+                    int end = Math.min(i + BATCH_SIZE, tasks.size());
+                    List<Task> batch = tasks.subList(i, end);
                     
-                    // 更新缓存和ID
-                    for (int j = 0; j < ids.length; j++) {
-                        if (ids[j] > 0) {
-                            Task task = batch.get(j);
-                            task.setId(ids[j]);
-                            taskCache.put(ids[j], task);
-                            totalInserted++;
+                    try {
+                        // 转换为数组以便批量插入
+                        Task[] taskArray = batch.toArray(new Task[0]);
+                        long[] ids = database.taskDao().insertAll(taskArray);
+                        
+                        // 更新ID
+                        for (int j = 0; j < ids.length; j++) {
+                            if (ids[j] > 0) {
+                                Task task = batch.get(j);
+                                task.setId(ids[j]);
+                                inserted.add(task);
+                            }
                         }
+                    } catch (Exception e) {
+                        Log.e(TAG, "批量插入任务失败", e);
+                        success = false;
                     }
-                } catch (Exception e) {
-                    Log.e(TAG, "批量插入任务失败", e);
-                    success = false;
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            
+            // 事务提交后再更新缓存和发布变更
+            for (Task task : inserted) {
+                taskCache.put(task.getId(), task);
+            }
+            if (inserted.size() > BATCH_SIZE) {
+                // 大量插入时让窗口重新查询一次，比逐条应用更省
+                changeBus.publishBulk();
+            } else {
+                for (Task task : inserted) {
+                    changeBus.publishInsert(task);
                 }
             }
             
             final boolean finalSuccess = success;
-            final int finalTotal = totalInserted;
+            final int finalTotal = inserted.size();
             
             if (callback != null) {
                 MyApplication.getInstance().postToMainThread(() -> 
@@ -367,9 +440,11 @@ public class DatabaseOptimizer {
         final String operationId = "delete_" + task.getId();
         
         Runnable deleteRunnable = () -> {
-            executor.execute(() -> {
+            writeExecutor.execute(() -> {
                 // 从数据库删除
-                database.taskDao().delete(task);
+                Task before = database().taskDao().getTaskById(task.getId());
+                database().taskDao().delete(task);
+                changeBus.publishDelete(before != null ? before : task);
                 
                 // 返回结果
                 if (callback != null) {
@@ -402,7 +477,7 @@ public class DatabaseOptimizer {
             taskCache.remove(task.getId());
         }
         
-        executor.execute(() -> {
+        writeExecutor.execute(() -> {
             int totalDeleted = 0;
             boolean success = true;
             
@@ -412,9 +487,17 @@ public class DatabaseOptimizer {
                 List<Task> batch = tasks.subList(i, end);
                 
                 try {
+                    Task[] before = new Task[batch.size()];
+                    for (int j = 0; j < batch.size(); j++) {
+                        Task stored = database().taskDao().getTaskById(batch.get(j).getId());
+                        before[j] = stored != null ? stored : batch.get(j);
+                    }
                     Task[] taskArray = batch.toArray(new Task[0]);
-                    int rowsAffected = database.taskDao().deleteAll(taskArray);
+                    int rowsAffected = database().taskDao().deleteAll(taskArray);
                     totalDeleted += rowsAffected;
+                    for (Task task : before) {
+                        changeBus.publishDelete(task);
+                    }
                 } catch (Exception e) {
                     Log.e(TAG, "批量删除任务失败", e);
                     success = false;
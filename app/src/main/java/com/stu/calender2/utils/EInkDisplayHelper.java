@@ -3,10 +3,10 @@ package com.stu.calender2.utils;
 import android.app.Activity;
 import android.content.Context;
 import android.graphics.Color;
+import android.graphics.Rect;
 import android.os.Build;
 import android.provider.Settings;
 import android.view.View;
-import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.AbsListView;
@@ -31,10 +31,6 @@ public class EInkDisplayHelper {
     // 添加锁对象用于同步
     private static final Object lock = new Object();
     
-    // 添加刷新状态追踪
-    private static long lastGlobalRefreshTime = 0;
-    private static final long MIN_REFRESH_INTERVAL = 500; // 毫秒
-    
     public static void disableSystemAnimations(Context context) {
         try {
             // 尝试通过开发者选项禁用动画
@@ -76,73 +72,6 @@ public class EInkDisplayHelper {
         }
     }
     
-    /**
-     * 递归禁用视图层次结构中的所有动画
-     */
-    public static void disableAnimationsRecursively(View view) {
-        if (view == null) return;
-        
-        synchronized (lock) {
-            // 检查此视图是否已处理
-            if (processedViews.containsKey(view)) {
-                return;
-            }
-            
-            // 记录此视图已处理
-            processedViews.put(view, Boolean.TRUE);
-        }
-        
-        // 禁用视图动画
-        view.setAnimation(null);
-        
-        // 不再禁用ScrollView的平滑滚动，仅优化其他属性
-        if (view instanceof ScrollView) {
-            // 保留平滑滚动，但设置其他优化
-            ScrollView scrollView = (ScrollView) view;
-            
-            try {
-                Method method = ScrollView.class.getMethod("setScrollingCacheEnabled", boolean.class);
-                method.invoke(scrollView, false);
-            } catch (Exception e) {
-                // 忽略反射错误
-            }
-        }
-        
-        // 特殊处理列表视图
-        if (view instanceof ListView) {
-            ListView listView = (ListView) view;
-            listView.setLayoutAnimation(null);
-            listView.setSmoothScrollbarEnabled(false);
-        }
-        
-        // 特殊处理RecyclerView
-        if (view instanceof RecyclerView) {
-            RecyclerView recyclerView = (RecyclerView) view;
-            recyclerView.setItemAnimator(null);
-            recyclerView.setLayoutAnimation(null);
-        }
-        
-        // 特殊处理ViewPager
-        if (view instanceof ViewPager) {
-            ViewPager viewPager = (ViewPager) view;
-            viewPager.setPageTransformer(false, null);
-        }
-        
-        // 设置淡化边缘效果但不完全禁用过度滚动
-        view.setOverScrollMode(View.OVER_SCROLL_IF_CONTENT_SCROLLS);
-        
-        // 使用软件渲染提高兼容性
-        view.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
-        
-        // 递归处理子视图
-        if (view instanceof ViewGroup) {
-            ViewGroup viewGroup = (ViewGroup) view;
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                disableAnimationsRecursively(viewGroup.getChildAt(i));
-            }
-        }
-    }
-    
     /**
      * 设置水墨屏优化的刷新模式
      */
@@ -156,28 +85,8 @@ public class EInkDisplayHelper {
             // 忽略反射错误
         }
         
-        try {
-            // 尝试调用博阅等设备的特定API
-            Class<?> epdControllerClass = Class.forName("android.view.EpdController");
-            
-            // 设置为最适合UI的刷新模式
-            Method setModeMethod = epdControllerClass.getMethod("setMode", int.class);
-            setModeMethod.invoke(null, 2); // 2通常代表GC16全刷新模式，减少重影
-        } catch (Exception e) {
-            // 忽略不支持的设备
-            try {
-                // 尝试文石设备的API
-                Class<?> epdClass = Class.forName("android.hardware.eink.EinkManager");
-                Method getInstanceMethod = epdClass.getMethod("getInstance");
-                Object einkManager = getInstanceMethod.invoke(null);
-                
-                // 设置UI刷新模式
-                Method setUiModeMethod = einkManager.getClass().getMethod("setUiMode", int.class);
-                setUiModeMethod.invoke(einkManager, 2); // 通常2表示UI模式
-            } catch (Exception e2) {
-                // 忽略不支持的设备
-            }
-        }
+        // 设置为最适合UI的刷新模式，不支持的设备忽略
+        EInkDriver.getInstance().applyUiMode();
     }
 
     /**
@@ -312,106 +221,51 @@ public class EInkDisplayHelper {
     }
 
     /**
-     * 触发设备级别的全局刷新，添加频率限制
+     * 触发设备级别的全局刷新
+     * 交由EInkRefreshScheduler合并调度，仅在累计的局部刷新留下残影时才执行
      */
     public static void triggerGlobalRefresh(Context context) {
-        long currentTime = System.currentTimeMillis();
-        
-        // 限制刷新频率，避免过度刷新
-        synchronized (lock) {
-            if (currentTime - lastGlobalRefreshTime < MIN_REFRESH_INTERVAL) {
-                return;
-            }
-            lastGlobalRefreshTime = currentTime;
-        }
-        
-        try {
-            // 尝试使用博阅、汉王、文石等电纸书设备特定的刷新API
-            // 以下是模拟的代码，实际实现需要针对特定设备
-            
-            // 博阅设备刷新API示例
-            try {
-                Class<?> epdClass = Class.forName("android.view.EpdController");
-                Method epdcMethod = epdClass.getMethod("invalidate", View.class, int.class, int.class, int.class, int.class, int.class);
-                epdcMethod.invoke(null, null, 0, 0, 0, 0, 2); // 2表示GC16/DU4刷新模式
-                return; // 成功刷新后返回
-            } catch (Exception e1) {
-                // 博阅API不可用，尝试其他设备API
-            }
-            
-            // 文石设备刷新API示例
-            try {
-                Class<?> epdClass = Class.forName("android.hardware.eink.EinkManager");
-                Method getInstanceMethod = epdClass.getMethod("getInstance");
-                Object einkManager = getInstanceMethod.invoke(null);
-                
-                Method refreshMethod = einkManager.getClass().getMethod("fullRefresh");
-                refreshMethod.invoke(einkManager);
-                return; // 成功刷新后返回
-            } catch (Exception e2) {
-                // 文石API不可用，尝试其他通用方法
-            }
-            
-            // 其他制造商设备，如海信等
-            try {
-                Class<?> cls = Class.forName("android.eink.EinkManager");
-                Method getInstanceMethod = cls.getMethod("getInstance");
-                Object einkManager = getInstanceMethod.invoke(null);
-                
-                Method refreshMethod = einkManager.getClass().getMethod("fullRefresh");
-                refreshMethod.invoke(einkManager);
-                return; // 成功刷新后返回
-            } catch (Exception e3) {
-                // 通用刷新方法不可用
-            }
-            
-            // 在没有任何特殊API可用的情况下使用系统通用刷新方法
-            if (context instanceof Activity) {
-                Activity activity = (Activity) context;
-                View decorView = activity.getWindow().getDecorView();
-                if (decorView != null) {
-                    decorView.invalidate();
-                }
-            }
-        } catch (Exception e) {
-            // 忽略所有刷新错误
+        View root = null;
+        if (context instanceof Activity) {
+            root = ((Activity) context).getWindow().getDecorView();
         }
+        EInkRefreshScheduler.getInstance().requestCleanup(root);
     }
     
     /**
-     * 刷新特定视图，添加频率限制
+     * 局部刷新特定视图，交由EInkRefreshScheduler合并调度
      */
     public static void refreshView(View view) {
-        if (view == null) return;
-        
-        long currentTime = System.currentTimeMillis();
-        
-        // 限制刷新频率，避免过度刷新
-        synchronized (lock) {
-            if (currentTime - lastGlobalRefreshTime < MIN_REFRESH_INTERVAL) {
-                return;
-            }
-            lastGlobalRefreshTime = currentTime;
+        EInkRefreshScheduler.getInstance().requestPartial(view);
+    }
+    
+    /**
+     * 执行GC16全刷新，由刷新调度器调用
+     * @param root 窗口根视图，可为null
+     */
+    static void performFullRefresh(View root) {
+        long start = PerfMonitor.getInstance().beginSection("eink:full");
+        if (!EInkDriver.getInstance().fullRefresh(root) && root != null) {
+            // 没有可用的厂商API时使用系统通用刷新方法
+            root.invalidate();
         }
+        PerfMonitor.getInstance().endSection("eink:full", start);
+    }
+    
+    /**
+     * 以指定波形局部刷新窗口中的一个区域，由刷新调度器调用
+     * @param root 窗口根视图
+     * @param rect 窗口坐标系中的刷新区域
+     */
+    static void performPartialRefresh(View root, Rect rect, EInkRefreshScheduler.Waveform waveform) {
+        if (root == null || rect == null) return;
         
-        try {
-            // 使用博阅等设备特定的API刷新视图
-            try {
-                Class<?> epdClass = Class.forName("android.view.EpdController");
-                Method updateMethod = epdClass.getMethod("invalidate", View.class, int.class);
-                // 进行局部刷新
-                updateMethod.invoke(null, view, 1); // 1表示A2/DU模式，更快的局部刷新
-                return; // 成功后返回
-            } catch (Exception e) {
-                // 特定API不可用，使用通用方法
-            }
-            
+        long start = PerfMonitor.getInstance().beginSection("eink:partial");
+        if (!EInkDriver.getInstance().partialRefresh(root, rect, waveform)) {
             // 其他设备的通用局部刷新方法
-            view.invalidate();
-            
-        } catch (Exception e) {
-            // 忽略刷新错误
+            root.invalidate(rect);
         }
+        PerfMonitor.getInstance().endSection("eink:partial", start);
     }
     
     /**
@@ -0,0 +1,307 @@
+package com.stu.calender2.utils;
+
+import android.graphics.Rect;
+import android.util.Log;
+import android.view.View;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 水墨屏厂商刷新接口的抽象
+ * 启动时探测一次可用的厂商API并缓存反射得到的Method，之后每次刷新都是直接调用；
+ * 没有可用API时使用空实现，由调用方退回到普通的invalidate
+ */
+public abstract class EInkDriver {
+    private static final String TAG = "EInkDriver";
+
+    private static volatile EInkDriver instance;
+
+    /**
+     * 驱动支持的能力
+     */
+    public enum Capability {
+        // 全屏刷新
+        FULL_REFRESH,
+        // 指定区域刷新
+        REGION_REFRESH,
+        // 可设置界面默认刷新模式
+        UI_MODE
+    }
+
+    /**
+     * 获取当前设备的驱动，首次调用时探测
+     */
+    public static EInkDriver getInstance() {
+        if (instance == null) {
+            synchronized (EInkDriver.class) {
+                if (instance == null) {
+                    instance = probe();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 依次探测博阅、文石和其他厂商的API，使用第一个可用的
+     */
+    private static EInkDriver probe() {
+        long startTime = System.currentTimeMillis();
+        EInkDriver driver = EpdControllerDriver.create();
+        if (driver == null) {
+            driver = EinkManagerDriver.create("android.hardware.eink.EinkManager");
+        }
+        if (driver == null) {
+            driver = EinkManagerDriver.create("android.eink.EinkManager");
+        }
+        if (driver == null) {
+            driver = new NoOpDriver();
+        }
+        Log.d(TAG, "水墨屏驱动: " + driver.getName() + " " + driver.getCapabilities()
+                + "，探测耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        return driver;
+    }
+
+    /**
+     * 驱动名称，用于日志
+     */
+    public abstract String getName();
+
+    /**
+     * 驱动支持的能力集合
+     */
+    public abstract Set<Capability> getCapabilities();
+
+    public boolean hasCapability(Capability capability) {
+        return getCapabilities().contains(capability);
+    }
+
+    /**
+     * 全屏GC16刷新
+     * @return 驱动不支持或调用失败时返回false
+     */
+    public abstract boolean fullRefresh(View root);
+
+    /**
+     * 以指定波形刷新窗口中的一个区域
+     * @return 驱动不支持或调用失败时返回false
+     */
+    public abstract boolean partialRefresh(View root, Rect rect, EInkRefreshScheduler.Waveform waveform);
+
+    /**
+     * 将界面默认刷新模式设为适合UI的模式
+     * @return 驱动不支持或调用失败时返回false
+     */
+    public abstract boolean applyUiMode();
+
+    /**
+     * 博阅等设备的android.view.EpdController静态接口
+     * 各方法分别探测：有区域刷新invalidate(View,int,int,int,int,int)时按区域刷新，
+     * 只有invalidate(View,int)时整个视图按模式刷新
+     */
+    private static class EpdControllerDriver extends EInkDriver {
+        // 厂商模式值只区分两种：1表示快速局部刷新，2表示GC16全刷新
+        private static final int MODE_FAST = 1;
+        private static final int MODE_FULL = 2;
+
+        private final Method invalidateRegion;
+        private final Method invalidateView;
+        private final Method setMode;
+        private final Set<Capability> capabilities;
+
+        private EpdControllerDriver(Method invalidateRegion, Method invalidateView, Method setMode) {
+            this.invalidateRegion = invalidateRegion;
+            this.invalidateView = invalidateView;
+            this.setMode = setMode;
+            EnumSet<Capability> set = EnumSet.of(Capability.FULL_REFRESH);
+            if (invalidateRegion != null) {
+                set.add(Capability.REGION_REFRESH);
+            }
+            if (setMode != null) {
+                set.add(Capability.UI_MODE);
+            }
+            capabilities = Collections.unmodifiableSet(set);
+        }
+
+        static EInkDriver create() {
+            Class<?> epdClass;
+            try {
+                epdClass = Class.forName("android.view.EpdController");
+            } catch (Throwable e) {
+                return null;
+            }
+            Method invalidateRegion = findMethod(epdClass, "invalidate", View.class,
+                    int.class, int.class, int.class, int.class, int.class);
+            Method invalidateView = findMethod(epdClass, "invalidate", View.class, int.class);
+            // 部分设备不支持设置默认模式
+            Method setMode = findMethod(epdClass, "setMode", int.class);
+            if (invalidateRegion == null && invalidateView == null) {
+                return null;
+            }
+            return new EpdControllerDriver(invalidateRegion, invalidateView, setMode);
+        }
+
+        private static int modeOf(EInkRefreshScheduler.Waveform waveform) {
+            return waveform == EInkRefreshScheduler.Waveform.GC16 ? MODE_FULL : MODE_FAST;
+        }
+
+        @Override
+        public String getName() {
+            return invalidateRegion != null ? "EpdController" : "EpdController(View)";
+        }
+
+        @Override
+        public Set<Capability> getCapabilities() {
+            return capabilities;
+        }
+
+        @Override
+        public boolean fullRefresh(View root) {
+            if (invalidateRegion != null) {
+                return invoke(invalidateRegion, null, null, 0, 0, 0, 0, MODE_FULL);
+            }
+            return root != null && invoke(invalidateView, null, root, MODE_FULL);
+        }
+
+        @Override
+        public boolean partialRefresh(View root, Rect rect, EInkRefreshScheduler.Waveform waveform) {
+            int mode = modeOf(waveform);
+            if (invalidateRegion != null) {
+                return invoke(invalidateRegion, null, root, rect.left, rect.top, rect.right, rect.bottom, mode);
+            }
+            // 不能指定区域，整个视图按该模式刷新
+            return root != null && invoke(invalidateView, null, root, mode);
+        }
+
+        @Override
+        public boolean applyUiMode() {
+            // 2通常代表GC16全刷新模式，减少重影
+            return setMode != null && invoke(setMode, null, MODE_FULL);
+        }
+    }
+
+    /**
+     * 文石、海信等设备的EinkManager单例接口，只支持全屏刷新
+     */
+    private static class EinkManagerDriver extends EInkDriver {
+        // 通常2表示UI模式
+        private static final int UI_MODE = 2;
+
+        private final String className;
+        private final Object manager;
+        private final Method fullRefresh;
+        private final Method setUiMode;
+        private final Set<Capability> capabilities;
+
+        private EinkManagerDriver(String className, Object manager, Method fullRefresh, Method setUiMode) {
+            this.className = className;
+            this.manager = manager;
+            this.fullRefresh = fullRefresh;
+            this.setUiMode = setUiMode;
+            EnumSet<Capability> set = EnumSet.of(Capability.FULL_REFRESH);
+            if (setUiMode != null) {
+                set.add(Capability.UI_MODE);
+            }
+            capabilities = Collections.unmodifiableSet(set);
+        }
+
+        static EInkDriver create(String className) {
+            try {
+                Class<?> managerClass = Class.forName(className);
+                Object manager = managerClass.getMethod("getInstance").invoke(null);
+                if (manager == null) {
+                    return null;
+                }
+                Method fullRefresh = manager.getClass().getMethod("fullRefresh");
+                Method setUiMode = null;
+                try {
+                    setUiMode = manager.getClass().getMethod("setUiMode", int.class);
+                } catch (NoSuchMethodException e) {
+                    // 部分设备不支持设置界面模式
+                }
+                return new EinkManagerDriver(className, manager, fullRefresh, setUiMode);
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String getName() {
+            return className;
+        }
+
+        @Override
+        public Set<Capability> getCapabilities() {
+            return capabilities;
+        }
+
+        @Override
+        public boolean fullRefresh(View root) {
+            return invoke(fullRefresh, manager);
+        }
+
+        @Override
+        public boolean partialRefresh(View root, Rect rect, EInkRefreshScheduler.Waveform waveform) {
+            return false;
+        }
+
+        @Override
+        public boolean applyUiMode() {
+            return setUiMode != null && invoke(setUiMode, manager, UI_MODE);
+        }
+    }
+
+    /**
+     * 没有厂商API时的空实现
+     */
+    private static class NoOpDriver extends EInkDriver {
+        @Override
+        public String getName() {
+            return "NoOp";
+        }
+
+        @Override
+        public Set<Capability> getCapabilities() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean fullRefresh(View root) {
+            return false;
+        }
+
+        @Override
+        public boolean partialRefresh(View root, Rect rect, EInkRefreshScheduler.Waveform waveform) {
+            return false;
+        }
+
+        @Override
+        public boolean applyUiMode() {
+            return false;
+        }
+    }
+
+    /**
+     * 查找公开方法，不存在时返回null
+     */
+    private static Method findMethod(Class<?> cls, String name, Class<?>... parameterTypes) {
+        try {
+            return cls.getMethod(name, parameterTypes);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static boolean invoke(Method method, Object target, Object... args) {
+        try {
+            method.invoke(target, args);
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "调用厂商刷新接口失败: " + method.getName(), e);
+            return false;
+        }
+    }
+}
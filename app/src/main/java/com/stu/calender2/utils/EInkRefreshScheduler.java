@@ -0,0 +1,387 @@
+package com.stu.calender2.utils;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 水墨屏统一刷新调度器
+ * 所有刷新请求都经由此处：在一个合并窗口内收集脏区域并合并，
+ * 到期后一次性刷新；由GhostingAccumulator按屏幕区域累计残影，决定局部快速刷新、
+ * 区域GC16清理还是全屏GC16刷新。
+ * 脏区域按所在窗口的根视图分别记录和刷新，对话框等独立窗口的区域不会用错坐标系。
+ * 请求不会因节流被丢弃，只会被推迟并与后续请求合并。只在主线程使用
+ */
+public class EInkRefreshScheduler {
+    private static final String TAG = "EInkRefreshScheduler";
+
+    private static volatile EInkRefreshScheduler instance;
+
+    /**
+     * 刷新波形
+     */
+    public enum Waveform {
+        // 局部快速刷新；厂商接口只区分快速和完整两种模式，A2和DU对应同一模式
+        FAST,
+        // 全屏16级灰阶刷新，清除残影
+        GC16
+    }
+
+    // 合并窗口：首个请求到达后等待该时长再刷新，期间的请求合并处理
+    private static final long FRAME_BUDGET_MS = 120;
+
+    // 两次刷新之间的最小间隔
+    private static final long MIN_FLUSH_INTERVAL_MS = 300;
+
+    // 脏区域数量上限，超过后合并为外接矩形
+    private static final int MAX_DIRTY_RECTS = 4;
+
+    // 两个区域间距小于该值时合并，避免碎片化的小刷新
+    private static final int MERGE_SLOP_PX = 24;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    // 待刷新的窗口，每个窗口有自己的脏区域和需要重绘的视图
+    private final List<DirtyWindow> dirtyWindows = new ArrayList<>();
+
+    // 待执行的全刷新，不会被合并或节流丢弃
+    private boolean fullPending;
+    // 非强制的全刷新请求，仅在存在残影时执行
+    private boolean cleanupPending;
+    private View fullRoot;
+
+    private boolean flushScheduled;
+    private long lastFlushTime;
+
+    // 按屏幕区域累计残影，坐标为屏幕根视图的坐标系
+    private final GhostingAccumulator ghosting = new GhostingAccumulator();
+    private final Rect cleanupRegion = new Rect();
+
+    // 统计
+    private long requestCount;
+    private long flushCount;
+    private long partialRefreshCount;
+    private long regionCleanupCount;
+    private long fullRefreshCount;
+    private long skippedFullCount;
+
+    private final Rect tempRect = new Rect();
+    private final int[] rootLocation = new int[2];
+    private final int[] windowLocation = new int[2];
+    private final PerfMonitor perf = PerfMonitor.getInstance();
+
+    private EInkRefreshScheduler() {
+        // 私有构造函数
+    }
+
+    public static EInkRefreshScheduler getInstance() {
+        if (instance == null) {
+            synchronized (EInkRefreshScheduler.class) {
+                if (instance == null) {
+                    instance = new EInkRefreshScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 请求局部刷新指定视图
+     */
+    public void requestPartial(View view) {
+        if (view == null) return;
+        if (!isMainThread()) {
+            handler.post(() -> requestPartial(view));
+            return;
+        }
+
+        requestCount++;
+        perf.increment(PerfMonitor.Counter.REFRESH_REQUESTS);
+        if (!view.isAttachedToWindow() || !view.getGlobalVisibleRect(tempRect)) {
+            // 不可见的视图只需标记重绘，无需屏幕刷新
+            perf.increment(PerfMonitor.Counter.REFRESH_DROPPED);
+            view.invalidate();
+            return;
+        }
+
+        DirtyWindow window = windowOf(view.getRootView());
+        if (!window.views.contains(view)) {
+            window.views.add(view);
+        }
+        addDirtyRect(window.rects, new Rect(tempRect));
+        scheduleFlush();
+    }
+
+    /**
+     * 请求全屏GC16刷新，清除残影
+     * @param root 窗口根视图，没有可用视图时可为null
+     */
+    public void requestFull(View root) {
+        if (!isMainThread()) {
+            handler.post(() -> requestFull(root));
+            return;
+        }
+
+        requestCount++;
+        perf.increment(PerfMonitor.Counter.REFRESH_REQUESTS);
+        fullPending = true;
+        if (root != null) {
+            fullRoot = root.getRootView();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * 请求清除残影：仅当累计的局部刷新确实留下残影时才执行全刷新，
+     * 避免无谓的全屏闪烁
+     * @param root 窗口根视图，没有可用视图时可为null
+     */
+    public void requestCleanup(View root) {
+        if (!isMainThread()) {
+            handler.post(() -> requestCleanup(root));
+            return;
+        }
+
+        requestCount++;
+        perf.increment(PerfMonitor.Counter.REFRESH_REQUESTS);
+        cleanupPending = true;
+        if (root != null && fullRoot == null) {
+            fullRoot = root.getRootView();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * 立即执行待处理的刷新，跳过合并窗口
+     */
+    public void flushNow() {
+        if (!isMainThread()) {
+            handler.post(this::flushNow);
+            return;
+        }
+        handler.removeCallbacks(flushRunnable);
+        flush();
+    }
+
+    /**
+     * 刷新统计信息
+     */
+    public String getStats() {
+        return "刷新请求: " + requestCount
+                + ", 实际刷新: " + flushCount
+                + ", 局部: " + partialRefreshCount
+                + ", 区域清理: " + regionCleanupCount
+                + ", 全刷新: " + fullRefreshCount
+                + ", 跳过的全刷新: " + skippedFullCount
+                + ", " + ghosting.getStats();
+    }
+
+    private DirtyWindow windowOf(View root) {
+        for (DirtyWindow window : dirtyWindows) {
+            if (window.root == root) {
+                return window;
+            }
+        }
+        DirtyWindow window = new DirtyWindow(root);
+        dirtyWindows.add(window);
+        return window;
+    }
+
+    private void addDirtyRect(List<Rect> dirtyRects, Rect rect) {
+        dirtyRects.add(rect);
+
+        // 反复合并相交或相邻的区域，直到稳定
+        boolean merged;
+        do {
+            merged = false;
+            outer:
+            for (int i = 0; i < dirtyRects.size(); i++) {
+                Rect a = dirtyRects.get(i);
+                for (int j = i + 1; j < dirtyRects.size(); j++) {
+                    Rect b = dirtyRects.get(j);
+                    if (isNear(a, b)) {
+                        a.union(b);
+                        dirtyRects.remove(j);
+                        perf.increment(PerfMonitor.Counter.REFRESH_MERGED);
+                        merged = true;
+                        break outer;
+                    }
+                }
+            }
+        } while (merged);
+
+        if (dirtyRects.size() > MAX_DIRTY_RECTS) {
+            Rect bounds = new Rect(dirtyRects.get(0));
+            for (int i = 1; i < dirtyRects.size(); i++) {
+                bounds.union(dirtyRects.get(i));
+                perf.increment(PerfMonitor.Counter.REFRESH_MERGED);
+            }
+            dirtyRects.clear();
+            dirtyRects.add(bounds);
+        }
+    }
+
+    private static boolean isNear(Rect a, Rect b) {
+        return a.left - MERGE_SLOP_PX < b.right && b.left - MERGE_SLOP_PX < a.right
+                && a.top - MERGE_SLOP_PX < b.bottom && b.top - MERGE_SLOP_PX < a.bottom;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+
+        long now = SystemClock.uptimeMillis();
+        long delay = Math.max(FRAME_BUDGET_MS, lastFlushTime + MIN_FLUSH_INTERVAL_MS - now);
+        handler.postDelayed(flushRunnable, delay);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (cleanupPending && !fullPending) {
+            if (ghosting.hasResidue()) {
+                fullPending = true;
+            } else {
+                skippedFullCount++;
+                perf.increment(PerfMonitor.Counter.REFRESH_DROPPED);
+            }
+        }
+        cleanupPending = false;
+        if (!fullPending && dirtyWindows.isEmpty()) {
+            fullRoot = null;
+            return;
+        }
+        lastFlushTime = SystemClock.uptimeMillis();
+        flushCount++;
+        long start = perf.beginSection("eink:flush");
+
+        // 先让视图重绘新内容
+        for (DirtyWindow window : dirtyWindows) {
+            for (View view : window.views) {
+                if (view.isAttachedToWindow()) {
+                    view.invalidate();
+                }
+            }
+        }
+
+        View screenRoot = fullRoot != null ? fullRoot : largestDirtyRoot();
+        if (fullPending) {
+            refreshFull(screenRoot);
+        } else {
+            refreshPartial(screenRoot);
+        }
+
+        dirtyWindows.clear();
+        fullPending = false;
+        fullRoot = null;
+        perf.endSection("eink:flush", start);
+    }
+
+    /**
+     * 面积最大的待刷新窗口，通常是铺满屏幕的Activity窗口，残影网格以它为准
+     */
+    private View largestDirtyRoot() {
+        View largest = null;
+        long largestArea = -1;
+        for (DirtyWindow window : dirtyWindows) {
+            long area = (long) window.root.getWidth() * window.root.getHeight();
+            if (area > largestArea) {
+                largest = window.root;
+                largestArea = area;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * 全刷新作用于整个屏幕，只需执行一次
+     */
+    private void refreshFull(View root) {
+        EInkDisplayHelper.performFullRefresh(root);
+        fullRefreshCount++;
+        perf.increment(PerfMonitor.Counter.REFRESH_ISSUED);
+        ghosting.reset();
+    }
+
+    /**
+     * 各窗口分别局部刷新自己的脏区域，并按残影预算决定是否顺带清理
+     * @param screenRoot 残影网格和清理区域所在的根视图
+     */
+    private void refreshPartial(View screenRoot) {
+        int width = screenRoot.getWidth();
+        int height = screenRoot.getHeight();
+        screenRoot.getLocationOnScreen(rootLocation);
+        for (DirtyWindow window : dirtyWindows) {
+            for (Rect rect : window.rects) {
+                ghosting.recordPartial(width, height, toScreenRoot(window.root, rect));
+            }
+        }
+
+        boolean regionCapable = EInkDriver.getInstance().hasCapability(EInkDriver.Capability.REGION_REFRESH);
+        GhostingAccumulator.Decision decision = ghosting.evaluate(regionCapable, cleanupRegion);
+        if (decision == GhostingAccumulator.Decision.FULL) {
+            AppLog.d(TAG, "残影超出预算，升级为全刷新");
+            refreshFull(screenRoot);
+            return;
+        }
+
+        boolean cleanup = decision == GhostingAccumulator.Decision.REGION;
+        for (DirtyWindow window : dirtyWindows) {
+            for (Rect rect : window.rects) {
+                if (cleanup) {
+                    Rect screenRect = toScreenRoot(window.root, rect);
+                    if (Rect.intersects(screenRect, cleanupRegion)) {
+                        // 与清理区域重叠的脏区域直接并入GC16清理，避免同一区域刷新两次
+                        cleanupRegion.union(screenRect);
+                        continue;
+                    }
+                }
+                EInkDisplayHelper.performPartialRefresh(window.root, rect, Waveform.FAST);
+                partialRefreshCount++;
+                perf.increment(PerfMonitor.Counter.REFRESH_ISSUED);
+            }
+        }
+
+        if (cleanup) {
+            if (AppLog.isLoggable(AppLog.DEBUG)) {
+                AppLog.d(TAG, "区域残影超出预算，GC16清理: " + cleanupRegion.toShortString());
+            }
+            EInkDisplayHelper.performPartialRefresh(screenRoot, cleanupRegion, Waveform.GC16);
+            regionCleanupCount++;
+            perf.increment(PerfMonitor.Counter.REFRESH_ISSUED);
+            ghosting.resetRegion(cleanupRegion);
+        }
+    }
+
+    /**
+     * 把窗口坐标系中的区域换算到屏幕根视图的坐标系，结果写入tempRect
+     */
+    private Rect toScreenRoot(View root, Rect rect) {
+        tempRect.set(rect);
+        root.getLocationOnScreen(windowLocation);
+        tempRect.offset(windowLocation[0] - rootLocation[0], windowLocation[1] - rootLocation[1]);
+        return tempRect;
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * 一个窗口中待刷新的脏区域（该窗口的坐标系）和需要重绘的视图
+     */
+    private static final class DirtyWindow {
+        final View root;
+        final List<Rect> rects = new ArrayList<>();
+        final List<View> views = new ArrayList<>();
+
+        DirtyWindow(View root) {
+            this.root = root;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.stu.calender2.utils;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager.widget.ViewPager;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 水墨屏视图工厂
+ * 在每个视图创建时一次性应用水墨屏设置（无动画、无过度滚动），
+ * 取代在焦点变化和onResume时反复遍历整个视图树。
+ * 需在Activity的super.onCreate之前安装，AppCompat控件的替换仍交给AppCompatDelegate
+ */
+public class EInkViewFactory implements LayoutInflater.Factory2 {
+    private static final String TAG = "EInkViewFactory";
+
+    // 与系统PhoneLayoutInflater一致的短类名前缀
+    private static final String[] CLASS_PREFIXES = {
+            "android.widget.",
+            "android.view.",
+            "android.webkit."
+    };
+
+    // 构造函数缓存，只在主线程访问
+    private static final Map<String, Constructor<? extends View>> constructorCache = new HashMap<>();
+    private static final Class<?>[] CONSTRUCTOR_SIGNATURE = {Context.class, AttributeSet.class};
+
+    private final AppCompatActivity activity;
+
+    private EInkViewFactory(AppCompatActivity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * 为Activity安装视图工厂，必须在super.onCreate之前调用
+     */
+    public static void install(AppCompatActivity activity) {
+        LayoutInflater inflater = LayoutInflater.from(activity);
+        if (inflater.getFactory() != null) {
+            Log.w(TAG, "LayoutInflater已安装Factory，无法安装水墨屏视图工厂");
+            return;
+        }
+        inflater.setFactory2(new EInkViewFactory(activity));
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@Nullable View parent, @NonNull String name,
+                             @NonNull Context context, @NonNull AttributeSet attrs) {
+        // Fragment容器需要FragmentManager参与创建，交给Activity的默认工厂
+        if ("fragment".equals(name) || name.endsWith("FragmentContainerView")) {
+            return null;
+        }
+
+        View view = activity.getDelegate().createView(parent, name, context, attrs);
+        if (view == null) {
+            view = createViewFromTag(name, context, attrs);
+        }
+        if (view != null) {
+            PerfMonitor.getInstance().increment(PerfMonitor.Counter.VIEW_INFLATIONS);
+            applyEInkSettings(view);
+        }
+        return view;
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs) {
+        return onCreateView(null, name, context, attrs);
+    }
+
+    /**
+     * 对新创建的视图应用水墨屏设置，只处理视图本身
+     */
+    private void applyEInkSettings(View view) {
+        // 无过度滚动和按压状态动画
+        view.setOverScrollMode(View.OVER_SCROLL_NEVER);
+        view.setStateListAnimator(null);
+
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            viewGroup.setLayoutAnimation(null);
+            viewGroup.setLayoutTransition(null);
+        }
+
+        if (view instanceof AbsListView) {
+            AbsListView listView = (AbsListView) view;
+            listView.setScrollingCacheEnabled(false);
+            listView.setSmoothScrollbarEnabled(false);
+            // 增加摩擦力减缓滚动，减少水墨屏上的中间帧
+            listView.setFriction(ViewConfiguration.getScrollFriction() * 4);
+        } else if (view instanceof RecyclerView) {
+            ((RecyclerView) view).setItemAnimator(null);
+        } else if (view instanceof ViewPager) {
+            ((ViewPager) view).setPageTransformer(false, null);
+        }
+
+        // 按优化级别应用的设置
+        UIPerformanceOptimizer.getInstance().optimizeView(view);
+    }
+
+    /**
+     * 通过缓存的构造函数创建非AppCompat视图
+     */
+    @Nullable
+    private View createViewFromTag(String name, Context context, AttributeSet attrs) {
+        try {
+            if (name.indexOf('.') != -1) {
+                return createView(name, context, attrs);
+            }
+            for (String prefix : CLASS_PREFIXES) {
+                View view = createView(prefix + name, context, attrs);
+                if (view != null) {
+                    return view;
+                }
+            }
+        } catch (Exception e) {
+            // 创建失败时交回LayoutInflater按默认流程处理
+            Log.w(TAG, "创建视图失败，交由默认流程: " + name, e);
+        }
+        return null;
+    }
+
+    @Nullable
+    private View createView(String className, Context context, AttributeSet attrs) throws Exception {
+        Constructor<? extends View> constructor = constructorCache.get(className);
+        if (constructor == null) {
+            if (constructorCache.containsKey(className)) {
+                // 已知不存在的类
+                return null;
+            }
+            try {
+                Class<? extends View> clazz = Class.forName(className, false, context.getClassLoader())
+                        .asSubclass(View.class);
+                constructor = clazz.getConstructor(CONSTRUCTOR_SIGNATURE);
+                constructor.setAccessible(true);
+            } catch (ClassNotFoundException e) {
+                constructorCache.put(className, null);
+                return null;
+            }
+            constructorCache.put(className, constructor);
+        }
+        return constructor.newInstance(context, attrs);
+    }
+}
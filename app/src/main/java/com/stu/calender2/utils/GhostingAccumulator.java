@@ -0,0 +1,176 @@
+package com.stu.calender2.utils;
+
+import android.graphics.Rect;
+
+import java.util.Locale;
+
+/**
+ * 水墨屏残影累计器
+ * 把屏幕划分为网格，按格子分别统计局部刷新次数和加权的刷新面积；
+ * 只有格子超出残影预算时才需要GC16清理，能局部清理时不做全屏闪烁
+ */
+public class GhostingAccumulator {
+
+    /**
+     * 清理决策
+     */
+    public enum Decision {
+        // 无需清理
+        NONE,
+        // 对超出预算的区域做GC16刷新
+        REGION,
+        // 全屏GC16刷新
+        FULL
+    }
+
+    // 网格划分
+    private static final int COLUMNS = 4;
+    private static final int ROWS = 6;
+    private static final int CELL_COUNT = COLUMNS * ROWS;
+
+    // 单个格子的预算：局部刷新次数或覆盖次数（刷新面积/格子面积）
+    private static final int CELL_MAX_PARTIALS = 10;
+    private static final float CELL_MAX_COVERAGE = 4.0f;
+
+    // 覆盖格子面积不足该比例的刷新不计入次数，只计入面积
+    private static final float MIN_COUNTED_OVERLAP = 0.1f;
+
+    // 超出预算的格子达到该比例时直接全屏刷新
+    private static final float FULL_REFRESH_CELL_RATIO = 0.5f;
+
+    // 任一格子覆盖达到该值时认为存在可见残影
+    private static final float MIN_RESIDUE_COVERAGE = 0.5f;
+
+    private final int[] partialCounts = new int[CELL_COUNT];
+    private final float[] coverage = new float[CELL_COUNT];
+
+    private int width;
+    private int height;
+
+    private final Rect cellRect = new Rect();
+    private final Rect overlap = new Rect();
+
+    /**
+     * 记录一次快速局部刷新；厂商接口中A2和DU是同一模式，残影按同一权重累计
+     * @param screenWidth 根视图宽度
+     * @param screenHeight 根视图高度
+     * @param rect 根视图坐标系中的刷新区域
+     */
+    public void recordPartial(int screenWidth, int screenHeight, Rect rect) {
+        if (screenWidth <= 0 || screenHeight <= 0 || rect == null || rect.isEmpty()) {
+            return;
+        }
+        if (screenWidth != width || screenHeight != height) {
+            // 屏幕尺寸变化（如旋转）后旧网格失去意义
+            width = screenWidth;
+            height = screenHeight;
+            reset();
+        }
+
+        for (int i = 0; i < CELL_COUNT; i++) {
+            getCellRect(i, cellRect);
+            if (!overlap.setIntersect(cellRect, rect)) {
+                continue;
+            }
+            float cellArea = (float) cellRect.width() * cellRect.height();
+            float ratio = overlap.width() * (float) overlap.height() / cellArea;
+            coverage[i] += ratio;
+            if (ratio >= MIN_COUNTED_OVERLAP) {
+                partialCounts[i]++;
+            }
+        }
+    }
+
+    /**
+     * 根据各格子预算决定是否需要清理
+     * @param regionCapable 驱动是否支持区域刷新
+     * @param outRegion 决策为REGION时写入需要清理的区域
+     */
+    public Decision evaluate(boolean regionCapable, Rect outRegion) {
+        int overBudget = 0;
+        outRegion.setEmpty();
+        for (int i = 0; i < CELL_COUNT; i++) {
+            if (isOverBudget(i)) {
+                overBudget++;
+                getCellRect(i, cellRect);
+                outRegion.union(cellRect);
+            }
+        }
+
+        if (overBudget == 0) {
+            return Decision.NONE;
+        }
+        if (!regionCapable || overBudget >= CELL_COUNT * FULL_REFRESH_CELL_RATIO) {
+            return Decision.FULL;
+        }
+        // 清理区域是格子的外接矩形，面积过大时同样直接全屏刷新
+        long regionArea = (long) outRegion.width() * outRegion.height();
+        if (regionArea >= (long) width * height * FULL_REFRESH_CELL_RATIO) {
+            return Decision.FULL;
+        }
+        return Decision.REGION;
+    }
+
+    /**
+     * 是否存在可见残影，用于判断非强制的全刷新请求是否值得执行
+     */
+    public boolean hasResidue() {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            if (coverage[i] >= MIN_RESIDUE_COVERAGE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * GC16刷新指定区域后，清零完全落在区域内的格子
+     */
+    public void resetRegion(Rect region) {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            getCellRect(i, cellRect);
+            if (region.contains(cellRect)) {
+                partialCounts[i] = 0;
+                coverage[i] = 0f;
+            }
+        }
+    }
+
+    /**
+     * 全屏刷新后清零
+     */
+    public void reset() {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            partialCounts[i] = 0;
+            coverage[i] = 0f;
+        }
+    }
+
+    /**
+     * 残影最严重格子的状态
+     */
+    public String getStats() {
+        int worst = 0;
+        for (int i = 1; i < CELL_COUNT; i++) {
+            if (coverage[i] > coverage[worst]) {
+                worst = i;
+            }
+        }
+        return "最大残影格子: " + worst
+                + "(次数 " + partialCounts[worst] + "/" + CELL_MAX_PARTIALS
+                + ", 覆盖 " + String.format(Locale.US, "%.1f", coverage[worst]) + "/" + CELL_MAX_COVERAGE + ")";
+    }
+
+    private boolean isOverBudget(int cell) {
+        return partialCounts[cell] >= CELL_MAX_PARTIALS || coverage[cell] >= CELL_MAX_COVERAGE;
+    }
+
+    private void getCellRect(int cell, Rect out) {
+        int column = cell % COLUMNS;
+        int row = cell / COLUMNS;
+        out.set(column * width / COLUMNS,
+                row * height / ROWS,
+                (column + 1) * width / COLUMNS,
+                (row + 1) * height / ROWS);
+    }
+}
@@ -0,0 +1,500 @@
+package com.stu.calender2.utils;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.RequiresApi;
+
+import com.stu.calender2.MyApplication;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 性能监控
+ * 默认关闭，通过偏好设置或启动参数(--ez perf_monitor true)开启。
+ * 开启后记录Trace区段耗时、帧耗时、视图创建次数、刷新请求/实际/合并/跳过次数和数据库查询耗时，
+ * 在界面上显示调试浮层，长按浮层把报告写入外部文件目录下的perf文件夹。
+ * 关闭时各记录方法只读取一次开关，不产生对象也不调用Trace
+ */
+public class PerfMonitor {
+    private static final String TAG = "PerfMonitor";
+
+    private static volatile PerfMonitor instance;
+
+    /**
+     * 计数器
+     */
+    public enum Counter {
+        // 经由视图工厂创建的视图
+        VIEW_INFLATIONS,
+        // 提交到刷新调度器的请求
+        REFRESH_REQUESTS,
+        // 实际下发到屏幕的刷新
+        REFRESH_ISSUED,
+        // 与其他脏区域合并的请求
+        REFRESH_MERGED,
+        // 无需刷新而放弃的请求（不可见视图、无残影的清理请求）
+        REFRESH_DROPPED,
+        // 数据库查询
+        DB_QUERIES
+    }
+
+    // 超过该耗时的帧计为慢帧；水墨屏本身刷新慢，只关注明显卡顿
+    private static final long SLOW_FRAME_NS = 32_000_000L;
+    // 超过该耗时的帧计为冻结帧
+    private static final long FROZEN_FRAME_NS = 700_000_000L;
+
+    // 浮层更新间隔，水墨屏上过于频繁的更新本身就是负担
+    private static final long OVERLAY_UPDATE_INTERVAL_MS = 2000;
+
+    private static final String DUMP_DIR = "perf";
+
+    private volatile boolean enabled;
+
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final Map<String, SectionStat> sections = new ConcurrentHashMap<>();
+    private final FrameStats frameStats = new FrameStats();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread frameThread;
+    private Handler frameHandler;
+
+    // 当前附着的Activity相关对象，只在主线程访问
+    private Activity attachedActivity;
+    private TextView overlayView;
+    private Object frameMetricsListener;
+    private Choreographer.FrameCallback choreographerCallback;
+    private String lastOverlayText;
+
+    private final Runnable overlayUpdater = new Runnable() {
+        @Override
+        public void run() {
+            updateOverlay();
+            if (overlayView != null) {
+                mainHandler.postDelayed(this, OVERLAY_UPDATE_INTERVAL_MS);
+            }
+        }
+    };
+
+    /**
+     * 报告写入结果回调，在主线程调用
+     */
+    public interface DumpCallback {
+        void onDumped(File file);
+        void onError(Exception e);
+    }
+
+    /**
+     * 一个命名区段的耗时统计
+     */
+    private static class SectionStat {
+        private long count;
+        private long totalNs;
+        private long maxNs;
+
+        synchronized void record(long durationNs) {
+            count++;
+            totalNs += durationNs;
+            if (durationNs > maxNs) {
+                maxNs = durationNs;
+            }
+        }
+
+        synchronized String format(String name) {
+            return String.format(Locale.US, "%s: %d次, 平均 %.2fms, 最大 %.2fms",
+                    name, count, count == 0 ? 0 : totalNs / 1e6 / count, maxNs / 1e6);
+        }
+    }
+
+    /**
+     * 帧耗时统计
+     */
+    private static class FrameStats {
+        private long frames;
+        private long slowFrames;
+        private long frozenFrames;
+        private long totalNs;
+        private long maxNs;
+
+        synchronized void record(long durationNs) {
+            frames++;
+            totalNs += durationNs;
+            if (durationNs > maxNs) {
+                maxNs = durationNs;
+            }
+            if (durationNs >= FROZEN_FRAME_NS) {
+                frozenFrames++;
+            } else if (durationNs >= SLOW_FRAME_NS) {
+                slowFrames++;
+            }
+        }
+
+        synchronized String format() {
+            return String.format(Locale.US, "帧: %d, 慢帧: %d, 冻结: %d, 平均 %.1fms, 最大 %.1fms",
+                    frames, slowFrames, frozenFrames,
+                    frames == 0 ? 0 : totalNs / 1e6 / frames, maxNs / 1e6);
+        }
+
+        synchronized void reset() {
+            frames = 0;
+            slowFrames = 0;
+            frozenFrames = 0;
+            totalNs = 0;
+            maxNs = 0;
+        }
+    }
+
+    private PerfMonitor() {
+        // 私有构造函数
+    }
+
+    public static PerfMonitor getInstance() {
+        if (instance == null) {
+            synchronized (PerfMonitor.class) {
+                if (instance == null) {
+                    instance = new PerfMonitor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开启或关闭监控，关闭时保留已记录的数据
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            Log.d(TAG, "性能监控" + (enabled ? "已开启" : "已关闭"));
+        }
+    }
+
+    /**
+     * 计数器加一
+     */
+    public void increment(Counter counter) {
+        if (!enabled) return;
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    /**
+     * 开始一个Trace区段
+     * @return 开始时间，传给endSection；监控关闭时返回0
+     */
+    public long beginSection(String name) {
+        if (!enabled) return 0;
+        Trace.beginSection(name);
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束beginSection开始的区段并记录耗时，必须在同一线程调用
+     */
+    public void endSection(String name, long startNanos) {
+        if (startNanos == 0) return;
+        Trace.endSection();
+        recordDuration(name, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 记录一次数据库查询的耗时
+     */
+    public void endQuery(String name, long startNanos) {
+        if (startNanos == 0) return;
+        increment(Counter.DB_QUERIES);
+        endSection(name, startNanos);
+    }
+
+    /**
+     * 包装Room的查询执行器，统计LiveData等由Room发起的查询耗时
+     */
+    public Executor wrapQueryExecutor(Executor executor) {
+        return command -> {
+            if (!enabled) {
+                executor.execute(command);
+                return;
+            }
+            executor.execute(() -> {
+                long start = beginSection("db:room");
+                try {
+                    command.run();
+                } finally {
+                    endQuery("db:room", start);
+                }
+            });
+        };
+    }
+
+    private void recordDuration(String name, long durationNs) {
+        SectionStat stat = sections.get(name);
+        if (stat == null) {
+            SectionStat created = new SectionStat();
+            stat = sections.putIfAbsent(name, created);
+            if (stat == null) {
+                stat = created;
+            }
+        }
+        stat.record(durationNs);
+    }
+
+    /**
+     * 在Activity上显示调试浮层并开始统计帧耗时，在setContentView之后调用
+     */
+    public void attach(Activity activity) {
+        if (!enabled || attachedActivity == activity) return;
+        detach(attachedActivity);
+        attachedActivity = activity;
+
+        startFrameTracking(activity.getWindow());
+        addOverlay(activity);
+        mainHandler.post(overlayUpdater);
+    }
+
+    /**
+     * 移除浮层并停止帧统计，在Activity销毁时调用
+     */
+    public void detach(Activity activity) {
+        if (activity == null || attachedActivity != activity) return;
+
+        mainHandler.removeCallbacks(overlayUpdater);
+        stopFrameTracking(activity.getWindow());
+        if (overlayView != null && overlayView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) overlayView.getParent()).removeView(overlayView);
+        }
+        overlayView = null;
+        lastOverlayText = null;
+        attachedActivity = null;
+    }
+
+    private void startFrameTracking(Window window) {
+        frameStats.reset();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            startFrameMetrics(window);
+        } else {
+            startChoreographer();
+        }
+    }
+
+    private void stopFrameTracking(Window window) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            if (frameMetricsListener != null) {
+                window.removeOnFrameMetricsAvailableListener(
+                        (Window.OnFrameMetricsAvailableListener) frameMetricsListener);
+            }
+        }
+        frameMetricsListener = null;
+        if (choreographerCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(choreographerCallback);
+            choreographerCallback = null;
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.N)
+    private void startFrameMetrics(Window window) {
+        if (frameThread == null) {
+            frameThread = new HandlerThread("PerfMonitor-frames");
+            frameThread.start();
+            frameHandler = new Handler(frameThread.getLooper());
+        }
+        Window.OnFrameMetricsAvailableListener listener = (w, frameMetrics, dropCount) -> {
+            if (!enabled) return;
+            frameStats.record(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+        };
+        window.addOnFrameMetricsAvailableListener(listener, frameHandler);
+        frameMetricsListener = listener;
+    }
+
+    /**
+     * API 24以下没有FrameMetrics，用相邻两帧的间隔近似帧耗时。
+     * 回调会让主线程每个vsync都被唤醒，因此只在监控开启时使用
+     */
+    private void startChoreographer() {
+        choreographerCallback = new Choreographer.FrameCallback() {
+            private long lastFrameNanos;
+
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (lastFrameNanos != 0 && enabled) {
+                    frameStats.record(frameTimeNanos - lastFrameNanos);
+                }
+                lastFrameNanos = frameTimeNanos;
+                if (choreographerCallback == this) {
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            }
+        };
+        Choreographer.getInstance().postFrameCallback(choreographerCallback);
+    }
+
+    private void addOverlay(Activity activity) {
+        View decor = activity.getWindow().getDecorView();
+        if (!(decor instanceof ViewGroup)) return;
+
+        TextView view = new TextView(activity);
+        view.setTypeface(Typeface.MONOSPACE);
+        view.setTextSize(TypedValue.COMPLEX_UNIT_SP, 9);
+        view.setTextColor(Color.BLACK);
+        view.setBackgroundColor(0xE6FFFFFF);
+        int padding = (int) (4 * activity.getResources().getDisplayMetrics().density);
+        view.setPadding(padding, padding, padding, padding);
+        view.setOnLongClickListener(v -> {
+            dumpToFile(v.getContext(), new DumpCallback() {
+                @Override
+                public void onDumped(File file) {
+                    Toast.makeText(v.getContext(), "性能报告已保存: " + file.getAbsolutePath(),
+                            Toast.LENGTH_LONG).show();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Toast.makeText(v.getContext(), "性能报告保存失败", Toast.LENGTH_SHORT).show();
+                }
+            });
+            return true;
+        });
+
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT,
+                Gravity.BOTTOM | Gravity.END);
+        ((ViewGroup) decor).addView(view, params);
+        overlayView = view;
+    }
+
+    private void updateOverlay() {
+        if (overlayView == null) return;
+        String text = frameStats.format()
+                + "\n刷新 请求 " + get(Counter.REFRESH_REQUESTS)
+                + " 实际 " + get(Counter.REFRESH_ISSUED)
+                + " 合并 " + get(Counter.REFRESH_MERGED)
+                + " 放弃 " + get(Counter.REFRESH_DROPPED)
+                + "\n视图创建 " + get(Counter.VIEW_INFLATIONS)
+                + " 查询 " + get(Counter.DB_QUERIES)
+                + "\n" + formatSection("render:week")
+                + "\n" + formatSection("render:month");
+        // 内容不变时不重绘，避免无谓的屏幕刷新
+        if (!text.equals(lastOverlayText)) {
+            lastOverlayText = text;
+            overlayView.setText(text);
+        }
+    }
+
+    private long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    private String formatSection(String name) {
+        SectionStat stat = sections.get(name);
+        return stat != null ? stat.format(name) : name + ": -";
+    }
+
+    /**
+     * 完整的文本报告
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("时间: ")
+                .append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()))
+                .append('\n');
+        sb.append("设备: ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append(", API ").append(Build.VERSION.SDK_INT).append('\n');
+        sb.append("水墨屏驱动: ").append(EInkDriver.getInstance().getName()).append("\n\n");
+
+        sb.append("[帧]\n").append(frameStats.format()).append("\n\n");
+
+        sb.append("[计数]\n");
+        for (Counter counter : Counter.values()) {
+            sb.append(counter.name()).append(": ").append(get(counter)).append('\n');
+        }
+
+        sb.append("\n[区段]\n");
+        List<String> names = new ArrayList<>(sections.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            sb.append(sections.get(name).format(name)).append('\n');
+        }
+
+        sb.append("\n[刷新调度]\n").append(EInkRefreshScheduler.getInstance().getStats()).append('\n');
+        sb.append("\n[调度通道]\n").append(AppSchedulers.getInstance().getStats()).append('\n');
+        sb.append("\n[电源]\n").append(PowerBudget.getInstance().getStats()).append('\n');
+        sb.append("\n[启动]\n").append(MyApplication.getInstance().getStartup().getTimingReport()).append('\n');
+        sb.append("\n[最近日志]\n").append(AppLog.getRecentLogs());
+        return sb.toString();
+    }
+
+    /**
+     * 在后台把报告写入外部文件目录的perf文件夹，可通过adb pull取回
+     */
+    public void dumpToFile(Context context, DumpCallback callback) {
+        Context appContext = context.getApplicationContext();
+        // 报告在主线程生成，保证与界面上看到的数据一致
+        String report = getReport();
+        AppSchedulers.getInstance().io().execute(() -> {
+            try {
+                File file = writeReport(appContext, report);
+                Log.d(TAG, "性能报告已写入: " + file.getAbsolutePath());
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onDumped(file));
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "写入性能报告失败", e);
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onError(e));
+                }
+            }
+        });
+    }
+
+    private static File writeReport(Context context, String report) throws IOException {
+        File dir = context.getExternalFilesDir(DUMP_DIR);
+        if (dir == null) {
+            // 外部存储不可用时退回内部目录
+            dir = new File(context.getFilesDir(), DUMP_DIR);
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        String name = "perf-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".txt";
+        File file = new File(dir, name);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            writer.write(report);
+        }
+        return file;
+    }
+}
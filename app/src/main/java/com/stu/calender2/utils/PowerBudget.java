@@ -0,0 +1,267 @@
+package com.stu.calender2.utils;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.stu.calender2.MyApplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 电源预算
+ * WakeLock只在实际工作（数据库写入、快照、提醒、导入）期间持有，且每次都带超时，
+ * 工作卡住或忘记释放时由系统在超时后释放。所有租约共用一个不计数的WakeLock：
+ * 第一个租约获取、最后一个租约释放，连续的小任务不会反复调用系统服务。
+ * 同时记录各用途的持有时长，以及常驻服务的运行状态和运行时长
+ */
+public class PowerBudget {
+    private static final String TAG = "PowerBudget";
+
+    private static final String WAKE_LOCK_TAG = "Calender2:PowerBudget";
+
+    // 单例模式
+    private static volatile PowerBudget instance;
+
+    /**
+     * 一次持有WakeLock的租约，release可重复调用
+     */
+    public final class Lease {
+        private final String reason;
+        private final long acquiredAt;
+        private final long deadline;
+        private boolean released;
+
+        private Lease(String reason, long acquiredAt, long deadline) {
+            this.reason = reason;
+            this.acquiredAt = acquiredAt;
+            this.deadline = deadline;
+        }
+
+        public void release() {
+            PowerBudget.this.release(this);
+        }
+    }
+
+    /**
+     * 一种用途的持有统计
+     */
+    private static final class UsageStat {
+        long count;
+        long totalMs;
+        long maxMs;
+        // 超过超时时间才释放的次数，此时WakeLock已被系统提前释放
+        long overruns;
+
+        void record(long heldMs, boolean overrun) {
+            count++;
+            totalMs += heldMs;
+            maxMs = Math.max(maxMs, heldMs);
+            if (overrun) {
+                overruns++;
+            }
+        }
+
+        String format(String reason) {
+            return reason + ": " + count + "次, 共" + totalMs + "ms, 最长" + maxMs + "ms"
+                    + (overruns > 0 ? ", 超时" + overruns + "次" : "");
+        }
+    }
+
+    private final PowerManager.WakeLock wakeLock;
+
+    // 以下状态由lock保护
+    private final Object lock = new Object();
+    private final List<Lease> activeLeases = new ArrayList<>();
+    private final Map<String, UsageStat> usage = new HashMap<>();
+    // 当前WakeLock的超时时刻，新的租约更晚时才重新获取
+    private long heldUntil;
+    private long heldSince;
+    private long totalHeldMs;
+
+    // 常驻服务状态，由服务自己维护，替代遍历系统的运行服务列表
+    private volatile boolean serviceRunning;
+    private long serviceStartedAt;
+    private long serviceTotalMs;
+
+    private PowerBudget() {
+        PowerManager powerManager = (PowerManager) MyApplication.getInstance()
+                .getSystemService(Context.POWER_SERVICE);
+        wakeLock = powerManager != null ? powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG) : null;
+        if (wakeLock != null) {
+            wakeLock.setReferenceCounted(false);
+        }
+    }
+
+    // 获取单例实例，使用双重检查锁定确保线程安全
+    public static PowerBudget getInstance() {
+        if (instance == null) {
+            synchronized (PowerBudget.class) {
+                if (instance == null) {
+                    instance = new PowerBudget();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在工作开始前获取租约，工作结束后调用Lease.release
+     * @param reason 用途，用于统计
+     * @param timeoutMs 最长持有时间
+     */
+    public Lease acquire(String reason, long timeoutMs) {
+        long now = SystemClock.elapsedRealtime();
+        Lease lease = new Lease(reason, now, now + timeoutMs);
+        synchronized (lock) {
+            expireOverdue(now);
+            if (activeLeases.isEmpty()) {
+                heldSince = now;
+            }
+            activeLeases.add(lease);
+            if (lease.deadline > heldUntil && wakeLock != null) {
+                // 不计数的WakeLock再次获取时只延长超时
+                wakeLock.acquire(timeoutMs);
+                heldUntil = lease.deadline;
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * 持有WakeLock同步执行work
+     */
+    public void run(String reason, long timeoutMs, Runnable work) {
+        Lease lease = acquire(reason, timeoutMs);
+        try {
+            work.run();
+        } finally {
+            lease.release();
+        }
+    }
+
+    /**
+     * 包装执行器，任务从提交起到执行完成都持有WakeLock，排队期间设备也不会休眠
+     */
+    public Executor wrapExecutor(Executor executor, String reason, long timeoutMs) {
+        return command -> {
+            Lease lease = acquire(reason, timeoutMs);
+            try {
+                executor.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        lease.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 执行器拒绝时任务不会运行
+                lease.release();
+                throw e;
+            }
+        };
+    }
+
+    private void release(Lease lease) {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (lock) {
+            if (lease.released) {
+                return;
+            }
+            finish(lease, now);
+            activeLeases.remove(lease);
+            if (activeLeases.isEmpty()) {
+                releaseWakeLock(now);
+            }
+        }
+    }
+
+    /**
+     * 超时仍未释放的租约按超时结束，WakeLock此时已被系统释放
+     */
+    private void expireOverdue(long now) {
+        Iterator<Lease> iterator = activeLeases.iterator();
+        while (iterator.hasNext()) {
+            Lease lease = iterator.next();
+            if (lease.deadline <= now) {
+                finish(lease, lease.deadline);
+                iterator.remove();
+                Log.w(TAG, "租约超时未释放: " + lease.reason);
+            }
+        }
+        if (activeLeases.isEmpty() && heldUntil > 0) {
+            releaseWakeLock(Math.min(now, heldUntil));
+        }
+    }
+
+    private void finish(Lease lease, long now) {
+        lease.released = true;
+        UsageStat stat = usage.get(lease.reason);
+        if (stat == null) {
+            stat = new UsageStat();
+            usage.put(lease.reason, stat);
+        }
+        stat.record(now - lease.acquiredAt, now > lease.deadline);
+    }
+
+    private void releaseWakeLock(long now) {
+        totalHeldMs += Math.min(now, heldUntil) - heldSince;
+        heldUntil = 0;
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    /**
+     * 常驻服务创建或销毁时调用
+     */
+    public void setServiceRunning(boolean running) {
+        synchronized (lock) {
+            if (serviceRunning == running) {
+                return;
+            }
+            long now = SystemClock.elapsedRealtime();
+            if (running) {
+                serviceStartedAt = now;
+            } else {
+                serviceTotalMs += now - serviceStartedAt;
+            }
+            serviceRunning = running;
+        }
+    }
+
+    /**
+     * 常驻服务是否在本进程中运行
+     */
+    public boolean isServiceRunning() {
+        return serviceRunning;
+    }
+
+    /**
+     * 获取持有统计信息
+     */
+    public String getStats() {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (lock) {
+            long held = totalHeldMs + (activeLeases.isEmpty() ? 0 : Math.min(now, heldUntil) - heldSince);
+            long service = serviceTotalMs + (serviceRunning ? now - serviceStartedAt : 0);
+            StringBuilder sb = new StringBuilder();
+            sb.append("WakeLock 共持有").append(held).append("ms, 当前租约 ").append(activeLeases.size()).append('\n');
+            List<String> reasons = new ArrayList<>(usage.keySet());
+            Collections.sort(reasons);
+            for (String reason : reasons) {
+                sb.append(usage.get(reason).format(reason)).append('\n');
+            }
+            sb.append("常驻服务: ").append(serviceRunning ? "运行中" : "未运行")
+                    .append(", 共运行").append(service).append("ms");
+            return sb.toString();
+        }
+    }
+}
@@ -9,7 +9,6 @@ import androidx.appcompat.app.AppCompatDelegate;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * 应用偏好设置管理类
@@ -28,6 +27,8 @@ public class PreferenceManager {
     private static final String KEY_ANIMATION_ENABLED = "animation_enabled";
     private static final String KEY_FIRST_RUN = "first_run";
     private static final String KEY_TASK_AUTO_SORT = "task_auto_sort";
+    private static final String KEY_PERF_MONITOR_ENABLED = "perf_monitor_enabled";
+    private static final String KEY_KEEP_ALIVE_ENABLED = "keep_alive_enabled";
     
     // 默认值
     private static final int DEFAULT_THEME_MODE = AppCompatDelegate.MODE_NIGHT_NO;
@@ -36,6 +37,9 @@ public class PreferenceManager {
     private static final boolean DEFAULT_ANIMATION_ENABLED = false;
     private static final boolean DEFAULT_FIRST_RUN = true;
     private static final boolean DEFAULT_TASK_AUTO_SORT = true;
+    private static final boolean DEFAULT_PERF_MONITOR_ENABLED = false;
+    // 提醒由精确闹钟负责，常驻服务只在提醒闹钟被系统限制的设备上手动开启
+    private static final boolean DEFAULT_KEEP_ALIVE_ENABLED = false;
     
     // 共享偏好设置实例
     private final SharedPreferences preferences;
@@ -43,12 +47,13 @@ public class PreferenceManager {
     // 内存缓存
     private final Map<String, Object> cache = new HashMap<>();
     
-    // 异步写入线程池
+    // 异步写入执行器，在IO通道上按提交顺序执行，保证同一键的写入不乱序
     private final Executor executor;
     
     public PreferenceManager(Context context) {
         preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        executor = Executors.newSingleThreadExecutor();
+        AppSchedulers schedulers = AppSchedulers.getInstance();
+        executor = schedulers.newSerialExecutor(schedulers.io());
         
         // 预加载常用设置到内存缓存
         loadPreferencesToCache();
@@ -64,6 +69,8 @@ public class PreferenceManager {
         cache.put(KEY_ANIMATION_ENABLED, preferences.getBoolean(KEY_ANIMATION_ENABLED, DEFAULT_ANIMATION_ENABLED));
         cache.put(KEY_FIRST_RUN, preferences.getBoolean(KEY_FIRST_RUN, DEFAULT_FIRST_RUN));
         cache.put(KEY_TASK_AUTO_SORT, preferences.getBoolean(KEY_TASK_AUTO_SORT, DEFAULT_TASK_AUTO_SORT));
+        cache.put(KEY_PERF_MONITOR_ENABLED, preferences.getBoolean(KEY_PERF_MONITOR_ENABLED, DEFAULT_PERF_MONITOR_ENABLED));
+        cache.put(KEY_KEEP_ALIVE_ENABLED, preferences.getBoolean(KEY_KEEP_ALIVE_ENABLED, DEFAULT_KEEP_ALIVE_ENABLED));
         
         Log.d(TAG, "设置已加载到内存缓存");
     }
@@ -152,6 +159,34 @@ public class PreferenceManager {
         putBooleanToCache(KEY_TASK_AUTO_SORT, enabled);
     }
     
+    /**
+     * 是否启用性能监控
+     */
+    public boolean isPerfMonitorEnabled() {
+        return getBooleanFromCache(KEY_PERF_MONITOR_ENABLED, DEFAULT_PERF_MONITOR_ENABLED);
+    }
+    
+    /**
+     * 设置性能监控状态
+     */
+    public void setPerfMonitorEnabled(boolean enabled) {
+        putBooleanToCache(KEY_PERF_MONITOR_ENABLED, enabled);
+    }
+    
+    /**
+     * 是否启用常驻后台服务
+     */
+    public boolean isKeepAliveEnabled() {
+        return getBooleanFromCache(KEY_KEEP_ALIVE_ENABLED, DEFAULT_KEEP_ALIVE_ENABLED);
+    }
+    
+    /**
+     * 设置常驻后台服务状态
+     */
+    public void setKeepAliveEnabled(boolean enabled) {
+        putBooleanToCache(KEY_KEEP_ALIVE_ENABLED, enabled);
+    }
+    
     /**
      * 从缓存中获取整数值
      */
@@ -0,0 +1,300 @@
+package com.stu.calender2.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.stu.calender2.BuildConfig;
+import com.stu.calender2.MyApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 启动页图片加载管线
+ * 首次启动按屏幕尺寸降采样解码、转为16级灰度并抖动，结果以原始像素缓存到磁盘；
+ * 之后的启动直接内存映射缓存文件，跳过PNG解码
+ */
+public class SplashImageLoader {
+    private static final String TAG = "SplashImageLoader";
+
+    // 缓存文件格式：魔数 + 宽 + 高 + RGB_565像素
+    private static final int CACHE_MAGIC = 0x53504C31; // "SPL1"
+    private static final int HEADER_SIZE = 12;
+    private static final int BYTES_PER_PIXEL = 2;
+
+    // 处理流程变化时递增，使旧缓存失效
+    private static final int PIPELINE_VERSION = 1;
+
+    private static final String CACHE_DIR = "splash";
+
+    // 水墨屏常见的16级灰阶
+    private static final int GRAY_LEVELS = 16;
+
+    /**
+     * 加载结果回调，在主线程执行
+     */
+    public interface Callback {
+        void onLoaded(Bitmap bitmap);
+    }
+
+    private SplashImageLoader() {
+        // 工具类
+    }
+
+    /**
+     * 异步加载启动页图片
+     * @param assetName assets中的图片文件名
+     * @param targetWidth 目标显示宽度
+     * @param targetHeight 目标显示高度
+     */
+    public static void load(Context context, String assetName, int targetWidth, int targetHeight,
+                            Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        MyApplication app = MyApplication.getInstance();
+        app.executeAsync(() -> {
+            Bitmap bitmap = loadSync(appContext, assetName, targetWidth, targetHeight);
+            if (bitmap != null && callback != null) {
+                app.postToMainThread(() -> callback.onLoaded(bitmap));
+            }
+        });
+    }
+
+    /**
+     * 同步加载，优先读取磁盘缓存
+     */
+    public static Bitmap loadSync(Context context, String assetName, int targetWidth, int targetHeight) {
+        long startTime = System.currentTimeMillis();
+        File cacheFile = getCacheFile(context, assetName, targetWidth, targetHeight);
+
+        Bitmap bitmap = readCache(cacheFile);
+        if (bitmap != null) {
+            Log.d(TAG, "从缓存映射启动图: " + assetName + "，耗时: "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            return bitmap;
+        }
+
+        bitmap = decodeAsset(context, assetName, targetWidth, targetHeight);
+        if (bitmap == null) {
+            return null;
+        }
+        ditherToGrayscale(bitmap);
+        writeCache(cacheFile, bitmap);
+
+        Log.d(TAG, "解码启动图: " + assetName + " " + bitmap.getWidth() + "x" + bitmap.getHeight()
+                + "，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        return bitmap;
+    }
+
+    private static File getCacheFile(Context context, String assetName, int width, int height) {
+        File dir = new File(context.getCacheDir(), CACHE_DIR);
+        String name = cachePrefix() + assetName + "_" + width + "x" + height + ".raw";
+        return new File(dir, name);
+    }
+
+    // 应用升级后资源可能变化，版本号也作为缓存键的一部分
+    private static String cachePrefix() {
+        return "v" + PIPELINE_VERSION + "_" + BuildConfig.VERSION_CODE + "_";
+    }
+
+    /**
+     * 按目标尺寸降采样解码，使用RGB_565减少一半内存
+     * 不使用ALPHA_8：ImageView会把ALPHA_8当作遮罩绘制，无法正确显示灰度
+     */
+    private static Bitmap decodeAsset(Context context, String assetName, int targetWidth, int targetHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream is = context.getAssets().open(assetName)) {
+            BitmapFactory.decodeStream(is, null, options);
+        } catch (IOException e) {
+            Log.e(TAG, "读取启动图尺寸失败: " + assetName, e);
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inDither = false;
+        options.inMutable = true;
+
+        try (InputStream is = context.getAssets().open(assetName)) {
+            return BitmapFactory.decodeStream(is, null, options);
+        } catch (IOException e) {
+            Log.e(TAG, "解码启动图失败: " + assetName, e);
+            return null;
+        }
+    }
+
+    /**
+     * 计算不小于目标尺寸的最大2的幂采样率
+     */
+    private static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+        while ((width / (inSampleSize * 2)) >= targetWidth
+                && (height / (inSampleSize * 2)) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * 转为16级灰度并做Floyd-Steinberg误差扩散
+     * 逐行处理，只保留两行误差缓冲，避免整幅int数组
+     */
+    private static void ditherToGrayscale(Bitmap bitmap) {
+        if (!bitmap.isMutable()) {
+            return;
+        }
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] row = new int[width];
+        // 误差以16倍定点数保存，首尾各多留一个位置免去边界判断
+        int[] currentErrors = new int[width + 2];
+        int[] nextErrors = new int[width + 2];
+        int step = 255 / (GRAY_LEVELS - 1);
+
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+
+            for (int x = 0; x < width; x++) {
+                int color = row[x];
+                int r = (color >> 16) & 0xFF;
+                int g = (color >> 8) & 0xFF;
+                int b = color & 0xFF;
+                // ITU-R BT.601亮度
+                int luma = (r * 299 + g * 587 + b * 114) / 1000;
+
+                int value = luma + (currentErrors[x + 1] >> 4);
+                if (value < 0) value = 0;
+                if (value > 255) value = 255;
+
+                int quantized = ((value + step / 2) / step) * step;
+                if (quantized > 255) quantized = 255;
+                int error = value - quantized;
+
+                currentErrors[x + 2] += error * 7;
+                nextErrors[x] += error * 3;
+                nextErrors[x + 1] += error * 5;
+                nextErrors[x + 2] += error;
+
+                row[x] = 0xFF000000 | (quantized << 16) | (quantized << 8) | quantized;
+            }
+
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+
+            int[] swap = currentErrors;
+            currentErrors = nextErrors;
+            nextErrors = swap;
+            Arrays.fill(nextErrors, 0);
+        }
+    }
+
+    /**
+     * 内存映射读取缓存文件
+     */
+    private static Bitmap readCache(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            int magic = buffer.getInt();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (magic != CACHE_MAGIC || width <= 0 || height <= 0
+                    || size != HEADER_SIZE + (long) width * height * BYTES_PER_PIXEL) {
+                Log.w(TAG, "启动图缓存无效，重新解码: " + cacheFile.getName());
+                return null;
+            }
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            bitmap.copyPixelsFromBuffer(buffer.slice());
+            return bitmap;
+        } catch (Exception e) {
+            Log.e(TAG, "读取启动图缓存失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存：先写临时文件再重命名，避免半写文件被下次启动读取
+     */
+    private static void writeCache(File cacheFile, Bitmap bitmap) {
+        if (bitmap.getConfig() != Bitmap.Config.RGB_565) {
+            return;
+        }
+
+        File dir = cacheFile.getParentFile();
+        if (dir == null || (!dir.isDirectory() && !dir.mkdirs())) {
+            return;
+        }
+        removeStaleCaches(dir);
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        File tempFile = new File(dir, cacheFile.getName() + ".tmp");
+
+        try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            header.putInt(CACHE_MAGIC).putInt(width).putInt(height);
+            header.flip();
+
+            ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * BYTES_PER_PIXEL);
+            bitmap.copyPixelsToBuffer(pixels);
+            pixels.flip();
+
+            file.setLength(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (pixels.hasRemaining()) {
+                channel.write(pixels);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "写入启动图缓存失败", e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * 删除旧版本或残留的临时缓存文件
+     */
+    private static void removeStaleCaches(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        String prefix = cachePrefix();
+        for (File file : files) {
+            if (!file.getName().startsWith(prefix) || file.getName().endsWith(".tmp")) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.stu.calender2.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动就绪状态跟踪
+ * 数据库打开且首个日历窗口预取完成后，通知等待中的启动页进入主界面
+ */
+public class StartupReadiness {
+    private static final String TAG = "StartupReadiness";
+
+    private static volatile StartupReadiness instance;
+
+    // 就绪条件标志位
+    private static final int FLAG_DATABASE_OPENED = 1;
+    private static final int FLAG_FIRST_WINDOW_PREFETCHED = 1 << 1;
+    private static final int FLAG_ALL = FLAG_DATABASE_OPENED | FLAG_FIRST_WINDOW_PREFETCHED;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> listeners = new ArrayList<>();
+    private int readyFlags = 0;
+
+    // 用于统计从进程启动到就绪的耗时
+    private final long createdAt = System.currentTimeMillis();
+
+    private StartupReadiness() {
+        // 私有构造函数
+    }
+
+    public static StartupReadiness getInstance() {
+        if (instance == null) {
+            synchronized (StartupReadiness.class) {
+                if (instance == null) {
+                    instance = new StartupReadiness();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 标记数据库已打开
+     */
+    public void markDatabaseOpened() {
+        mark(FLAG_DATABASE_OPENED);
+    }
+
+    /**
+     * 标记首个日历窗口的数据已预取到缓存
+     */
+    public void markFirstWindowPrefetched() {
+        mark(FLAG_FIRST_WINDOW_PREFETCHED);
+    }
+
+    /**
+     * 是否所有就绪条件均已满足
+     */
+    public synchronized boolean isReady() {
+        return readyFlags == FLAG_ALL;
+    }
+
+    /**
+     * 在就绪后于主线程执行回调；若已就绪则立即投递
+     */
+    public void whenReady(Runnable listener) {
+        if (listener == null) return;
+
+        synchronized (this) {
+            if (readyFlags != FLAG_ALL) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        mainHandler.post(listener);
+    }
+
+    /**
+     * 移除尚未触发的回调，避免持有已销毁的Activity
+     */
+    public synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
+        mainHandler.removeCallbacks(listener);
+    }
+
+    private void mark(int flag) {
+        List<Runnable> toNotify;
+        synchronized (this) {
+            if ((readyFlags & flag) != 0) {
+                return;
+            }
+            readyFlags |= flag;
+            if (readyFlags != FLAG_ALL) {
+                return;
+            }
+            toNotify = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+
+        Log.d(TAG, "启动就绪，耗时: " + (System.currentTimeMillis() - createdAt) + "ms");
+        for (Runnable listener : toNotify) {
+            mainHandler.post(listener);
+        }
+    }
+}
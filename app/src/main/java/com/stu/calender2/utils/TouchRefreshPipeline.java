@@ -0,0 +1,148 @@
+package com.stu.calender2.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
+
+/**
+ * 触摸驱动的刷新管线
+ * 按手势类型决定刷新时机：连续点击合并为一次刷新，快速滑动在惯性滚动停止后再刷新；
+ * 新的按下会推迟待处理的刷新。Handler、Runnable和VelocityTracker都复用，
+ * 处理触摸事件时不产生新对象。只在主线程使用
+ */
+public class TouchRefreshPipeline {
+
+    // 点击后的防抖时间，连续点击只刷新一次
+    private static final long TAP_DEBOUNCE_MS = 250;
+
+    // 拖动结束（未形成快速滑动）后的等待时间
+    private static final long DRAG_SETTLE_MS = 150;
+
+    // 快速滑动后等待惯性滚动停止的时间
+    private static final long FLING_SETTLE_MS = 600;
+
+    /**
+     * 手势结束并稳定后的回调
+     */
+    public interface Callback {
+        /**
+         * @param afterScroll 为true表示内容发生了滚动，应刷新滚动区域
+         */
+        void onTouchSettled(boolean afterScroll);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Callback callback;
+    private final int touchSlop;
+    private final int minFlingVelocity;
+    private final int maxFlingVelocity;
+
+    private final Runnable settleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            boolean scrolled = pendingScroll;
+            pendingScroll = false;
+            callback.onTouchSettled(scrolled);
+        }
+    };
+
+    private VelocityTracker velocityTracker;
+    private float downX;
+    private float downY;
+    private boolean dragging;
+    private boolean pendingScroll;
+
+    public TouchRefreshPipeline(Context context, Callback callback) {
+        this.callback = callback;
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        touchSlop = configuration.getScaledTouchSlop();
+        minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        maxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+    }
+
+    /**
+     * 在Activity.dispatchTouchEvent中调用，不消费事件
+     */
+    public void onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // 新手势开始，推迟待处理的刷新直到手势结束
+                handler.removeCallbacks(settleRunnable);
+                if (velocityTracker == null) {
+                    velocityTracker = VelocityTracker.obtain();
+                } else {
+                    velocityTracker.clear();
+                }
+                velocityTracker.addMovement(event);
+                downX = event.getX();
+                downY = event.getY();
+                dragging = false;
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (velocityTracker != null) {
+                    velocityTracker.addMovement(event);
+                }
+                if (!dragging) {
+                    float dx = event.getX() - downX;
+                    float dy = event.getY() - downY;
+                    dragging = dx * dx + dy * dy > touchSlop * touchSlop;
+                }
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if (velocityTracker != null) {
+                    velocityTracker.addMovement(event);
+                }
+                onGestureEnd();
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                // 手势被子视图或系统接管，按拖动处理
+                onGestureEnd();
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 取消待处理的刷新并释放VelocityTracker，在Activity销毁时调用
+     */
+    public void release() {
+        handler.removeCallbacks(settleRunnable);
+        pendingScroll = false;
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    private void onGestureEnd() {
+        long delay;
+        if (dragging) {
+            pendingScroll = true;
+            delay = isFling() ? FLING_SETTLE_MS : DRAG_SETTLE_MS;
+        } else {
+            delay = TAP_DEBOUNCE_MS;
+        }
+        dragging = false;
+
+        handler.removeCallbacks(settleRunnable);
+        handler.postDelayed(settleRunnable, delay);
+    }
+
+    private boolean isFling() {
+        if (velocityTracker == null) {
+            return false;
+        }
+        velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+        float vx = velocityTracker.getXVelocity();
+        float vy = velocityTracker.getYVelocity();
+        return Math.abs(vx) >= minFlingVelocity || Math.abs(vy) >= minFlingVelocity;
+    }
+}
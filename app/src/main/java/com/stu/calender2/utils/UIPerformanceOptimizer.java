@@ -6,16 +6,13 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.View;
-import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
-import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.lang.ref.WeakReference;
-import java.util.WeakHashMap;
 
 /**
  * UI性能优化工具类
@@ -26,12 +23,6 @@ public class UIPerformanceOptimizer {
     
     private static volatile UIPerformanceOptimizer instance;
     
-    // 减少重绘区域临时存储
-    private final WeakHashMap<View, Long> pendingUpdates = new WeakHashMap<>();
-    
-    // 最小UI更新间隔时间（毫秒）
-    private static final long MIN_UI_UPDATE_INTERVAL_MS = 300;
-    
     // 默认电子墨水屏优化级别
     private int eInkOptimizationLevel = 1; // 0=关闭, 1=适中, 2=高度优化
     
@@ -104,9 +95,8 @@ public class UIPerformanceOptimizer {
             case 1:
                 // 适中优化
                 // 禁用硬件加速，墨水屏上软件渲染更好
+                // 过度滚动和动画等视图级设置由EInkViewFactory在视图创建时应用
                 window.clearFlags(WindowManager.LayoutParams.FLAG_HARDWARE_ACCELERATED);
-                // 禁用过度滚动阴影和边缘发光效果
-                optimizeViewHierarchy(window.getDecorView(), 1);
                 break;
                 
             case 2:
@@ -117,8 +107,6 @@ public class UIPerformanceOptimizer {
                 window.setFlags(
                         WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
                         WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS);
-                // 递归优化所有视图
-                optimizeViewHierarchy(window.getDecorView(), 2);
                 break;
         }
         
@@ -126,57 +114,24 @@ public class UIPerformanceOptimizer {
     }
     
     /**
-     * 递归优化视图层次结构
+     * 按当前优化级别优化单个视图，由EInkViewFactory在视图创建时调用
      */
-    private void optimizeViewHierarchy(View view, int level) {
-        if (view == null) return;
+    public void optimizeView(View view) {
+        if (view == null || eInkOptimizationLevel == 0) return;
         
-        // 禁用背景动画和淡入淡出效果
-        view.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
-        
-        // 对不同的视图类型进行优化
-        if (view instanceof ViewGroup) {
-            ViewGroup viewGroup = (ViewGroup) view;
-            
-            // RecyclerView 特殊优化
-            if (view instanceof RecyclerView) {
-                RecyclerView recyclerView = (RecyclerView) view;
-                recyclerView.setItemAnimator(null); // 禁用项目动画
-                recyclerView.setHasFixedSize(true); // 固定大小优化
-                
-                if (level == 2) {
-                    // 减少过度滚动效果
-                    recyclerView.setOverScrollMode(View.OVER_SCROLL_NEVER);
-                    // 预取限制为0，减少布局计算
-                    recyclerView.setItemViewCacheSize(10); // 增加缓存减少重建
-                }
-            }
-            
-            // 递归处理所有子视图
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                optimizeViewHierarchy(viewGroup.getChildAt(i), level);
-            }
-        } else if (view instanceof ImageView) {
-            ImageView imageView = (ImageView) view;
-            // 对于电子墨水屏，图片优化
-            // 使用低质量图片，减少资源消耗
-            if (level >= 2) {
-                // 降低图片质量，使用软件渲染模式
-                imageView.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
-            }
-        } else if (view instanceof TextView) {
+        if (view instanceof RecyclerView) {
+            optimizeRecyclerView((RecyclerView) view);
+        } else if (view instanceof TextView && eInkOptimizationLevel == 2) {
             TextView textView = (TextView) view;
-            if (level == 2) {
-                // 禁用文本选择高亮
-                textView.setHighlightColor(0);
-                // 禁用光标闪烁
-                textView.setCursorVisible(false);
-            }
+            // 禁用文本选择高亮
+            textView.setHighlightColor(0);
+            // 禁用光标闪烁
+            textView.setCursorVisible(false);
         }
     }
     
     /**
-     * 延迟刷新指定视图，合并短时间内的多次刷新请求
+     * 延迟刷新指定视图，由EInkRefreshScheduler合并短时间内的多次刷新请求
      */
     public void scheduleDelayedUpdate(View view) {
         if (view == null || eInkOptimizationLevel == 0) {
@@ -185,21 +140,7 @@ public class UIPerformanceOptimizer {
             return;
         }
         
-        long currentTime = System.currentTimeMillis();
-        Long lastUpdate = pendingUpdates.get(view);
-        
-        if (lastUpdate == null || (currentTime - lastUpdate > MIN_UI_UPDATE_INTERVAL_MS)) {
-            // 安排延迟更新
-            pendingUpdates.put(view, currentTime);
-            
-            mainHandler.postDelayed(() -> {
-                // 移除记录并执行更新
-                pendingUpdates.remove(view);
-                if (view.isAttachedToWindow()) {
-                    view.invalidate();
-                }
-            }, MIN_UI_UPDATE_INTERVAL_MS);
-        }
+        EInkRefreshScheduler.getInstance().requestPartial(view);
     }
     
     /**
@@ -287,6 +228,5 @@ public class UIPerformanceOptimizer {
      */
     public void clearPendingUpdates() {
         mainHandler.removeCallbacksAndMessages(null);
-        pendingUpdates.clear();
     }
 } 
\ No newline at end of file
@@ -9,6 +9,8 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.stu.calender2.data.Task;
 import com.stu.calender2.data.TaskRepository;
+import com.stu.calender2.data.TaskSearchController;
+import com.stu.calender2.data.TaskWindow;
 
 import java.util.Date;
 import java.util.List;
@@ -19,6 +21,7 @@ import java.util.List;
 public class TaskViewModel extends AndroidViewModel {
     private TaskRepository repository;
     private LiveData<List<Task>> allTasks;
+    private TaskWindow allTasksWindow;
     private MutableLiveData<Task> selectedTask = new MutableLiveData<>();
 
     public TaskViewModel(@NonNull Application application) {
@@ -42,6 +45,28 @@ public class TaskViewModel extends AndroidViewModel {
         return repository.getTasksByDateRange(start, end);
     }
 
+    /**
+     * 所有任务的物化窗口，与ViewModel同生命周期
+     */
+    public TaskWindow getAllTasksWindow() {
+        if (allTasksWindow == null) {
+            allTasksWindow = repository.openAllTasksWindow();
+        }
+        return allTasksWindow;
+    }
+
+    /**
+     * 日期范围内任务的物化窗口，单个任务的变更以最小变更集送达
+     */
+    public TaskWindow getTaskWindow(Date start, Date end) {
+        return repository.openWindow(start, end);
+    }
+
+    // 全文搜索任务
+    public void search(String text, TaskSearchController.SearchCallback callback) {
+        repository.search(text, callback);
+    }
+
     // 根据重要程度获取任务
     public LiveData<List<Task>> getTasksByImportance(int importance) {
         return repository.getTasksByImportance(importance);
@@ -67,6 +92,11 @@ public class TaskViewModel extends AndroidViewModel {
         repository.delete(task);
     }
 
+    // 删除重复任务的一次实例
+    public void deleteOccurrence(long taskId, long occurrenceStart) {
+        repository.deleteOccurrence(taskId, occurrenceStart);
+    }
+
     // 根据ID获取任务
     public void getTaskById(long id, TaskRepository.OnTaskOperationListener listener) {
         repository.getTaskById(id, listener);
@@ -77,6 +107,11 @@ public class TaskViewModel extends AndroidViewModel {
         selectedTask.setValue(task);
     }
 
+    // 取消尚未完成的搜索
+    public void cancelSearch() {
+        TaskSearchController.getInstance().cancel();
+    }
+
     // 获取选中的任务
     public LiveData<Task> getSelectedTask() {
         return selectedTask;
@@ -0,0 +1,226 @@
+package com.stu.calender2.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Recurrence展开的边界情况：跨窗口的COUNT、31日的按月重复、
+ * 开始日期之前的BYDAY、跨夏令时
+ */
+public class RecurrenceTest {
+
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long[] NONE = new long[0];
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        // 展开按默认时区的本地时间计算，固定为有夏令时的时区
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void count_isCountedFromSeriesStartInEveryWindow() {
+        Recurrence daily = Recurrence.parse("FREQ=DAILY;COUNT=10");
+        long start = time(2024, 1, 1, 9, 0);
+
+        long[] first = daily.expand(start, NONE, time(2024, 1, 1, 0, 0), time(2024, 1, 4, 23, 59));
+        long[] rest = daily.expand(start, NONE, time(2024, 1, 5, 0, 0), time(2024, 1, 31, 23, 59));
+        assertEquals(4, first.length);
+        assertEquals(6, rest.length);
+        assertEquals(time(2024, 1, 10, 9, 0), rest[rest.length - 1]);
+
+        // 窗口完全在系列结束之后
+        assertEquals(0, daily.expand(start, NONE, time(2024, 2, 1, 0, 0), time(2024, 2, 28, 0, 0)).length);
+    }
+
+    @Test
+    public void count_withByDay_acrossWindows() {
+        // 2024-01-03是周三，周一、三、五各一次，共7次：3、5、8、10、12、15、17日
+        Recurrence weekly = Recurrence.parse("FREQ=WEEKLY;BYDAY=MO,WE,FR;COUNT=7");
+        long start = time(2024, 1, 3, 9, 0);
+
+        assertArrayEquals(new long[]{time(2024, 1, 15, 9, 0), time(2024, 1, 17, 9, 0)},
+                weekly.expand(start, NONE, time(2024, 1, 14, 0, 0), time(2024, 1, 31, 0, 0)));
+        assertEquals(7, weekly.expand(start, NONE, start, time(2024, 12, 31, 0, 0)).length);
+        assertEquals(time(2024, 1, 17, 9, 0), (long) weekly.lastOccurrenceStart(start));
+    }
+
+    @Test
+    public void count_excludedOccurrencesStillCount() {
+        Recurrence daily = Recurrence.parse("FREQ=DAILY;COUNT=3");
+        long start = time(2024, 1, 1, 9, 0);
+        long[] exceptions = {time(2024, 1, 2, 9, 0)};
+
+        assertArrayEquals(new long[]{time(2024, 1, 1, 9, 0), time(2024, 1, 3, 9, 0)},
+                daily.expand(start, exceptions, start, time(2024, 1, 31, 0, 0)));
+    }
+
+    @Test
+    public void monthly_on31st_skipsShortMonths() {
+        Recurrence monthly = Recurrence.parse("FREQ=MONTHLY");
+        long start = time(2024, 1, 31, 10, 0);
+
+        assertArrayEquals(new long[]{
+                        time(2024, 3, 31, 10, 0),
+                        time(2024, 5, 31, 10, 0),
+                        time(2024, 7, 31, 10, 0),
+                        time(2024, 8, 31, 10, 0),
+                        time(2024, 10, 31, 10, 0),
+                        time(2024, 12, 31, 10, 0)},
+                monthly.expand(start, NONE, time(2024, 2, 1, 0, 0), time(2024, 12, 31, 23, 59)));
+    }
+
+    @Test
+    public void monthly_on31st_countSkipsMonthsWithoutThatDay() {
+        // 1月31日、3月31日、5月31日
+        Recurrence monthly = Recurrence.parse("FREQ=MONTHLY;COUNT=3");
+        long start = time(2024, 1, 31, 10, 0);
+
+        assertArrayEquals(new long[]{time(2024, 5, 31, 10, 0)},
+                monthly.expand(start, NONE, time(2024, 4, 1, 0, 0), time(2024, 12, 31, 0, 0)));
+        assertEquals(time(2024, 5, 31, 10, 0), (long) monthly.lastOccurrenceStart(start));
+    }
+
+    @Test
+    public void weeklyByDay_daysBeforeSeriesStartAreSkipped() {
+        // 系列从周三开始，第一周的周一早于开始时间，不产生实例
+        Recurrence weekly = Recurrence.parse("FREQ=WEEKLY;BYDAY=MO,WE");
+        long start = time(2024, 1, 3, 9, 0);
+
+        assertArrayEquals(new long[]{
+                        time(2024, 1, 3, 9, 0),
+                        time(2024, 1, 8, 9, 0),
+                        time(2024, 1, 10, 9, 0)},
+                weekly.expand(start, NONE, time(2024, 1, 1, 0, 0), time(2024, 1, 10, 23, 59)));
+    }
+
+    @Test
+    public void weeklyByDay_intervalAndDistantWindow() {
+        // 隔周的周二、周四，从很远的窗口开始展开
+        Recurrence weekly = Recurrence.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=TU,TH");
+        long start = time(2024, 1, 2, 9, 0);
+
+        // 12月16日所在的周与1月1日所在的周相隔50周，12月23日所在的周不在系列中
+        assertArrayEquals(new long[]{time(2024, 12, 17, 9, 0), time(2024, 12, 19, 9, 0)},
+                weekly.expand(start, NONE, time(2024, 12, 15, 0, 0), time(2024, 12, 28, 23, 59)));
+    }
+
+    @Test
+    public void daily_keepsLocalTimeAcrossDstStart() {
+        // 2024-03-10美东进入夏令时，当天只有23小时
+        Recurrence daily = Recurrence.parse("FREQ=DAILY");
+        long start = time(2024, 3, 9, 9, 0);
+
+        long[] result = daily.expand(start, NONE, start, time(2024, 3, 11, 23, 59));
+        assertEquals(3, result.length);
+        assertEquals(23 * HOUR_MS, result[1] - result[0]);
+        assertEquals(24 * HOUR_MS, result[2] - result[1]);
+        for (long occurrence : result) {
+            assertEquals(9, hourOf(occurrence));
+        }
+    }
+
+    @Test
+    public void daily_distantWindowAcrossDstEnd() {
+        // 窗口远离开始时间时按天数估算起始周期，夏令时结束的偏差不能漏掉实例
+        Recurrence daily = Recurrence.parse("FREQ=DAILY");
+        long start = time(2024, 3, 9, 0, 30);
+
+        long[] result = daily.expand(start, NONE, time(2024, 11, 2, 0, 0), time(2024, 11, 4, 23, 59));
+        assertArrayEquals(new long[]{
+                        time(2024, 11, 2, 0, 30),
+                        time(2024, 11, 3, 0, 30),
+                        time(2024, 11, 4, 0, 30)},
+                result);
+        assertEquals(25 * HOUR_MS, result[2] - result[1]);
+    }
+
+    @Test
+    public void weekly_keepsLocalTimeAcrossDst() {
+        Recurrence weekly = Recurrence.parse("FREQ=WEEKLY");
+        long start = time(2024, 3, 4, 8, 0);
+
+        long[] result = weekly.expand(start, NONE, start, time(2024, 3, 18, 23, 59));
+        assertEquals(3, result.length);
+        for (long occurrence : result) {
+            assertEquals(8, hourOf(occurrence));
+        }
+    }
+
+    @Test
+    public void until_isInclusive() {
+        Recurrence daily = Recurrence.parse("FREQ=DAILY;UNTIL=20240103");
+        long start = time(2024, 1, 1, 9, 0);
+
+        assertEquals(3, daily.expand(start, NONE, start, time(2024, 1, 31, 0, 0)).length);
+    }
+
+    @Test
+    public void parse_rejectsUnsupportedParts() {
+        assertNull(Recurrence.parse("FREQ=YEARLY"));
+        assertNull(Recurrence.parse("FREQ=MONTHLY;BYMONTHDAY=1"));
+        assertNull(Recurrence.parse("FREQ=WEEKLY;BYDAY=1MO"));
+        assertNull(Recurrence.parse("FREQ=DAILY;BYDAY=MO"));
+        assertNull(Recurrence.parse("FREQ=DAILY;COUNT=x"));
+        assertEquals("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,FR",
+                Recurrence.parse("RRULE:freq=weekly;interval=2;byday=FR,MO").toRule());
+    }
+
+    @Test
+    public void parseExceptions_skipsMalformedItems() {
+        assertArrayEquals(new long[]{100, 300}, Recurrence.parseExceptions("300,abc,100"));
+        assertArrayEquals(NONE, Recurrence.parseExceptions(null));
+    }
+
+    @Test
+    public void moveExceptions_followsShiftedSeries() {
+        Recurrence daily = Recurrence.parse("FREQ=DAILY");
+        long oldStart = time(2024, 1, 1, 9, 0);
+        long newStart = time(2024, 1, 2, 14, 0);
+        String exceptions = time(2024, 1, 3, 9, 0) + "," + time(2024, 1, 5, 9, 0);
+
+        // 第3次和第5次仍被排除
+        assertEquals(time(2024, 1, 4, 14, 0) + "," + time(2024, 1, 6, 14, 0),
+                daily.moveExceptions(exceptions, oldStart, newStart));
+        assertNull(daily.moveExceptions(null, oldStart, newStart));
+        // 不是原系列实例的排除项丢弃
+        assertNull(daily.moveExceptions(Long.toString(time(2024, 1, 3, 10, 0)), oldStart, newStart));
+    }
+
+    @Test
+    public void moveExceptions_acrossDst() {
+        Recurrence daily = Recurrence.parse("FREQ=DAILY");
+        long oldStart = time(2024, 3, 8, 9, 0);
+        long newStart = time(2024, 3, 8, 10, 0);
+
+        assertEquals(Long.toString(time(2024, 3, 11, 10, 0)),
+                daily.moveExceptions(Long.toString(time(2024, 3, 11, 9, 0)), oldStart, newStart));
+    }
+
+    private static long time(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static int hourOf(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.HOUR_OF_DAY);
+    }
+}
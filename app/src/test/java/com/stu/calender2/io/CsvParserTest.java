@@ -0,0 +1,146 @@
+package com.stu.calender2.io;
+
+import com.stu.calender2.data.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * CsvParser：引号字段、分列的日期时间、格式错误的记录
+ */
+public class CsvParserTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void quotedFields_commaQuoteAndNewline() throws IOException {
+        CsvParser parser = parser("title,start,location,note\r\n"
+                + "\"开会, 周报\",2024-01-02 09:30,\"3\"\"楼\",\"第一行\r\n第二行\"\r\n");
+
+        Task task = parser.next();
+        assertEquals("开会, 周报", task.getTitle());
+        assertEquals("3\"楼", task.getLocation());
+        assertEquals("第一行\r\n第二行", task.getNote());
+        assertEquals(time(2024, 1, 2, 9, 30), task.getStartTime().getTime());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void escapedQuote_acrossBufferBoundary() throws IOException {
+        String header = "title,start\n";
+        // 让""的第一个引号恰好是第一次读取的最后一个字符
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 16 * 1024 - header.length() - 2; i++) {
+            title.append('x');
+        }
+        CsvParser parser = parser(header + "\"" + title + "\"\"y\",2024-01-02 09:30\n");
+
+        Task task = parser.next();
+        assertEquals(title + "\"y", task.getTitle());
+        assertEquals(time(2024, 1, 2, 9, 30), task.getStartTime().getTime());
+    }
+
+    @Test
+    public void headerWithBom_andSplitDateAndTimeColumns() throws IOException {
+        CsvParser parser = parser("\uFEFFSubject,Start Date,Start Time,End Date,End Time,Priority,Completed\n"
+                + "Review,01/15/2024,2:30 PM,01/15/2024,3:00 PM,High,TRUE\n");
+
+        Task task = parser.next();
+        assertEquals("Review", task.getTitle());
+        assertEquals(time(2024, 1, 15, 14, 30), task.getStartTime().getTime());
+        assertEquals(time(2024, 1, 15, 15, 0), task.getEndTime().getTime());
+        assertEquals(1, task.getImportance());
+        assertTrue(task.isCompleted());
+    }
+
+    @Test
+    public void dateOnlyEnd_includesThatDay() throws IOException {
+        CsvParser parser = parser("title,start,end\n"
+                + "出差,2024-03-01,2024-03-03\n"
+                + "假期,2024-05-01,\n");
+
+        Task trip = parser.next();
+        assertEquals(time(2024, 3, 1, 0, 0), trip.getStartTime().getTime());
+        assertEquals(time(2024, 3, 4, 0, 0), trip.getEndTime().getTime());
+        Task holiday = parser.next();
+        assertEquals(DAY_MS, holiday.getEndTime().getTime() - holiday.getStartTime().getTime());
+    }
+
+    @Test
+    public void malformedRecords_areSkippedAndCounted() throws IOException {
+        CsvParser parser = parser("title,start\n"
+                + "无日期,\n"
+                + "\n"
+                + "错误日期,2024-13-01 09:00\n"
+                + "错误时间,2024-01-01 25:00\n"
+                + "文字,明天\n"
+                + "正常,2024-01-01 09:00\n");
+
+        Task task = parser.next();
+        assertEquals("正常", task.getTitle());
+        assertNull(parser.next());
+        assertEquals(4, parser.getSkippedCount());
+    }
+
+    @Test
+    public void unterminatedQuote_atEndOfFile() throws IOException {
+        CsvParser parser = parser("start,title\n2024-01-01 09:00,\"未结束");
+
+        assertEquals("未结束", parser.next().getTitle());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void millisecondTimestamp_andShortRows() throws IOException {
+        long start = time(2024, 6, 1, 8, 0);
+        CsvParser parser = parser("start,title,location\n" + start + "\n");
+
+        Task task = parser.next();
+        assertEquals(start, task.getStartTime().getTime());
+        assertEquals("", task.getTitle());
+        assertNull(task.getLocation());
+        assertEquals(4, task.getImportance());
+    }
+
+    @Test(expected = IOException.class)
+    public void missingStartColumn_isRejected() throws IOException {
+        parser("title,location\n会议,A\n").next();
+    }
+
+    @Test
+    public void emptyInput_hasNoTasks() throws IOException {
+        assertNull(parser("").next());
+    }
+
+    private static CsvParser parser(String text) {
+        return new CsvParser(new StringReader(text));
+    }
+
+    private static long time(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,201 @@
+package com.stu.calender2.io;
+
+import com.stu.calender2.data.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * IcsParser：折行、转义和参数中的引号、嵌套组件、重复规则、格式错误的事件
+ */
+public class IcsParserTest {
+
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void foldedLines_areUnfolded() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VCALENDAR",
+                "BEGIN:VEVENT",
+                "SUMMARY:项目",
+                " 评审",
+                "\t会议",
+                "DESCRIPTION:第一行\\n第二行\\, 含逗号\\; 分号\\\\",
+                "DTSTART:20240102T093000",
+                "END:VEVENT",
+                "END:VCALENDAR");
+
+        Task task = parser.next();
+        assertEquals("项目评审会议", task.getTitle());
+        assertEquals("第一行\n第二行, 含逗号; 分号\\", task.getNote());
+        assertEquals(time(2024, 1, 2, 9, 30), task.getStartTime().getTime());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void foldedLine_beforeEndOfFile() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VEVENT",
+                "DTSTART:20240102",
+                "T093000",
+                "LOCATION:A",
+                " B",
+                "END:VEVENT");
+
+        Task task = parser.next();
+        // 不以空白开头的行不是折行，DTSTART只有日期
+        assertEquals(time(2024, 1, 2, 0, 0), task.getStartTime().getTime());
+        assertEquals("AB", task.getLocation());
+    }
+
+    @Test
+    public void quotedParameter_mayContainColon() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VEVENT",
+                "LOCATION;ALTREP=\"http://example.com/room:1\":会议室",
+                "DTSTART;TZID=\"America/New_York\":20240102T090000",
+                "END:VEVENT");
+
+        Task task = parser.next();
+        assertEquals("会议室", task.getLocation());
+        assertEquals(utc(2024, 1, 2, 14, 0), task.getStartTime().getTime());
+    }
+
+    @Test
+    public void utcAndDateOnlyValues() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VEVENT",
+                "DTSTART:20240102T010000Z",
+                "DURATION:PT1H30M",
+                "END:VEVENT",
+                "BEGIN:VTODO",
+                "DTSTART;VALUE=DATE:20240105",
+                "STATUS:COMPLETED",
+                "PRIORITY:3",
+                "END:VTODO");
+
+        Task event = parser.next();
+        assertEquals(utc(2024, 1, 2, 1, 0), event.getStartTime().getTime());
+        assertEquals(90 * 60 * 1000L, event.getEndTime().getTime() - event.getStartTime().getTime());
+
+        Task todo = parser.next();
+        assertEquals(time(2024, 1, 5, 0, 0), todo.getStartTime().getTime());
+        assertEquals(DAY_MS, todo.getEndTime().getTime() - todo.getStartTime().getTime());
+        assertTrue(todo.isCompleted());
+        assertEquals(2, todo.getImportance());
+    }
+
+    @Test
+    public void nestedComponents_areIgnored() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VEVENT",
+                "SUMMARY:提醒测试",
+                "DTSTART:20240102T090000",
+                "BEGIN:VALARM",
+                "DESCRIPTION:闹钟",
+                "SUMMARY:不是标题",
+                "END:VALARM",
+                "END:VEVENT");
+
+        Task task = parser.next();
+        assertEquals("提醒测试", task.getTitle());
+        assertNull(task.getNote());
+    }
+
+    @Test
+    public void recurrenceAndExdates() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VEVENT",
+                "DTSTART:20240101T090000",
+                "RRULE:FREQ=WEEKLY;BYDAY=MO,WE",
+                "EXDATE:20240103T090000,bad,20240108T090000",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART:20240101T090000",
+                "RRULE:FREQ=YEARLY",
+                "EXDATE:20240103T090000",
+                "END:VEVENT");
+
+        Task weekly = parser.next();
+        assertEquals("FREQ=WEEKLY;BYDAY=MO,WE", weekly.getRecurrenceRule());
+        assertEquals(time(2024, 1, 3, 9, 0) + "," + time(2024, 1, 8, 9, 0), weekly.getRecurrenceExceptions());
+
+        // 不支持的规则按单次任务导入
+        Task yearly = parser.next();
+        assertNull(yearly.getRecurrenceRule());
+        assertNull(yearly.getRecurrenceExceptions());
+    }
+
+    @Test
+    public void malformedEvents_areSkippedAndCounted() throws IOException {
+        IcsParser parser = parser(
+                "BEGIN:VEVENT",
+                "SUMMARY:没有开始时间",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "SUMMARY:错误的开始时间",
+                "DTSTART:2024AB02T090000",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "没有冒号的行",
+                "SUMMARY:正常",
+                "DTSTART:20240102T090000",
+                "DURATION:PXD",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "SUMMARY:文件在事件中间结束",
+                "DTSTART:20240103T090000");
+
+        Task task = parser.next();
+        assertEquals("正常", task.getTitle());
+        // 无法解析的DURATION按没有结束时间处理
+        assertEquals(task.getStartTime(), task.getEndTime());
+        assertNull(parser.next());
+        assertEquals(3, parser.getSkippedCount());
+    }
+
+    @Test
+    public void emptyInput_hasNoTasks() throws IOException {
+        assertNull(parser().next());
+    }
+
+    private static IcsParser parser(String... lines) {
+        return new IcsParser(new StringReader(String.join("\r\n", lines)));
+    }
+
+    private static long time(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
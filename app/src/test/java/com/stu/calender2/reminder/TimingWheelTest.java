@@ -0,0 +1,140 @@
+package com.stu.calender2.reminder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TimingWheel：不提前到期、跨层级联、超出范围和长时间休眠
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    // 两层覆盖64 * 64个tick
+    private static final long SPAN = 64 * 64 * TICK;
+
+    @Test
+    public void expiresAtDeadline_notBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 0);
+        wheel.schedule(5 * TICK, "a");
+
+        assertTrue(wheel.advance(5 * TICK - 1).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(5 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void deadlineIsRoundedUpToTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 0);
+        wheel.schedule(2 * TICK + 1, "a");
+
+        assertTrue(wheel.advance(2 * TICK + 1).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(3 * TICK));
+    }
+
+    @Test
+    public void pastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 10 * TICK);
+        wheel.schedule(3 * TICK, "late");
+
+        assertEquals(Collections.singletonList("late"), wheel.advance(11 * TICK));
+    }
+
+    @Test
+    public void cascadesFromUpperLevel() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 10 * TICK);
+        // 距当前超过64个tick，先放在第1层
+        wheel.schedule(200 * TICK, "a");
+
+        assertTrue(wheel.advance(199 * TICK).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(200 * TICK));
+    }
+
+    @Test
+    public void overflowBeyondSpanIsRedistributed() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 0);
+        long deadline = SPAN + 100 * TICK;
+        wheel.schedule(deadline, "far");
+
+        List<String> expired = new ArrayList<>();
+        for (long now = TICK; now < deadline; now += TICK) {
+            expired.addAll(wheel.advance(now));
+        }
+        assertTrue(expired.isEmpty());
+        assertEquals(Collections.singletonList("far"), wheel.advance(deadline));
+    }
+
+    @Test
+    public void longSleepExpiresEverythingDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 0);
+        wheel.schedule(10 * TICK, "a");
+        wheel.schedule(3 * SPAN, "b");
+        wheel.schedule(5 * SPAN, "c");
+
+        // 跳过的时间超过整个时间轮
+        List<String> expired = wheel.advance(4 * SPAN);
+        Collections.sort(expired);
+        assertEquals(Arrays.asList("a", "b"), expired);
+        assertEquals(1, wheel.size());
+        assertEquals(Collections.singletonList("c"), wheel.advance(5 * SPAN));
+    }
+
+    @Test
+    public void randomDeadlinesExpireInTheirTick() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 3, 0);
+        Random random = new Random(42);
+        long[] deadlines = new long[2000];
+        for (int i = 0; i < deadlines.length; i++) {
+            // 三层覆盖64 * SPAN，部分条目落在最高层
+            deadlines[i] = TICK + (long) (random.nextDouble() * 64 * SPAN);
+            wheel.schedule(deadlines[i], (long) i);
+        }
+
+        // 以不规则的步长推进，每个条目都在向上取整后的tick到期
+        int seen = 0;
+        long now = 0;
+        while (wheel.size() > 0) {
+            long previous = now;
+            now += TICK * (1 + random.nextInt(500));
+            for (long item : wheel.advance(now)) {
+                long expireTick = (deadlines[(int) item] + TICK - 1) / TICK;
+                assertTrue("提前到期: " + item, expireTick <= now / TICK);
+                assertTrue("到期过晚: " + item, expireTick > previous / TICK);
+                seen++;
+            }
+        }
+        assertEquals(deadlines.length, seen);
+    }
+
+    @Test
+    public void nextDelay_pointsToNearestSlotOrCascade() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 0);
+        assertEquals(-1, wheel.nextDelay(0));
+
+        wheel.schedule(5 * TICK, "a");
+        assertEquals(5 * TICK, wheel.nextDelay(0));
+        assertEquals(5 * TICK - 300, wheel.nextDelay(300));
+
+        // 只有上层的条目时，下一次唤醒在级联时刻
+        wheel.clear();
+        wheel.schedule(300 * TICK, "b");
+        assertEquals(64 * TICK, wheel.nextDelay(0));
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 0);
+        wheel.schedule(5 * TICK, "a");
+        wheel.schedule(2 * SPAN, "b");
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(3 * SPAN).isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package com.stu.calender2.baselineprofile;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * 基线配置文件生成器
+ * 覆盖启动、三日/周/月视图切换以及任务列表滚动这几条关键路径
+ *
+ * 生成方式: ./gradlew :app:generateBaselineProfile
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    private static final String PACKAGE_NAME = "com.stu.calender2";
+    private static final long UI_TIMEOUT_MS = 10_000;
+
+    // 任务列表少于该数量时先通过界面添加任务，保证滚动路径能绑定到TaskAdapter
+    private static final int MIN_TASKS_FOR_SCROLL = 12;
+
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        baselineProfileRule.collect(
+                PACKAGE_NAME,
+                15,
+                3,
+                null,
+                true,
+                false,
+                line -> true,
+                scope -> {
+                    startup(scope);
+                    switchCalendarModes(scope);
+                    scrollTaskList(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * 冷启动：启动页 → 主界面日历
+     */
+    private void startup(MacrobenchmarkScope scope) {
+        scope.pressHome();
+        scope.startActivityAndWait();
+        scope.getDevice().wait(Until.hasObject(By.res(PACKAGE_NAME, "btn_calendar")), UI_TIMEOUT_MS);
+    }
+
+    /**
+     * 依次切换三日、周、月视图
+     */
+    private void switchCalendarModes(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        clickAndIdle(device, "btn_calendar");
+        clickAndIdle(device, "btn_three_day");
+        clickAndIdle(device, "btn_week");
+        clickAndIdle(device, "btn_month");
+        clickAndIdle(device, "btn_three_day");
+        clickAndIdle(device, "btn_month");
+    }
+
+    /**
+     * 打开任务列表并上下滚动
+     */
+    private void scrollTaskList(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        clickAndIdle(device, "btn_tasks");
+
+        UiObject2 list = device.wait(Until.findObject(By.res(PACKAGE_NAME, "recycler_tasks")), UI_TIMEOUT_MS);
+        if (list == null) return;
+
+        if (list.getChildCount() < MIN_TASKS_FOR_SCROLL) {
+            for (int i = list.getChildCount(); i < MIN_TASKS_FOR_SCROLL; i++) {
+                addTask(device, "基线任务 " + i);
+            }
+            list = device.wait(Until.findObject(By.res(PACKAGE_NAME, "recycler_tasks")), UI_TIMEOUT_MS);
+            if (list == null) return;
+        }
+
+        // 避开系统手势区域
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        list.fling(Direction.DOWN);
+        device.waitForIdle();
+        list.fling(Direction.UP);
+        device.waitForIdle();
+    }
+
+    /**
+     * 通过任务详情界面添加一个任务，同时覆盖插入路径
+     */
+    private void addTask(UiDevice device, String title) {
+        clickAndIdle(device, "fab_add_task");
+        UiObject2 titleInput = device.wait(Until.findObject(By.res(PACKAGE_NAME, "edit_task_title")), UI_TIMEOUT_MS);
+        if (titleInput == null) return;
+        titleInput.setText(title);
+        clickAndIdle(device, "button_save_task");
+        device.wait(Until.hasObject(By.res(PACKAGE_NAME, "recycler_tasks")), UI_TIMEOUT_MS);
+    }
+
+    private void clickAndIdle(UiDevice device, String resourceId) {
+        UiObject2 target = device.wait(Until.findObject(By.res(PACKAGE_NAME, resourceId)), UI_TIMEOUT_MS);
+        if (target != null) {
+            target.click();
+            device.waitForIdle();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.stu.calender2.benchmark;
+
+import android.content.Intent;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * 启动性能基准测试
+ * 分别测量冷启动、温启动、热启动，以及到日历首帧的耗时
+ *
+ * 运行方式: ./gradlew :benchmark:connectedBenchmarkAndroidTest
+ */
+@LargeTest
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+
+    static final String PACKAGE_NAME = "com.stu.calender2";
+    private static final int ITERATIONS = 10;
+    static final long UI_TIMEOUT_MS = 10_000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private final StartupMode startupMode;
+
+    public StartupBenchmark(StartupMode startupMode) {
+        this.startupMode = startupMode;
+    }
+
+    @Parameterized.Parameters(name = "mode={0}")
+    public static List<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{
+                {StartupMode.COLD},
+                {StartupMode.WARM},
+                {StartupMode.HOT}
+        });
+    }
+
+    @Before
+    public void setUp() {
+        // 主界面会请求忽略电池优化，提前加入白名单以免系统对话框干扰测量
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        try {
+            device.executeShellCommand("dumpsys deviceidle whitelist +" + PACKAGE_NAME);
+        } catch (IOException e) {
+            // 白名单失败时继续测量，结果中可能包含对话框的开销
+        }
+    }
+
+    /**
+     * 从桌面启动：启动页 → 主界面，直到日历导航按钮可见
+     */
+    @Test
+    public void startupFromLauncher() {
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                CompilationMode.DEFAULT,
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    waitForCalendar(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * 从桌面启动，强制使用基线配置文件编译，与startupFromLauncher对比收益
+     */
+    @Test
+    public void startupFromLauncherWithBaselineProfile() {
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0),
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    waitForCalendar(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * 直接启动主界面
+     * CalendarFragment首帧时调用reportFullyDrawn，timeToFullDisplayMs即到日历首帧的耗时
+     */
+    @Test
+    public void startupToFirstCalendarFrame() {
+        Intent intent = new Intent();
+        intent.setClassName(PACKAGE_NAME, PACKAGE_NAME + ".MainActivity");
+
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                CompilationMode.DEFAULT,
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait(intent);
+                    waitForCalendar(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * 等待日历界面出现
+     */
+    static void waitForCalendar(MacrobenchmarkScope scope) {
+        scope.getDevice().wait(Until.hasObject(By.res(PACKAGE_NAME, "btn_calendar")), UI_TIMEOUT_MS);
+    }
+}